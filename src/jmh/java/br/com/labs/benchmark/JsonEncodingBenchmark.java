@@ -0,0 +1,81 @@
+package br.com.labs.benchmark;
+
+import br.com.labs.config.JsonConfig;
+import br.com.labs.dto.response.ApiResponse;
+import br.com.labs.dto.response.PageResponse;
+import br.com.labs.model.Product;
+import io.vertx.core.json.Json;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON encoding of the response envelopes, as done by the handlers for every request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonEncodingBenchmark {
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    private ApiResponse<Product> single;
+    private ApiResponse<PageResponse<Product>> page;
+
+    @Setup
+    public void setUp() {
+        JsonConfig.configure();
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < pageSize; i++) {
+            products.add(product(i));
+        }
+        single = ApiResponse.success(products.get(0));
+        page = ApiResponse.success(new PageResponse<>(products, 0, pageSize, 10_000));
+    }
+
+    @Benchmark
+    public String encodeProduct() {
+        return Json.encode(single);
+    }
+
+    @Benchmark
+    public String encodePage() {
+        return Json.encode(page);
+    }
+
+    private static Product product(int i) {
+        LocalDateTime now = LocalDateTime.now();
+        return Product.builder()
+                .id(UUID.randomUUID())
+                .name("Product " + i)
+                .description("Benchmark product number " + i)
+                .code("BENCH-" + i)
+                .price(new BigDecimal("199.90"))
+                .stock(100)
+                .version(1)
+                .categoryId(UUID.randomUUID())
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+}
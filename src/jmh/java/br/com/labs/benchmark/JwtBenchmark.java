@@ -0,0 +1,70 @@
+package br.com.labs.benchmark;
+
+import br.com.labs.config.AppConfig;
+import br.com.labs.security.JwtProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token generation on login and verification on every authenticated request,
+ * with and without the verified-token cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    @Param({"true", "false"})
+    public boolean cache;
+
+    private Vertx vertx;
+    private JwtProvider jwtProvider;
+    private UUID userId;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        vertx = Vertx.vertx();
+        AppConfig config = new AppConfig(new JsonObject()
+                .put("jwt", new JsonObject().put("cacheEnabled", cache)));
+        jwtProvider = new JwtProvider(vertx, config, new SimpleMeterRegistry());
+        userId = UUID.randomUUID();
+        token = jwtProvider.generateToken(userId, "bench@85labs.com.br");
+    }
+
+    @TearDown
+    public void tearDown() {
+        vertx.close();
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtProvider.generateToken(userId, "bench@85labs.com.br");
+    }
+
+    @Benchmark
+    public User verifyToken() {
+        // With the cache enabled this is a hash lookup after the first call; HS256 verification is synchronous
+        return jwtProvider.authenticate(token).result();
+    }
+}
@@ -0,0 +1,146 @@
+package br.com.labs.benchmark;
+
+import br.com.labs.cache.CountCache;
+import br.com.labs.config.CountStrategy;
+import br.com.labs.dto.request.CreateOrderRequest;
+import br.com.labs.model.Order;
+import br.com.labs.model.OrderItem;
+import br.com.labs.model.Product;
+import br.com.labs.model.StockShortage;
+import br.com.labs.repository.OrderRepository;
+import br.com.labs.repository.ProductRepository;
+import br.com.labs.repository.StockDecrementResult;
+import br.com.labs.repository.TransactionManager;
+import br.com.labs.reservation.StockReservations;
+import br.com.labs.service.OrderService;
+import br.com.labs.service.impl.OrderServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.sqlclient.SqlConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * OrderServiceImpl.create with in-memory repositories: validation, merging of repeated items,
+ * pricing and the future chain, without any database round trip.
+ * The repositories are {@link Stubs} answering only the calls of the order path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderServiceBenchmark {
+
+    @Param({"1", "5", "20"})
+    public int items;
+
+    private OrderService orderService;
+    private UUID userId;
+    private CreateOrderRequest request;
+    private final Map<UUID, Product> products = new HashMap<>();
+
+    @Setup
+    public void setUp() {
+        ProductRepository productRepository = Stubs.of(ProductRepository.class, Map.of(
+                "decrementStock/2", args -> Future.succeededFuture(decrement(quantities(args[1])))));
+        OrderRepository orderRepository = Stubs.of(OrderRepository.class, Map.of(
+                "saveWithItems/3", args -> Future.succeededFuture(assignIds((Order) args[1]))));
+        TransactionManager transactionManager = new TransactionManager() {
+            @Override
+            public <T> Future<T> inTransaction(Function<SqlConnection, Future<T>> work) {
+                return work.apply(null);
+            }
+        };
+
+        // Orders are created without an idempotency key, so no key repository is needed
+        orderService = new OrderServiceImpl(orderRepository, productRepository, transactionManager,
+                CountStrategy.EXACT, new CountCache<>(1000, Duration.ofMinutes(1)), StockReservations.disabled(),
+                null, null, new SimpleMeterRegistry());
+        userId = UUID.randomUUID();
+
+        List<CreateOrderRequest.OrderItemRequest> itemRequests = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            Product product = Product.builder()
+                    .id(UUID.randomUUID())
+                    .name("Product " + i)
+                    .code("BENCH-" + i)
+                    .price(new BigDecimal("19.90"))
+                    .stock(Integer.MAX_VALUE)
+                    .version(1)
+                    .build();
+            products.put(product.getId(), product);
+
+            CreateOrderRequest.OrderItemRequest item = new CreateOrderRequest.OrderItemRequest();
+            item.setProductId(product.getId());
+            item.setQuantity(i % 3 + 1);
+            itemRequests.add(item);
+        }
+
+        request = new CreateOrderRequest();
+        request.setItems(itemRequests);
+    }
+
+    @Benchmark
+    public Order create() {
+        // Every repository completes synchronously, so the future is already resolved
+        return orderService.create(userId, request).result();
+    }
+
+    private StockDecrementResult decrement(Map<UUID, Integer> quantities) {
+        List<StockShortage> shortages = new ArrayList<>();
+        quantities.forEach((id, quantity) -> {
+            Product product = products.get(id);
+            if (product.getStock() < quantity) {
+                shortages.add(new StockShortage(id, quantity, product.getStock()));
+            }
+        });
+        if (!shortages.isEmpty()) {
+            return new StockDecrementResult(List.of(), List.of(), shortages);
+        }
+
+        // Stock is left untouched so every benchmark iteration sees the same state
+        List<Product> updated = new ArrayList<>(quantities.size());
+        quantities.keySet().forEach(id -> updated.add(products.get(id)));
+        return new StockDecrementResult(updated, List.of(), List.of());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<UUID, Integer> quantities(Object quantities) {
+        return (Map<UUID, Integer>) quantities;
+    }
+
+    private static Order assignIds(Order order) {
+        // IDs and timestamps are assigned like the database would, without storing anything
+        LocalDateTime now = LocalDateTime.now();
+        order.setId(UUID.randomUUID());
+        order.setCreatedAt(now);
+        order.setUpdatedAt(now);
+        for (OrderItem item : order.getItems()) {
+            item.setId(UUID.randomUUID());
+            item.setOrderId(order.getId());
+        }
+        return order;
+    }
+}
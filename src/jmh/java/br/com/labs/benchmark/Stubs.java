@@ -0,0 +1,28 @@
+package br.com.labs.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Repository stubs for benchmarks: a JDK proxy that answers only the methods a benchmark registers and
+ * throws UnsupportedOperationException for every other one, so interfaces can grow without touching
+ * the benchmarks. Methods are keyed by name and parameter count, e.g. "decrementStock/2".
+ * Mockito is not used here because its dispatch costs more than the service code being measured.
+ */
+final class Stubs {
+
+    private Stubs() {
+    }
+
+    static <T> T of(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        Object stub = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Function<Object[], Object> answer = answers.get(method.getName() + "/" + method.getParameterCount());
+            if (answer == null) {
+                throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+            }
+            return answer.apply(args);
+        });
+        return type.cast(stub);
+    }
+}
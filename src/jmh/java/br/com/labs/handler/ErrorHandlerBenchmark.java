@@ -0,0 +1,59 @@
+package br.com.labs.handler;
+
+import br.com.labs.config.JsonConfig;
+import br.com.labs.exception.InsufficientStockException;
+import br.com.labs.exception.NotFoundException;
+import br.com.labs.exception.ValidationException;
+import br.com.labs.model.StockShortage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Status resolution and body encoding of the failure handler, for the failures the API returns most.
+ * Logging and the HTTP response itself are left out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorHandlerBenchmark {
+
+    @Param({"validation", "notFound", "insufficientStock", "unexpected"})
+    public String failureType;
+
+    private Throwable failure;
+
+    @Setup
+    public void setUp() {
+        JsonConfig.configure();
+
+        failure = switch (failureType) {
+            case "validation" -> new ValidationException("Item quantity must be greater than 0");
+            case "notFound" -> new NotFoundException("Product", UUID.randomUUID());
+            case "insufficientStock" -> new InsufficientStockException(List.of(
+                    new StockShortage(UUID.randomUUID(), 5, 2),
+                    new StockShortage(UUID.randomUUID(), 3, 0)));
+            default -> new IllegalStateException("Connection reset");
+        };
+    }
+
+    @Benchmark
+    public String handleFailure() {
+        return ErrorHandler.encodeFailure(failure, ErrorHandler.statusFor(failure));
+    }
+}
@@ -0,0 +1,114 @@
+package br.com.labs.repository.impl;
+
+import br.com.labs.model.Product;
+import io.vertx.pgclient.impl.RowImpl;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.desc.ColumnDescriptor;
+import io.vertx.sqlclient.impl.RowDesc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.sql.JDBCType;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of already decoded PostgreSQL rows into products, as done for every listing page.
+ * Rows are built with the driver's own row class, so column lookup by name is the real one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductRowMappingBenchmark {
+
+    private static final String[] COLUMNS = {
+            "id", "name", "description", "code", "price", "stock", "version",
+            "category_id", "created_at", "updated_at"
+    };
+
+    private static final int PAGE_SIZE = 20;
+
+    private ProductRepositoryPg repository;
+    private List<Row> rows;
+
+    @Setup
+    public void setUp() {
+        // mapRow never touches the pool
+        repository = new ProductRepositoryPg(null);
+
+        ColumnDescriptor[] descriptors = new ColumnDescriptor[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            descriptors[i] = column(COLUMNS[i]);
+        }
+        RowDesc desc = new RowDesc(descriptors) { };
+
+        rows = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            LocalDateTime now = LocalDateTime.now();
+            RowImpl row = new RowImpl(desc);
+            row.addValue(UUID.randomUUID());
+            row.addValue("Product " + i);
+            row.addValue("Benchmark product number " + i);
+            row.addValue("BENCH-" + i);
+            row.addValue(new BigDecimal("199.90"));
+            row.addValue(100);
+            row.addValue(1);
+            row.addValue(UUID.randomUUID());
+            row.addValue(now);
+            row.addValue(now);
+            rows.add(row);
+        }
+    }
+
+    @Benchmark
+    public Product mapRow() {
+        return repository.mapRow(rows.get(0));
+    }
+
+    @Benchmark
+    public void mapPage(Blackhole blackhole) {
+        for (Row row : rows) {
+            blackhole.consume(repository.mapRow(row));
+        }
+    }
+
+    private static ColumnDescriptor column(String name) {
+        return new ColumnDescriptor() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public boolean isArray() {
+                return false;
+            }
+
+            @Override
+            public String typeName() {
+                return null;
+            }
+
+            @Override
+            public JDBCType jdbcType() {
+                return JDBCType.OTHER;
+            }
+        };
+    }
+}
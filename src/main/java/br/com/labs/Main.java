@@ -1,5 +1,6 @@
 package br.com.labs;
 
+import br.com.labs.config.MetricsConfig;
 import io.vertx.core.Vertx;
 import io.vertx.core.VertxOptions;
 import org.slf4j.Logger;
@@ -12,7 +13,8 @@ public class Main {
     public static void main(String[] args) {
         logger.info("Starting 85Labs E-commerce API...");
 
-        VertxOptions options = new VertxOptions();
+        VertxOptions options = new VertxOptions()
+                .setMetricsOptions(MetricsConfig.create());
 
         Vertx vertx = Vertx.vertx(options);
 
@@ -1,7 +1,10 @@
 package br.com.labs;
 
 import br.com.labs.config.AppConfig;
+import br.com.labs.config.ApplicationContext;
+import br.com.labs.config.JsonConfig;
 import br.com.labs.verticle.HttpServerVerticle;
+import br.com.labs.verticle.ManagementServerVerticle;
 import io.vertx.config.ConfigRetriever;
 import io.vertx.config.ConfigRetrieverOptions;
 import io.vertx.config.ConfigStoreOptions;
@@ -17,8 +20,12 @@ public class MainVerticle extends AbstractVerticle {
 
     private static final Logger logger = LoggerFactory.getLogger(MainVerticle.class);
 
+    private ApplicationContext applicationContext;
+
     @Override
     public void start(Promise<Void> startPromise) {
+        JsonConfig.configure();
+
         loadConfig()
                 .compose(config -> {
                     AppConfig appConfig = new AppConfig(config);
@@ -26,9 +33,21 @@ public class MainVerticle extends AbstractVerticle {
                     // Run database migrations
                     runMigrations(appConfig);
 
-                    // Deploy HTTP Server Verticle
-                    DeploymentOptions options = new DeploymentOptions().setConfig(config);
-                    return vertx.deployVerticle(new HttpServerVerticle(), options);
+                    // Shared pool, repositories and services for all HTTP instances
+                    applicationContext = ApplicationContext.create(vertx, appConfig);
+
+                    return applicationContext.start().compose(v -> {
+                        // Deploy one HTTP Server Verticle per event loop
+                        int instances = appConfig.getServerInstances();
+                        DeploymentOptions options = new DeploymentOptions()
+                                .setConfig(config)
+                                .setInstances(instances);
+
+                        return vertx.deployVerticle(() -> new HttpServerVerticle(applicationContext), options)
+                                .onSuccess(id -> logger.info("HttpServerVerticle deployed with {} instances", instances))
+                                // Metrics are served apart from the API, on the management port only
+                                .compose(id -> vertx.deployVerticle(new ManagementServerVerticle(appConfig)));
+                    });
                 })
                 .onSuccess(id -> {
                     logger.info("All verticles deployed successfully");
@@ -40,6 +59,20 @@ public class MainVerticle extends AbstractVerticle {
                 });
     }
 
+    @Override
+    public void stop(Promise<Void> stopPromise) {
+        if (applicationContext != null) {
+            applicationContext.close()
+                    .onSuccess(v -> {
+                        logger.info("PostgreSQL connection pool closed");
+                        stopPromise.complete();
+                    })
+                    .onFailure(stopPromise::fail);
+        } else {
+            stopPromise.complete();
+        }
+    }
+
     private io.vertx.core.Future<JsonObject> loadConfig() {
         ConfigStoreOptions fileStore = new ConfigStoreOptions()
                 .setType("file")
@@ -0,0 +1,102 @@
+package br.com.labs.cache;
+
+import br.com.labs.model.Category;
+import br.com.labs.repository.CategoryRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.vertx.core.Future;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * CategoryRepository decorator that keeps categories and the full category list in memory.
+ * Categories are few and rarely change, so any change drops the cached list as a whole.
+ * Changes made by other nodes arrive through {@link ChangeNotificationListener}.
+ */
+public class CachingCategoryRepository implements CategoryRepository, EntityChangeListener {
+
+    public static final String CACHE_NAME = "categories";
+    private static final String ALL = "all";
+
+    private final CategoryRepository delegate;
+    private final Cache<UUID, Category> byId;
+    private final Cache<String, List<Category>> lists;
+
+    public CachingCategoryRepository(CategoryRepository delegate, long maxSize, Duration ttl,
+                                     MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.lists = Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(ttl)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, CACHE_NAME);
+    }
+
+    @Override
+    public Future<Category> save(Category category) {
+        return delegate.save(category)
+                .onSuccess(saved -> {
+                    lists.invalidateAll();
+                    byId.put(saved.getId(), copy(saved));
+                });
+    }
+
+    @Override
+    public Future<Optional<Category>> findById(UUID id) {
+        Category cached = byId.getIfPresent(id);
+        if (cached != null) {
+            return Future.succeededFuture(Optional.of(copy(cached)));
+        }
+        return delegate.findById(id)
+                .onSuccess(found -> found.ifPresent(category -> byId.put(id, copy(category))));
+    }
+
+    @Override
+    public Future<List<Category>> findAll() {
+        List<Category> cached = lists.getIfPresent(ALL);
+        if (cached != null) {
+            return Future.succeededFuture(cached.stream().map(CachingCategoryRepository::copy).toList());
+        }
+        return delegate.findAll()
+                .onSuccess(categories -> lists.put(ALL, categories.stream().map(CachingCategoryRepository::copy).toList()));
+    }
+
+    @Override
+    public Future<Boolean> existsById(UUID id) {
+        if (byId.getIfPresent(id) != null) {
+            return Future.succeededFuture(true);
+        }
+        return delegate.existsById(id);
+    }
+
+    @Override
+    public void onChange(EntityChange change) {
+        lists.invalidateAll();
+        byId.invalidate(change.id());
+    }
+
+    @Override
+    public void invalidateAll() {
+        lists.invalidateAll();
+        byId.invalidateAll();
+    }
+
+    private static Category copy(Category category) {
+        return Category.builder()
+                .id(category.getId())
+                .name(category.getName())
+                .description(category.getDescription())
+                .createdAt(category.getCreatedAt())
+                .build();
+    }
+}
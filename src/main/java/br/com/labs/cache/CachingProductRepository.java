@@ -0,0 +1,295 @@
+package br.com.labs.cache;
+
+import br.com.labs.dto.request.FieldSet;
+import br.com.labs.dto.request.PageCursor;
+import br.com.labs.dto.request.SearchCursor;
+import br.com.labs.model.Product;
+import br.com.labs.model.ProductSuggestion;
+import br.com.labs.model.ProductVersion;
+import br.com.labs.repository.PagedResult;
+import br.com.labs.repository.ProductRepository;
+import br.com.labs.repository.ProductSearchHit;
+import br.com.labs.repository.ProductUpsertResult;
+import br.com.labs.repository.StockDecrementResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.vertx.core.Future;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.sqlclient.SqlClient;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.Transaction;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * ProductRepository decorator that keeps hot products in memory (Caffeine, W-TinyLFU eviction).
+ * Only lookups by ID are served from the cache; listings, transactional reads and version checks for
+ * conditional requests always go to the database.
+ *
+ * Writes refresh the entry with the row returned by the database, and an entry is only replaced
+ * by one with the same or a higher version, so a slow read can never overwrite a newer write.
+ * Deletes are not versioned, so deleted IDs are remembered for one TTL and never cached again.
+ * Stock decrements and imports made inside a transaction are applied once it commits; statements that
+ * change stock elsewhere (flushes, cancellations) {@link #evict} the products after they commit.
+ * Changes made by other nodes arrive through {@link ChangeNotificationListener}.
+ * Products are mutable, so the cache stores and hands out copies.
+ */
+public class CachingProductRepository implements ProductRepository, EntityChangeListener {
+
+    public static final String CACHE_NAME = "products";
+
+    private final ProductRepository delegate;
+    private final Cache<UUID, Product> cache;
+    private final Cache<UUID, Boolean> deleted;
+
+    public CachingProductRepository(ProductRepository delegate, long maxSize, Duration ttl,
+                                    MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        // A lookup that read the row before the delete finishes well within one TTL
+        this.deleted = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    public Future<Optional<Product>> findById(UUID id) {
+        Product cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Future.succeededFuture(Optional.of(copy(cached)));
+        }
+        return delegate.findById(id)
+                .onSuccess(found -> found.ifPresent(this::refresh));
+    }
+
+    @Override
+    public Future<Optional<ProductVersion>> findVersion(UUID id) {
+        // Revalidation must see the committed version, which a cached entry may be behind;
+        // an entry found to be stale is dropped so the full response that follows is fresh too
+        return delegate.findVersion(id)
+                .onSuccess(found -> cache.asMap().computeIfPresent(id, (key, current) ->
+                        found.isEmpty() || isBehind(current, found.get()) ? null : current));
+    }
+
+    @Override
+    public Future<Product> save(Product product) {
+        return delegate.save(product).onSuccess(this::refresh);
+    }
+
+    @Override
+    public Future<Optional<Product>> update(Product product) {
+        return delegate.update(product)
+                .onSuccess(updated -> {
+                    if (updated.isPresent()) {
+                        refresh(updated.get());
+                    } else {
+                        // The cached version was behind the database
+                        cache.invalidate(product.getId());
+                    }
+                });
+    }
+
+    @Override
+    public Future<ProductUpsertResult> upsertByCode(SqlClient client, List<Product> products) {
+        return delegate.upsertByCode(client, products)
+                // An import touches far more products than the cache holds: update cached entries, add none
+                .onSuccess(result -> afterCommit(client, () -> result.updated().forEach(updated -> cache.asMap()
+                        .computeIfPresent(updated.getId(),
+                                (id, current) -> isOlder(updated, current) ? current : copy(updated)))));
+    }
+
+    @Override
+    public Future<Boolean> delete(UUID id) {
+        return delegate.delete(id).onSuccess(removed -> forget(id));
+    }
+
+    @Override
+    public Future<Optional<Product>> decrementStock(UUID productId, int quantity, int expectedVersion) {
+        return delegate.decrementStock(productId, quantity, expectedVersion)
+                .onSuccess(updated -> updated.ifPresent(this::refresh));
+    }
+
+    @Override
+    public Future<StockDecrementResult> decrementStock(SqlClient client, Map<UUID, Integer> quantities) {
+        return delegate.decrementStock(client, quantities)
+                .onSuccess(result -> afterCommit(client, () -> result.updated().forEach(this::refresh)));
+    }
+
+    @Override
+    public void evict(Collection<UUID> ids) {
+        cache.invalidateAll(ids);
+    }
+
+    @Override
+    public Future<List<Product>> findByIds(List<UUID> ids) {
+        List<Product> found = new ArrayList<>(ids.size());
+        List<UUID> uncached = new ArrayList<>();
+        for (UUID id : ids) {
+            Product cached = cache.getIfPresent(id);
+            if (cached != null) {
+                found.add(copy(cached));
+            } else {
+                uncached.add(id);
+            }
+        }
+        if (uncached.isEmpty()) {
+            return Future.succeededFuture(found);
+        }
+
+        // Only the IDs not in the cache go to the database, still in one query
+        return delegate.findByIds(uncached)
+                .map(loaded -> {
+                    loaded.forEach(this::refresh);
+                    found.addAll(loaded);
+                    return found;
+                });
+    }
+
+    @Override
+    public Future<List<Product>> findByIds(SqlClient client, List<UUID> ids) {
+        return delegate.findByIds(client, ids);
+    }
+
+    @Override
+    public Future<Optional<Product>> findByCode(String code) {
+        return delegate.findByCode(code);
+    }
+
+    @Override
+    public Future<List<Product>> findAll(int page, int size, FieldSet fields) {
+        return delegate.findAll(page, size, fields);
+    }
+
+    @Override
+    public Future<List<Product>> findByCategory(UUID categoryId, int page, int size) {
+        return delegate.findByCategory(categoryId, page, size);
+    }
+
+    @Override
+    public Future<List<Product>> findAllAfter(PageCursor cursor, int limit, FieldSet fields) {
+        return delegate.findAllAfter(cursor, limit, fields);
+    }
+
+    @Override
+    public Future<List<ProductSearchHit>> search(String query, SearchCursor cursor, int limit, FieldSet fields) {
+        return delegate.search(query, cursor, limit, fields);
+    }
+
+    @Override
+    public Future<Void> streamSuggestions(Consumer<ProductSuggestion> consumer) {
+        return delegate.streamSuggestions(consumer);
+    }
+
+    @Override
+    public Future<Void> streamAll(FieldSet fields, Function<ReadStream<Product>, Future<Void>> consumer) {
+        return delegate.streamAll(fields, consumer);
+    }
+
+    @Override
+    public Future<Long> count() {
+        return delegate.count();
+    }
+
+    @Override
+    public Future<PagedResult<Product>> findAllWithCount(int page, int size, FieldSet fields) {
+        return delegate.findAllWithCount(page, size, fields);
+    }
+
+    @Override
+    public Future<PagedResult<Product>> findAllWithEstimatedCount(int page, int size, FieldSet fields) {
+        return delegate.findAllWithEstimatedCount(page, size, fields);
+    }
+
+    @Override
+    public Future<Boolean> existsByCode(String code) {
+        return delegate.existsByCode(code);
+    }
+
+    @Override
+    public void onChange(EntityChange change) {
+        if (change.isDelete()) {
+            forget(change.id());
+            return;
+        }
+        if (change.version() == null) {
+            cache.invalidate(change.id());
+            return;
+        }
+        // Our own writes come back too; keep the entry if it already has this version
+        cache.asMap().computeIfPresent(change.id(),
+                (id, current) -> current.getVersion() != null && current.getVersion() >= change.version()
+                        ? current
+                        : null);
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private void refresh(Product product) {
+        Product candidate = copy(product);
+        // Checked under the entry's lock, which forget() also takes after recording the delete
+        cache.asMap().compute(product.getId(), (id, current) -> {
+            if (deleted.getIfPresent(id) != null) {
+                return current;
+            }
+            return current != null && isOlder(candidate, current) ? current : candidate;
+        });
+    }
+
+    private void forget(UUID id) {
+        deleted.put(id, Boolean.TRUE);
+        cache.invalidate(id);
+    }
+
+    private static boolean isBehind(Product cached, ProductVersion committed) {
+        return cached.getVersion() == null || cached.getVersion() < committed.version();
+    }
+
+    private static boolean isOlder(Product candidate, Product current) {
+        return candidate.getVersion() != null && current.getVersion() != null
+                && candidate.getVersion() < current.getVersion();
+    }
+
+    private static void afterCommit(SqlClient client, Runnable action) {
+        Transaction tx = client instanceof SqlConnection conn ? conn.transaction() : null;
+        if (tx == null) {
+            action.run();
+            return;
+        }
+        // On rollback nothing changed in the database, so the cached rows are still valid
+        tx.completion().onSuccess(v -> action.run());
+    }
+
+    private static Product copy(Product product) {
+        return Product.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .description(product.getDescription())
+                .code(product.getCode())
+                .price(product.getPrice())
+                .stock(product.getStock())
+                .version(product.getVersion())
+                .categoryId(product.getCategoryId())
+                .createdAt(product.getCreatedAt())
+                .updatedAt(product.getUpdatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package br.com.labs.cache;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.pgclient.pubsub.PgSubscriber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Listens on the entity_changes channel over a dedicated connection and forwards
+ * each changed row to the caches registered for that entity.
+ *
+ * PostgreSQL does not replay notifications sent while a listener was disconnected,
+ * so every (re)subscription flushes all registered caches before new changes arrive.
+ */
+public class ChangeNotificationListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeNotificationListener.class);
+
+    public static final String CHANNEL = "entity_changes";
+    private static final long MAX_RECONNECT_DELAY_MS = 30_000;
+
+    private final PgSubscriber subscriber;
+    private final Map<String, List<EntityChangeListener>> listeners = new ConcurrentHashMap<>();
+
+    public ChangeNotificationListener(Vertx vertx, PgConnectOptions connectOptions) {
+        this.subscriber = PgSubscriber.subscriber(vertx, connectOptions)
+                .reconnectPolicy(ChangeNotificationListener::reconnectDelay);
+
+        subscriber.channel(CHANNEL)
+                .subscribeHandler(v -> {
+                    logger.info("Listening for entity changes on channel {}", CHANNEL);
+                    invalidateAll();
+                })
+                .handler(this::dispatch);
+
+        subscriber.closeHandler(v -> {
+            logger.warn("Entity change listener closed; caches will rely on TTL until restart");
+            invalidateAll();
+        });
+    }
+
+    public void register(String entity, EntityChangeListener listener) {
+        listeners.computeIfAbsent(entity, k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    public Future<Void> start() {
+        return subscriber.connect();
+    }
+
+    public Future<Void> close() {
+        return subscriber.close();
+    }
+
+    void dispatch(String payload) {
+        List<EntityChange> changes;
+        try {
+            changes = EntityChange.listFromJson(new JsonObject(payload));
+        } catch (DecodeException | IllegalArgumentException | NullPointerException | ClassCastException e) {
+            logger.warn("Ignoring malformed entity change notification: {}", payload);
+            return;
+        }
+
+        for (EntityChange change : changes) {
+            for (EntityChangeListener listener : listeners.getOrDefault(change.entity(), List.of())) {
+                listener.onChange(change);
+            }
+        }
+    }
+
+    private void invalidateAll() {
+        listeners.values().forEach(list -> list.forEach(EntityChangeListener::invalidateAll));
+    }
+
+    // Exponential backoff, retrying forever: 500 ms, 1 s, 2 s ... capped at 30 s
+    private static Long reconnectDelay(int retries) {
+        return Math.min(MAX_RECONNECT_DELAY_MS, 500L << Math.min(retries, 6));
+    }
+}
@@ -0,0 +1,45 @@
+package br.com.labs.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.vertx.core.Future;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * In-memory row counts used by the CACHED count strategy.
+ * Counts are adjusted incrementally on insert/delete and reloaded from the database
+ * once they expire, which also corrects any drift caused by writes from other nodes.
+ */
+public class CountCache<K> {
+
+    private final Cache<K, Long> counts;
+
+    public CountCache(long maxEntries, Duration ttl) {
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public Future<Long> get(K key, Supplier<Future<Long>> loader) {
+        Long cached = counts.getIfPresent(key);
+        if (cached != null) {
+            return Future.succeededFuture(cached);
+        }
+        return loader.get().onSuccess(count -> counts.put(key, count));
+    }
+
+    public void increment(K key) {
+        counts.asMap().computeIfPresent(key, (k, count) -> count + 1);
+    }
+
+    public void add(K key, long delta) {
+        counts.asMap().computeIfPresent(key, (k, count) -> Math.max(0, count + delta));
+    }
+
+    public void decrement(K key) {
+        counts.asMap().computeIfPresent(key, (k, count) -> Math.max(0, count - 1));
+    }
+}
@@ -0,0 +1,43 @@
+package br.com.labs.cache;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A committed change to a cached table, as published by the notify_entity_changes triggers.
+ *
+ * @param entity the table name, e.g. "products"
+ * @param operation INSERT, UPDATE or DELETE
+ * @param id the ID of the changed row
+ * @param version the row version after the change, or null for tables without one
+ */
+public record EntityChange(String entity, String operation, UUID id, Integer version) {
+
+    /**
+     * Expands a notification payload, which carries one entry per changed row of the statement.
+     */
+    public static List<EntityChange> listFromJson(JsonObject json) {
+        String entity = json.getString("entity");
+        String operation = json.getString("op");
+        JsonArray rows = json.getJsonArray("rows");
+
+        List<EntityChange> changes = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            JsonObject row = rows.getJsonObject(i);
+            changes.add(new EntityChange(
+                    entity,
+                    operation,
+                    UUID.fromString(row.getString("id")),
+                    row.getInteger("version")));
+        }
+        return changes;
+    }
+
+    public boolean isDelete() {
+        return "DELETE".equals(operation);
+    }
+}
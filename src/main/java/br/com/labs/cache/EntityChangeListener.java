@@ -0,0 +1,18 @@
+package br.com.labs.cache;
+
+/**
+ * Implemented by in-process caches that must follow changes made by other nodes.
+ */
+public interface EntityChangeListener {
+
+    /**
+     * Called for every committed change to the entity this listener is registered for.
+     */
+    void onChange(EntityChange change);
+
+    /**
+     * Called when notifications may have been missed, e.g. after the listening connection
+     * was lost. Implementations must drop everything they hold.
+     */
+    void invalidateAll();
+}
@@ -1,7 +1,12 @@
 package br.com.labs.config;
 
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
 public class AppConfig {
 
     private final JsonObject config;
@@ -19,6 +24,21 @@ public class AppConfig {
         return config.getJsonObject("server", new JsonObject()).getString("host", "0.0.0.0");
     }
 
+    public int getServerInstances() {
+        int instances = config.getJsonObject("server", new JsonObject())
+                .getInteger("instances", Runtime.getRuntime().availableProcessors());
+        return Math.max(1, instances);
+    }
+
+    // Management server (Prometheus scrape), kept off the public port
+    public String getManagementHost() {
+        return config.getJsonObject("management", new JsonObject()).getString("host", "127.0.0.1");
+    }
+
+    public int getManagementPort() {
+        return config.getJsonObject("management", new JsonObject()).getInteger("port", 8081);
+    }
+
     // Database config
     public String getDbHost() {
         return config.getJsonObject("database", new JsonObject()).getString("host", "localhost");
@@ -62,6 +82,195 @@ public class AppConfig {
         return config.getJsonObject("jwt", new JsonObject()).getInteger("expirationMinutes", 60);
     }
 
+    public boolean isJwtCacheEnabled() {
+        return config.getJsonObject("jwt", new JsonObject()).getBoolean("cacheEnabled", true);
+    }
+
+    public long getJwtCacheMaxSize() {
+        return config.getJsonObject("jwt", new JsonObject()).getLong("cacheMaxSize", 10_000L);
+    }
+
+    public List<UUID> getJwtFulfilmentUsers() {
+        JsonArray users = config.getJsonObject("jwt", new JsonObject())
+                .getJsonArray("fulfilmentUsers", new JsonArray());
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            ids.add(UUID.fromString(users.getString(i)));
+        }
+        return ids;
+    }
+
+    // Password hashing config
+    public int getPasswordHashingPoolSize() {
+        return config.getJsonObject("passwordHashing", new JsonObject())
+                .getInteger("poolSize", Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getPasswordHashingMaxQueueSize() {
+        return config.getJsonObject("passwordHashing", new JsonObject()).getInteger("maxQueueSize", 100);
+    }
+
+    // Pagination config
+    public CountStrategy getCountStrategy(String endpoint) {
+        String strategy = config.getJsonObject("pagination", new JsonObject())
+                .getJsonObject(endpoint, new JsonObject())
+                .getString("countStrategy", CountStrategy.EXACT.name());
+        return CountStrategy.valueOf(strategy.toUpperCase());
+    }
+
+    public int getCountCacheTtlSeconds() {
+        return config.getJsonObject("pagination", new JsonObject()).getInteger("countCacheTtlSeconds", 60);
+    }
+
+    // Product cache config
+    public boolean isProductCacheEnabled() {
+        return config.getJsonObject("productCache", new JsonObject()).getBoolean("enabled", true);
+    }
+
+    public long getProductCacheMaxSize() {
+        return config.getJsonObject("productCache", new JsonObject()).getLong("maxSize", 10_000L);
+    }
+
+    public int getProductCacheTtlSeconds() {
+        return config.getJsonObject("productCache", new JsonObject()).getInteger("ttlSeconds", 300);
+    }
+
+    // Category cache config
+    public boolean isCategoryCacheEnabled() {
+        return config.getJsonObject("categoryCache", new JsonObject()).getBoolean("enabled", true);
+    }
+
+    public long getCategoryCacheMaxSize() {
+        return config.getJsonObject("categoryCache", new JsonObject()).getLong("maxSize", 1_000L);
+    }
+
+    public int getCategoryCacheTtlSeconds() {
+        return config.getJsonObject("categoryCache", new JsonObject()).getInteger("ttlSeconds", 600);
+    }
+
+    // Cross-node cache invalidation config
+    public boolean isChangeNotificationsEnabled() {
+        return config.getJsonObject("changeNotifications", new JsonObject()).getBoolean("enabled", true);
+    }
+
+    // Stock reservation engine config
+    public boolean isStockReservationEnabled() {
+        return config.getJsonObject("stockReservation", new JsonObject()).getBoolean("enabled", false);
+    }
+
+    public int getStockReservationShards() {
+        return Math.max(1, config.getJsonObject("stockReservation", new JsonObject()).getInteger("shards", 4));
+    }
+
+    public long getStockReservationFlushIntervalMs() {
+        return config.getJsonObject("stockReservation", new JsonObject()).getLong("flushIntervalMs", 100L);
+    }
+
+    public List<UUID> getStockReservationProducts() {
+        JsonArray products = config.getJsonObject("stockReservation", new JsonObject())
+                .getJsonArray("products", new JsonArray());
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < products.size(); i++) {
+            ids.add(UUID.fromString(products.getString(i)));
+        }
+        return ids;
+    }
+
+    // Product typeahead index config
+    public boolean isSuggestEnabled() {
+        return config.getJsonObject("suggest", new JsonObject()).getBoolean("enabled", true);
+    }
+
+    public long getSuggestReloadIntervalMs() {
+        return config.getJsonObject("suggest", new JsonObject()).getLong("reloadIntervalSeconds", 600L) * 1000;
+    }
+
+    // Idempotency-Key retention for POST /orders
+    public long getIdempotencyKeyRetentionHours() {
+        return config.getJsonObject("idempotency", new JsonObject()).getLong("retentionHours", 24L);
+    }
+
+    public long getIdempotencyKeyPurgeIntervalMs() {
+        return config.getJsonObject("idempotency", new JsonObject()).getLong("purgeIntervalMinutes", 60L) * 60_000;
+    }
+
+    // Pending order expiry
+    public boolean isOrderExpiryEnabled() {
+        return config.getJsonObject("orderExpiry", new JsonObject()).getBoolean("enabled", true);
+    }
+
+    public long getOrderPendingTtlMinutes() {
+        return config.getJsonObject("orderExpiry", new JsonObject()).getLong("pendingTtlMinutes", 30L);
+    }
+
+    public long getOrderExpiryIntervalMs() {
+        return config.getJsonObject("orderExpiry", new JsonObject()).getLong("intervalSeconds", 60L) * 1000;
+    }
+
+    public int getOrderExpiryBatchSize() {
+        return config.getJsonObject("orderExpiry", new JsonObject()).getInteger("batchSize", 100);
+    }
+
+    public boolean isOrderIntakeEnabled() {
+        return config.getJsonObject("orderIntake", new JsonObject()).getBoolean("enabled", true);
+    }
+
+    public int getOrderIntakeInstances() {
+        return config.getJsonObject("orderIntake", new JsonObject()).getInteger("instances", 2);
+    }
+
+    public int getOrderIntakeBatchSize() {
+        return config.getJsonObject("orderIntake", new JsonObject()).getInteger("batchSize", 50);
+    }
+
+    public long getOrderIntakePollIntervalMs() {
+        return config.getJsonObject("orderIntake", new JsonObject()).getLong("pollIntervalMs", 1000L);
+    }
+
+    public long getOrderIntakeLeaseSeconds() {
+        return config.getJsonObject("orderIntake", new JsonObject()).getLong("leaseSeconds", 30L);
+    }
+
+    public int getOrderIntakeMaxAttempts() {
+        return config.getJsonObject("orderIntake", new JsonObject()).getInteger("maxAttempts", 5);
+    }
+
+    public long getOrderIntakeFailedRetentionHours() {
+        return config.getJsonObject("orderIntake", new JsonObject()).getLong("failedRetentionHours", 24L);
+    }
+
+    public boolean isOutboxRelayEnabled() {
+        return config.getJsonObject("outbox", new JsonObject()).getBoolean("enabled", true);
+    }
+
+    public String getOutboxSink() {
+        return config.getJsonObject("outbox", new JsonObject()).getString("sink", "eventbus");
+    }
+
+    public int getOutboxRelayInstances() {
+        return config.getJsonObject("outbox", new JsonObject()).getInteger("instances", 1);
+    }
+
+    public int getOutboxBatchSize() {
+        return config.getJsonObject("outbox", new JsonObject()).getInteger("batchSize", 100);
+    }
+
+    public long getOutboxPollIntervalMs() {
+        return config.getJsonObject("outbox", new JsonObject()).getLong("pollIntervalMs", 500L);
+    }
+
+    public String getOutboxFilePath() {
+        return config.getJsonObject("outbox", new JsonObject()).getString("filePath", "outbox-events.ndjson");
+    }
+
+    public String getOutboxWebhookUrl() {
+        return config.getJsonObject("outbox", new JsonObject()).getString("webhookUrl");
+    }
+
+    public long getOutboxWebhookTimeoutMs() {
+        return config.getJsonObject("outbox", new JsonObject()).getLong("webhookTimeoutMs", 5000L);
+    }
+
     public JsonObject getRawConfig() {
         return config;
     }
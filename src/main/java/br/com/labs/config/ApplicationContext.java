@@ -0,0 +1,392 @@
+package br.com.labs.config;
+
+import br.com.labs.cache.CachingCategoryRepository;
+import br.com.labs.cache.CachingProductRepository;
+import br.com.labs.cache.ChangeNotificationListener;
+import br.com.labs.cache.CountCache;
+import br.com.labs.cache.EntityChangeListener;
+import br.com.labs.repository.CategoryRepository;
+import br.com.labs.intake.OrderIntakeVerticle;
+import br.com.labs.outbox.EventBusOutboxSink;
+import br.com.labs.outbox.FileOutboxSink;
+import br.com.labs.metrics.MeteredPool;
+import br.com.labs.outbox.OutboxRelayVerticle;
+import br.com.labs.outbox.OutboxSink;
+import br.com.labs.outbox.WebhookOutboxSink;
+import br.com.labs.repository.IdempotencyKeyRepository;
+import br.com.labs.repository.OrderRequestRepository;
+import br.com.labs.repository.ProductRepository;
+import br.com.labs.repository.TransactionManager;
+import br.com.labs.repository.StockReservationRepository;
+import br.com.labs.repository.impl.*;
+import br.com.labs.reservation.EventBusStockReservations;
+import br.com.labs.reservation.StockReservationVerticle;
+import br.com.labs.reservation.StockReservations;
+import br.com.labs.security.JwtProvider;
+import br.com.labs.security.PasswordEncoder;
+import br.com.labs.service.AuthService;
+import br.com.labs.service.CategoryService;
+import br.com.labs.service.OrderService;
+import br.com.labs.service.ProductService;
+import br.com.labs.service.impl.*;
+import br.com.labs.suggest.ProductSuggestIndex;
+import br.com.labs.suggest.ProductSuggestions;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.PoolOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Holds the components shared by every HttpServerVerticle instance:
+ * a single named PgPool and one set of repositories and services.
+ * Services are stateless, so they can safely be used from any event loop.
+ */
+public class ApplicationContext {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApplicationContext.class);
+
+    public static final String POOL_NAME = "ecommerce-pg-pool";
+    private static final int COUNT_CACHE_MAX_USERS = 100_000;
+
+    private final AppConfig config;
+    private final MeterRegistry meterRegistry;
+    private final PgConnectOptions connectOptions;
+    private final Pool pgPool;
+    private final ChangeNotificationListener changeListener;
+    private final Vertx vertx;
+    private final ProductRepository productRepository;
+    private final StockReservationRepository stockReservationRepository;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final OrderRequestRepository orderRequestRepository;
+    private final TransactionManager transactionManager;
+    private final StockReservations stockReservations;
+    private final ProductSuggestIndex suggestIndex;
+    private final PendingOrderSweeper orderSweeper;
+    private final PasswordEncoder passwordEncoder;
+    private final JwtProvider jwtProvider;
+    private final AuthService authService;
+    private final CategoryService categoryService;
+    private final ProductService productService;
+    private final OrderService orderService;
+    private long idempotencyPurgeTimer = -1;
+    private long orderRequestPurgeTimer = -1;
+
+    private ApplicationContext(Vertx vertx, AppConfig config) {
+        this.vertx = vertx;
+        this.config = config;
+        this.meterRegistry = Metrics.globalRegistry;
+
+        // Initialize PostgreSQL connection pool
+        this.connectOptions = createConnectOptions(config);
+        this.pgPool = createPgPool(vertx, config);
+        registerPoolGauges(config);
+
+        // Dedicated LISTEN connection that keeps local caches in sync with other nodes
+        this.changeListener = config.isChangeNotificationsEnabled()
+                ? new ChangeNotificationListener(vertx, connectOptions)
+                : null;
+
+        // Initialize components
+        this.passwordEncoder = new PasswordEncoder(vertx,
+                config.getPasswordHashingPoolSize(),
+                config.getPasswordHashingMaxQueueSize(),
+                meterRegistry);
+        this.jwtProvider = new JwtProvider(vertx, config, meterRegistry);
+
+        // Initialize repositories
+        UserRepositoryPg userRepository = new UserRepositoryPg(pgPool);
+        CategoryRepository categoryRepository = createCategoryRepository(config);
+        this.productRepository = createProductRepository(config);
+        OrderRepositoryPg orderRepository = new OrderRepositoryPg(pgPool);
+        this.transactionManager = new PgTransactionManager(pgPool, meterRegistry);
+        this.stockReservationRepository = new StockReservationRepositoryPg(pgPool);
+        this.idempotencyKeyRepository = new IdempotencyKeyRepositoryPg(pgPool);
+        this.orderRequestRepository = new OrderRequestRepositoryPg(pgPool);
+
+        // In-memory stock for designated hot products, owned by StockReservationVerticle shards
+        this.stockReservations = config.isStockReservationEnabled()
+                ? new EventBusStockReservations(vertx.eventBus(), config.getStockReservationShards(),
+                        Set.copyOf(config.getStockReservationProducts()))
+                : StockReservations.disabled();
+
+        // Typeahead index kept in memory on every node
+        this.suggestIndex = config.isSuggestEnabled()
+                ? new ProductSuggestIndex(vertx, productRepository, config.getSuggestReloadIntervalMs(), meterRegistry)
+                : null;
+        ProductSuggestions productSuggestions = suggestIndex != null ? suggestIndex : ProductSuggestions.disabled();
+
+        // Row counts for the CACHED count strategy
+        Duration countTtl = Duration.ofSeconds(config.getCountCacheTtlSeconds());
+        CountCache<String> productCounts = new CountCache<>(1, countTtl);
+        CountCache<UUID> orderCounts = new CountCache<>(COUNT_CACHE_MAX_USERS, countTtl);
+
+        // Initialize services
+        this.authService = new AuthServiceImpl(userRepository, passwordEncoder, jwtProvider);
+        this.categoryService = new CategoryServiceImpl(categoryRepository);
+        this.productService = new ProductServiceImpl(productRepository, categoryRepository,
+                config.getCountStrategy("products"), productCounts, stockReservations,
+                productSuggestions, transactionManager);
+        this.orderService = new OrderServiceImpl(orderRepository, productRepository, transactionManager,
+                config.getCountStrategy("orders"), orderCounts, stockReservations, idempotencyKeyRepository,
+                orderRequestRepository, meterRegistry);
+
+        // Cancels abandoned PENDING orders and puts their stock back
+        this.orderSweeper = config.isOrderExpiryEnabled()
+                ? new PendingOrderSweeper(vertx, orderRepository, productRepository, transactionManager,
+                        stockReservations, Duration.ofMinutes(config.getOrderPendingTtlMinutes()),
+                        config.getOrderExpiryIntervalMs(), config.getOrderExpiryBatchSize(), meterRegistry)
+                : null;
+    }
+
+    public static ApplicationContext create(Vertx vertx, AppConfig config) {
+        return new ApplicationContext(vertx, config);
+    }
+
+    /**
+     * Starts the background components that need an open connection.
+     */
+    public Future<Void> start() {
+        Future<Void> listening = changeListener != null ? changeListener.start() : Future.succeededFuture();
+        return listening
+                .compose(v -> deployStockReservationShards())
+                // After the shards, which the workers reserve hot products from
+                .compose(v -> deployOrderIntakeWorkers())
+                .compose(v -> deployOutboxRelays())
+                .onSuccess(v -> {
+                    // Loaded in the background: until then suggestions are empty, which is no reason to delay serving
+                    if (suggestIndex != null) {
+                        suggestIndex.start();
+                    }
+                    scheduleIdempotencyKeyPurge();
+                    scheduleOrderRequestPurge();
+                    // Started after the shards, so released stock of hot products reaches a running shard
+                    if (orderSweeper != null) {
+                        orderSweeper.start();
+                    }
+                });
+    }
+
+    // Every node runs the purge; the DELETE is idempotent, so overlapping runs are harmless
+    private void scheduleIdempotencyKeyPurge() {
+        Duration retention = Duration.ofHours(config.getIdempotencyKeyRetentionHours());
+        idempotencyPurgeTimer = vertx.setPeriodic(config.getIdempotencyKeyPurgeIntervalMs(), id ->
+                idempotencyKeyRepository.deleteCreatedBefore(LocalDateTime.now().minus(retention))
+                        .onSuccess(deleted -> logger.debug("Purged {} expired idempotency keys", deleted))
+                        .onFailure(err -> logger.warn("Failed to purge expired idempotency keys", err)));
+    }
+
+    // Failed requests are kept for a while so clients polling them learn why
+    private void scheduleOrderRequestPurge() {
+        if (!config.isOrderIntakeEnabled()) {
+            return;
+        }
+        Duration retention = Duration.ofHours(config.getOrderIntakeFailedRetentionHours());
+        orderRequestPurgeTimer = vertx.setPeriodic(config.getIdempotencyKeyPurgeIntervalMs(), id ->
+                orderRequestRepository.deleteFailedBefore(LocalDateTime.now().minus(retention))
+                        .onSuccess(deleted -> logger.debug("Purged {} failed order requests", deleted))
+                        .onFailure(err -> logger.warn("Failed to purge failed order requests", err)));
+    }
+
+    private Future<Void> deployOrderIntakeWorkers() {
+        if (!config.isOrderIntakeEnabled()) {
+            return Future.succeededFuture();
+        }
+
+        int instances = config.getOrderIntakeInstances();
+        Duration lease = Duration.ofSeconds(config.getOrderIntakeLeaseSeconds());
+        return vertx.deployVerticle(() -> new OrderIntakeVerticle(orderService, orderRequestRepository,
+                        config.getOrderIntakeBatchSize(), config.getOrderIntakePollIntervalMs(), lease,
+                        config.getOrderIntakeMaxAttempts(), meterRegistry),
+                        new DeploymentOptions().setInstances(instances))
+                .onSuccess(id -> logger.info("OrderIntakeVerticle deployed with {} instances", instances))
+                .mapEmpty();
+    }
+
+    // The events are written whatever this says; with the relay disabled on every node the outbox only grows
+    private Future<Void> deployOutboxRelays() {
+        if (!config.isOutboxRelayEnabled()) {
+            return Future.succeededFuture();
+        }
+
+        Function<Vertx, OutboxSink> sinkFactory = createOutboxSinkFactory(config);
+        OutboxRepositoryPg outboxRepository = new OutboxRepositoryPg();
+        int instances = config.getOutboxRelayInstances();
+        return vertx.deployVerticle(() -> new OutboxRelayVerticle(outboxRepository, transactionManager,
+                        sinkFactory, config.getOutboxBatchSize(), config.getOutboxPollIntervalMs(), meterRegistry),
+                        new DeploymentOptions().setInstances(instances))
+                .onSuccess(id -> logger.info("OutboxRelayVerticle deployed with {} instances, publishing to {}",
+                        instances, config.getOutboxSink()))
+                .mapEmpty();
+    }
+
+    private static Function<Vertx, OutboxSink> createOutboxSinkFactory(AppConfig config) {
+        return switch (config.getOutboxSink()) {
+            case "eventbus" -> v -> new EventBusOutboxSink(v.eventBus());
+            case "file" -> v -> new FileOutboxSink(v, config.getOutboxFilePath());
+            case "webhook" -> {
+                String url = config.getOutboxWebhookUrl();
+                if (url == null) {
+                    throw new IllegalArgumentException("outbox.webhookUrl is required for the webhook sink");
+                }
+                yield v -> new WebhookOutboxSink(v, url, config.getOutboxWebhookTimeoutMs());
+            }
+            default -> throw new IllegalArgumentException("Unknown outbox sink: " + config.getOutboxSink());
+        };
+    }
+
+    private Future<Void> deployStockReservationShards() {
+        if (!config.isStockReservationEnabled()) {
+            return Future.succeededFuture();
+        }
+
+        int shards = config.getStockReservationShards();
+        Map<Integer, List<UUID>> productsByShard = new HashMap<>();
+        for (UUID productId : config.getStockReservationProducts()) {
+            productsByShard.computeIfAbsent(EventBusStockReservations.shardOf(productId, shards), k -> new ArrayList<>())
+                    .add(productId);
+        }
+
+        List<Future<String>> deployments = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            deployments.add(vertx.deployVerticle(new StockReservationVerticle(shard,
+                    productsByShard.getOrDefault(shard, List.of()),
+                    stockReservationRepository,
+                    config.getStockReservationFlushIntervalMs(),
+                    productRepository::evict)));
+        }
+        return Future.all(deployments).mapEmpty();
+    }
+
+    public Future<Void> close() {
+        if (idempotencyPurgeTimer >= 0) {
+            vertx.cancelTimer(idempotencyPurgeTimer);
+        }
+        if (orderRequestPurgeTimer >= 0) {
+            vertx.cancelTimer(orderRequestPurgeTimer);
+        }
+        if (suggestIndex != null) {
+            suggestIndex.stop();
+        }
+        if (orderSweeper != null) {
+            orderSweeper.stop();
+        }
+        Future<Void> listenerClosed = changeListener != null ? changeListener.close() : Future.succeededFuture();
+        return Future.join(listenerClosed, pgPool.close(), passwordEncoder.close()).mapEmpty();
+    }
+
+    private ProductRepository createProductRepository(AppConfig config) {
+        ProductRepository repository = new ProductRepositoryPg(pgPool);
+        if (!config.isProductCacheEnabled()) {
+            return repository;
+        }
+        CachingProductRepository cached = new CachingProductRepository(repository,
+                config.getProductCacheMaxSize(),
+                Duration.ofSeconds(config.getProductCacheTtlSeconds()),
+                meterRegistry);
+        listenForChanges("products", cached);
+        return cached;
+    }
+
+    private CategoryRepository createCategoryRepository(AppConfig config) {
+        CategoryRepository repository = new CategoryRepositoryPg(pgPool);
+        if (!config.isCategoryCacheEnabled()) {
+            return repository;
+        }
+        CachingCategoryRepository cached = new CachingCategoryRepository(repository,
+                config.getCategoryCacheMaxSize(),
+                Duration.ofSeconds(config.getCategoryCacheTtlSeconds()),
+                meterRegistry);
+        listenForChanges("categories", cached);
+        return cached;
+    }
+
+    private void listenForChanges(String entity, EntityChangeListener listener) {
+        if (changeListener != null) {
+            changeListener.register(entity, listener);
+        }
+    }
+
+    private PgConnectOptions createConnectOptions(AppConfig config) {
+        return new PgConnectOptions()
+                .setHost(config.getDbHost())
+                .setPort(config.getDbPort())
+                .setDatabase(config.getDbName())
+                .setUser(config.getDbUser())
+                .setPassword(config.getDbPassword());
+    }
+
+    private Pool createPgPool(Vertx vertx, AppConfig config) {
+
+        // Spread connections across the event loops serving HTTP so DB I/O
+        // does not funnel through a single loop
+        PoolOptions poolOptions = new PoolOptions()
+                .setMaxSize(config.getDbMaxPoolSize())
+                .setShared(true)
+                .setName(POOL_NAME)
+                .setEventLoopSize(config.getServerInstances());
+
+        // Vert.x does not report leased connections for SQL pools, so the pool counts them itself
+        return new MeteredPool(PgPool.pool(vertx, connectOptions, poolOptions), POOL_NAME, meterRegistry);
+    }
+
+    private void registerPoolGauges(AppConfig config) {
+        Gauge.builder("db.pool.size", pgPool::size)
+                .description("Connections currently open in the pool")
+                .tag("pool", POOL_NAME)
+                .register(meterRegistry);
+        Gauge.builder("db.pool.max.size", config::getDbMaxPoolSize)
+                .description("Configured maximum connections in the pool")
+                .tag("pool", POOL_NAME)
+                .register(meterRegistry);
+    }
+
+    public AppConfig getConfig() {
+        return config;
+    }
+
+    public MeterRegistry getMeterRegistry() {
+        return meterRegistry;
+    }
+
+    public Pool getPgPool() {
+        return pgPool;
+    }
+
+    public JwtProvider getJwtProvider() {
+        return jwtProvider;
+    }
+
+    public AuthService getAuthService() {
+        return authService;
+    }
+
+    public CategoryService getCategoryService() {
+        return categoryService;
+    }
+
+    public ProductService getProductService() {
+        return productService;
+    }
+
+    public OrderService getOrderService() {
+        return orderService;
+    }
+}
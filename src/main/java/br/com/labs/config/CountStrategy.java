@@ -0,0 +1,13 @@
+package br.com.labs.config;
+
+/**
+ * How listing endpoints compute totalElements.
+ */
+public enum CountStrategy {
+    /** Count returned with the page in the same query through COUNT(*) OVER (). */
+    EXACT,
+    /** Count kept in memory, adjusted on insert/delete and reloaded when it expires. */
+    CACHED,
+    /** Planner estimate from pg_class.reltuples, only available for whole-table listings. */
+    ESTIMATED
+}
@@ -0,0 +1,71 @@
+package br.com.labs.config;
+
+import br.com.labs.dto.request.FieldSet;
+import br.com.labs.model.Order;
+import br.com.labs.model.Product;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.vertx.core.json.EncodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.jackson.DatabindCodec;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Configures the Jackson mapper behind Json.encode / Json.decodeValue.
+ */
+public final class JsonConfig {
+
+    static final String FIELDS_FILTER = "fields";
+
+    private JsonConfig() {}
+
+    /**
+     * Writes java.time values (createdAt, updatedAt) as ISO-8601 strings.
+     * Without the module Jackson refuses to encode LocalDateTime at all.
+     *
+     * Products and orders also go through a property filter that writes every field
+     * by default, and only the requested ones when encoded with {@link #encode(Object, FieldSet)}.
+     */
+    public static void configure() {
+        DatabindCodec.mapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .addMixIn(Product.class, FilteredFields.class)
+                .addMixIn(Order.class, FilteredFields.class)
+                .setFilterProvider(filter(SimpleBeanPropertyFilter.serializeAll()));
+    }
+
+    /**
+     * Encodes the value writing only the requested fields of the products or orders inside it,
+     * plus the included properties that are not columns, such as the items of an order.
+     */
+    public static String encode(Object value, FieldSet fields, String... included) {
+        if (fields.isAll()) {
+            return Json.encode(value);
+        }
+        Set<String> written = new HashSet<>(fields.fields());
+        written.addAll(Arrays.asList(included));
+        try {
+            return DatabindCodec.mapper()
+                    .writer(filter(SimpleBeanPropertyFilter.filterOutAllExcept(written)))
+                    .writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new EncodeException("Failed to encode as JSON: " + e.getMessage());
+        }
+    }
+
+    private static FilterProvider filter(SimpleBeanPropertyFilter filter) {
+        return new SimpleFilterProvider().addFilter(FIELDS_FILTER, filter);
+    }
+
+    @JsonFilter(FIELDS_FILTER)
+    private abstract static class FilteredFields {}
+}
@@ -0,0 +1,67 @@
+package br.com.labs.config;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.vertx.micrometer.Label;
+import io.vertx.micrometer.MicrometerMetricsOptions;
+import io.vertx.micrometer.VertxPrometheusOptions;
+
+import java.time.Duration;
+import java.util.EnumSet;
+
+/**
+ * Metrics backend: the Vert.x metrics SPI reporting into a Prometheus registry, scraped at /metrics.
+ * Vert.x must be created with these options, so this runs before the configuration is loaded.
+ */
+public final class MetricsConfig {
+
+    private static final String HTTP_SERVER_METRICS = "vertx.http.server.";
+    private static final String POOL_METRICS = "vertx.pool.";
+
+    private MetricsConfig() {}
+
+    /**
+     * Creates the Prometheus registry and adds it to the global registry used by the
+     * application components, so both Vert.x and application meters are scraped together.
+     */
+    public static MicrometerMetricsOptions create() {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        registry.config().meterFilter(latencyHistograms());
+        Metrics.addRegistry(registry);
+
+        return new MicrometerMetricsOptions()
+                .setEnabled(true)
+                .setMicrometerRegistry(registry)
+                .setPrometheusOptions(new VertxPrometheusOptions().setEnabled(true))
+                .setJvmMetricsEnabled(true)
+                // Route templates (/api/v1/products/:id) rather than raw paths keep cardinality bounded
+                .setLabels(EnumSet.of(Label.HTTP_ROUTE, Label.HTTP_METHOD, Label.HTTP_CODE,
+                        Label.POOL_TYPE, Label.POOL_NAME, Label.EB_ADDRESS, Label.EB_FAILURE));
+    }
+
+    /**
+     * Request latency and pool wait/usage timers get histogram buckets, so percentiles
+     * can be aggregated across routes and nodes in Prometheus.
+     */
+    private static MeterFilter latencyHistograms() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (id.getType() != Meter.Type.TIMER
+                        || !(id.getName().startsWith(HTTP_SERVER_METRICS) || id.getName().startsWith(POOL_METRICS))) {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .minimumExpectedValue((double) Duration.ofMillis(1).toNanos())
+                        .maximumExpectedValue((double) Duration.ofSeconds(10).toNanos())
+                        .build()
+                        .merge(config);
+            }
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package br.com.labs.dto.request;
+
+import br.com.labs.exception.ValidationException;
+
+import java.util.Locale;
+
+/**
+ * Line-oriented formats of the bulk import and export endpoints.
+ */
+public enum FeedFormat {
+
+    /** One JSON object per line. */
+    NDJSON("application/x-ndjson"),
+
+    /** Header line with the column names, then one record per line. */
+    CSV("text/csv; charset=utf-8");
+
+    private final String contentType;
+
+    FeedFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    /**
+     * Format of an import body, from its Content-Type.
+     */
+    public static FeedFormat fromContentType(String contentType) {
+        String mediaType = contentType == null ? "" : contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+        return switch (mediaType) {
+            case "application/x-ndjson", "application/jsonl" -> NDJSON;
+            case "text/csv" -> CSV;
+            default -> throw new ValidationException(
+                    "Content-Type must be application/x-ndjson or text/csv");
+        };
+    }
+
+    /**
+     * Format of an export, from the format= query parameter; NDJSON when absent.
+     */
+    public static FeedFormat fromParam(String format) {
+        if (format == null || format.isBlank()) {
+            return NDJSON;
+        }
+        return switch (format.trim().toLowerCase(Locale.ROOT)) {
+            case "ndjson" -> NDJSON;
+            case "csv" -> CSV;
+            default -> throw new ValidationException("Format must be ndjson or csv");
+        };
+    }
+}
@@ -0,0 +1,128 @@
+package br.com.labs.dto.request;
+
+import br.com.labs.exception.ValidationException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Fields requested through the fields= query parameter of a listing endpoint.
+ * Each entity has a whitelist mapping JSON field names to columns, so user input
+ * never reaches the SQL text; unknown fields are rejected.
+ *
+ * id and createdAt are always loaded because keyset pagination builds its cursor
+ * from them, but they are only serialized when requested.
+ */
+public final class FieldSet {
+
+    private static final Map<String, String> PRODUCT_COLUMNS = columns(
+            "id", "id",
+            "name", "name",
+            "description", "description",
+            "code", "code",
+            "price", "price",
+            "stock", "stock",
+            "version", "version",
+            "categoryId", "category_id",
+            "createdAt", "created_at",
+            "updatedAt", "updated_at");
+
+    private static final Map<String, String> ORDER_COLUMNS = columns(
+            "id", "id",
+            "userId", "user_id",
+            "status", "status",
+            "total", "total",
+            "version", "version",
+            "createdAt", "created_at",
+            "updatedAt", "updated_at");
+
+    private static final Set<String> KEY_FIELDS = Set.of("id", "createdAt");
+
+    public static final FieldSet ALL_PRODUCT_FIELDS = new FieldSet(PRODUCT_COLUMNS, PRODUCT_COLUMNS.keySet());
+    public static final FieldSet ALL_ORDER_FIELDS = new FieldSet(ORDER_COLUMNS, ORDER_COLUMNS.keySet());
+
+    private final Map<String, String> whitelist;
+    private final Set<String> fields;
+    private final String columns;
+
+    private FieldSet(Map<String, String> whitelist, Set<String> fields) {
+        this.whitelist = whitelist;
+        this.fields = Collections.unmodifiableSet(fields);
+        this.columns = whitelist.keySet().stream()
+                .filter(this::loads)
+                .map(whitelist::get)
+                .collect(Collectors.joining(", "));
+    }
+
+    public static FieldSet products(String fields) {
+        return parse(PRODUCT_COLUMNS, ALL_PRODUCT_FIELDS, fields);
+    }
+
+    public static FieldSet orders(String fields) {
+        return parse(ORDER_COLUMNS, ALL_ORDER_FIELDS, fields);
+    }
+
+    private static FieldSet parse(Map<String, String> whitelist, FieldSet all, String value) {
+        if (value == null || value.isBlank()) {
+            return all;
+        }
+
+        Set<String> requested = new LinkedHashSet<>();
+        for (String field : value.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!whitelist.containsKey(name)) {
+                throw new ValidationException("Unknown field: " + name
+                        + ". Allowed fields: " + String.join(", ", whitelist.keySet()));
+            }
+            requested.add(name);
+        }
+
+        if (requested.isEmpty() || requested.size() == whitelist.size()) {
+            return all;
+        }
+        return new FieldSet(whitelist, requested);
+    }
+
+    /**
+     * True when every field is requested, so rows can use the full mapping.
+     */
+    public boolean isAll() {
+        return fields.size() == whitelist.size();
+    }
+
+    /**
+     * Whether the field is loaded from the database: requested, or needed for the cursor.
+     */
+    public boolean loads(String field) {
+        return fields.contains(field) || KEY_FIELDS.contains(field);
+    }
+
+    /**
+     * Column list for the SELECT clause, in table order.
+     */
+    public String columns() {
+        return columns;
+    }
+
+    /**
+     * JSON field names to serialize.
+     */
+    public Set<String> fields() {
+        return fields;
+    }
+
+    private static Map<String, String> columns(String... pairs) {
+        Map<String, String> columns = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            columns.put(pairs[i], pairs[i + 1]);
+        }
+        return Collections.unmodifiableMap(columns);
+    }
+}
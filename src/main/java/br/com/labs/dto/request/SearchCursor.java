@@ -0,0 +1,50 @@
+package br.com.labs.dto.request;
+
+import br.com.labs.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position of the last element of a search page, ordered by (rank DESC, id DESC).
+ * Like {@link PageCursor}, clients receive it as an opaque URL-safe token.
+ */
+public class SearchCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final float rank;
+    private final UUID id;
+
+    public SearchCursor(float rank, UUID id) {
+        this.rank = rank;
+        this.id = id;
+    }
+
+    public static SearchCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            return new SearchCursor(
+                    Float.parseFloat(value.substring(0, separator)),
+                    UUID.fromString(value.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new ValidationException("Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        // Float.toString round-trips exactly, so the next page starts right after this row
+        String value = rank + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public float getRank() {
+        return rank;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+}
@@ -0,0 +1,37 @@
+package br.com.labs.dto.response;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Result of a lookup by several IDs: the entities found, in request order,
+ * and the requested IDs that do not exist.
+ */
+public class BatchResponse<T> {
+
+    private List<T> content;
+    private List<UUID> missing;
+
+    public BatchResponse() {}
+
+    public BatchResponse(List<T> content, List<UUID> missing) {
+        this.content = content;
+        this.missing = missing;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    public List<UUID> getMissing() {
+        return missing;
+    }
+
+    public void setMissing(List<UUID> missing) {
+        this.missing = missing;
+    }
+}
@@ -0,0 +1,59 @@
+package br.com.labs.dto.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk product import. Rows are counted as inserted, updated, unchanged
+ * (same values as the stored product) or rejected; only the first rejections are detailed.
+ */
+public class ImportSummary {
+
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    private long inserted;
+    private long updated;
+    private long unchanged;
+    private long rejected;
+    private final List<RowError> errors = new ArrayList<>();
+
+    /**
+     * @param line line of the request body, starting at 1 (the CSV header is line 1)
+     * @param code product code of the row, when it could be read
+     */
+    public record RowError(long line, String code, String message) {
+    }
+
+    public void addWritten(long inserted, long updated, long unchanged) {
+        this.inserted += inserted;
+        this.updated += updated;
+        this.unchanged += unchanged;
+    }
+
+    public void reject(long line, String code, String message) {
+        rejected++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(line, code, message));
+        }
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+}
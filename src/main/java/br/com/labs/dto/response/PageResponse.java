@@ -1,23 +1,59 @@
 package br.com.labs.dto.response;
 
+import br.com.labs.dto.request.PageCursor;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
+import java.util.function.Function;
 
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class PageResponse<T> {
 
     private List<T> content;
-    private int page;
+    private Integer page;
     private int size;
-    private long totalElements;
-    private int totalPages;
+    private Long totalElements;
+    private Integer totalPages;
+    private Boolean totalExact;
+    private String nextCursor;
 
     public PageResponse() {}
 
     public PageResponse(List<T> content, int page, int size, long totalElements) {
+        this(content, page, size, totalElements, true);
+    }
+
+    public PageResponse(List<T> content, int page, int size, long totalElements, boolean totalExact) {
         this.content = content;
         this.page = page;
         this.size = size;
         this.totalElements = totalElements;
         this.totalPages = size > 0 ? (int) Math.ceil((double) totalElements / size) : 0;
+        this.totalExact = totalExact;
+    }
+
+    /**
+     * Builds a keyset page from rows fetched with a limit of size + 1.
+     * The extra row only signals that another page exists and is not returned.
+     */
+    public static <T> PageResponse<T> ofCursor(List<T> rows, int size, Function<T, PageCursor> cursorOf) {
+        return ofCursor(rows, size, Function.identity(), row -> cursorOf.apply(row).encode());
+    }
+
+    /**
+     * Same as above for rows that carry more than the returned element, such as search hits and their rank.
+     */
+    public static <R, T> PageResponse<T> ofCursor(List<R> rows, int size, Function<R, T> contentOf,
+                                                  Function<R, String> cursorOf) {
+        PageResponse<T> response = new PageResponse<>();
+        response.size = size;
+
+        List<R> page = rows.size() > size ? rows.subList(0, size) : rows;
+        response.content = page.stream().map(contentOf).toList();
+        if (rows.size() > size) {
+            response.nextCursor = cursorOf.apply(rows.get(size - 1));
+        }
+        return response;
     }
 
     public List<T> getContent() {
@@ -28,11 +64,11 @@ public class PageResponse<T> {
         this.content = content;
     }
 
-    public int getPage() {
+    public Integer getPage() {
         return page;
     }
 
-    public void setPage(int page) {
+    public void setPage(Integer page) {
         this.page = page;
     }
 
@@ -44,19 +80,35 @@ public class PageResponse<T> {
         this.size = size;
     }
 
-    public long getTotalElements() {
+    public Long getTotalElements() {
         return totalElements;
     }
 
-    public void setTotalElements(long totalElements) {
+    public void setTotalElements(Long totalElements) {
         this.totalElements = totalElements;
     }
 
-    public int getTotalPages() {
+    public Integer getTotalPages() {
         return totalPages;
     }
 
-    public void setTotalPages(int totalPages) {
+    public void setTotalPages(Integer totalPages) {
         this.totalPages = totalPages;
     }
+
+    public Boolean getTotalExact() {
+        return totalExact;
+    }
+
+    public void setTotalExact(Boolean totalExact) {
+        this.totalExact = totalExact;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
 }
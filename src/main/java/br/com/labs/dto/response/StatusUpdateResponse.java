@@ -0,0 +1,46 @@
+package br.com.labs.dto.response;
+
+import br.com.labs.model.Order;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Result of a bulk status transition: the orders moved to the new status, without their items,
+ * and the requested orders left as they were, with the reason.
+ */
+public class StatusUpdateResponse {
+
+    private List<Order> updated;
+    private List<Rejection> rejected;
+
+    /**
+     * @param currentStatus status the order is in, null when it does not exist
+     * @param currentVersion version the order has, to retry with; null when it does not exist
+     */
+    public record Rejection(UUID id, Order.OrderStatus currentStatus, Integer currentVersion, String message) {
+    }
+
+    public StatusUpdateResponse() {}
+
+    public StatusUpdateResponse(List<Order> updated, List<Rejection> rejected) {
+        this.updated = updated;
+        this.rejected = rejected;
+    }
+
+    public List<Order> getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(List<Order> updated) {
+        this.updated = updated;
+    }
+
+    public List<Rejection> getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(List<Rejection> rejected) {
+        this.rejected = rejected;
+    }
+}
@@ -0,0 +1,12 @@
+package br.com.labs.exception;
+
+public class ConflictException extends RuntimeException {
+
+    public ConflictException(String message) {
+        super(message);
+    }
+
+    public ConflictException(String entity, Object id) {
+        super(entity + " was modified concurrently: " + id + ". Reload and try again");
+    }
+}
@@ -0,0 +1,8 @@
+package br.com.labs.exception;
+
+public class ForbiddenException extends RuntimeException {
+
+    public ForbiddenException(String message) {
+        super(message);
+    }
+}
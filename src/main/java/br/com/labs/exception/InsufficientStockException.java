@@ -1,37 +1,45 @@
 package br.com.labs.exception;
 
+import br.com.labs.model.StockShortage;
+
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 public class InsufficientStockException extends RuntimeException {
 
-    private final UUID productId;
-    private final int requested;
-    private final int available;
+    private final List<StockShortage> shortages;
 
     public InsufficientStockException(UUID productId, int requested, int available) {
-        super(String.format("Insufficient stock for product %s. Requested: %d, Available: %d",
-                productId, requested, available));
-        this.productId = productId;
-        this.requested = requested;
-        this.available = available;
+        this(List.of(new StockShortage(productId, requested, available)));
+    }
+
+    public InsufficientStockException(List<StockShortage> shortages) {
+        super(shortages.stream()
+                .map(s -> String.format("Insufficient stock for product %s. Requested: %d, Available: %d",
+                        s.productId(), s.requested(), s.available()))
+                .collect(Collectors.joining("; ")));
+        this.shortages = List.copyOf(shortages);
     }
 
     public InsufficientStockException(UUID productId) {
         super(String.format("Insufficient stock or concurrent modification for product %s", productId));
-        this.productId = productId;
-        this.requested = 0;
-        this.available = 0;
+        this.shortages = List.of(new StockShortage(productId, 0, 0));
+    }
+
+    public List<StockShortage> getShortages() {
+        return shortages;
     }
 
     public UUID getProductId() {
-        return productId;
+        return shortages.get(0).productId();
     }
 
     public int getRequested() {
-        return requested;
+        return shortages.get(0).requested();
     }
 
     public int getAvailable() {
-        return available;
+        return shortages.get(0).available();
     }
 }
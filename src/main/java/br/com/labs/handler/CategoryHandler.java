@@ -50,19 +50,27 @@ public class CategoryHandler {
         }
 
         categoryService.findById(id)
-                .onSuccess(category -> ctx.response()
-                        .setStatusCode(200)
-                        .putHeader("content-type", "application/json")
-                        .end(Json.encode(ApiResponse.success(category))))
+                .onSuccess(category -> respond(ctx, Json.encode(ApiResponse.success(category))))
                 .onFailure(ctx::fail);
     }
 
     public void findAll(RoutingContext ctx) {
         categoryService.findAll()
-                .onSuccess(categories -> ctx.response()
-                        .setStatusCode(200)
-                        .putHeader("content-type", "application/json")
-                        .end(Json.encode(ApiResponse.success(categories))))
+                .onSuccess(categories -> respond(ctx, Json.encode(ApiResponse.success(categories))))
                 .onFailure(ctx::fail);
     }
+
+    // Categories have no version column, so the ETag is a hash of the encoded body. There is no
+    // Last-Modified: created_at does not move on renames or deletions, so it would validate stale copies.
+    private void respond(RoutingContext ctx, String body) {
+        String etag = ConditionalRequests.etag(body);
+        if (ConditionalRequests.isNotModified(ctx.request(), etag, null)) {
+            ConditionalRequests.notModified(ctx.response(), etag, null);
+            return;
+        }
+        ConditionalRequests.putValidators(ctx.response(), etag, null)
+                .setStatusCode(200)
+                .putHeader("content-type", "application/json")
+                .end(body);
+    }
 }
@@ -0,0 +1,118 @@
+package br.com.labs.handler;
+
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Validators (ETag, Last-Modified) and 304 handling for GET responses (RFC 9110, section 13).
+ *
+ * Timestamps are stored as TIMESTAMP without time zone, written in the server's zone,
+ * so they are converted from the system default zone to GMT.
+ */
+final class ConditionalRequests {
+
+    // Authenticated responses: clients may keep a copy but must revalidate it before use
+    private static final String CACHE_CONTROL = "private, no-cache";
+
+    private ConditionalRequests() {}
+
+    /**
+     * Strong ETag of a versioned entity: changes exactly when the version does.
+     */
+    static String etag(UUID id, int version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    /**
+     * Strong ETag of an already encoded body, for entities without a version column.
+     */
+    static String etag(String body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8));
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Whether the client's copy is current. If-None-Match takes precedence over If-Modified-Since.
+     */
+    static boolean isNotModified(HttpServerRequest request, String etag, LocalDateTime lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matches(ifNoneMatch, etag);
+        }
+
+        String ifModifiedSince = request.getHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        if (ifModifiedSince == null || lastModified == null) {
+            return false;
+        }
+        try {
+            ZonedDateTime since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME);
+            // HTTP dates have second precision
+            return !toGmt(lastModified).truncatedTo(ChronoUnit.SECONDS).isAfter(since);
+        } catch (DateTimeParseException e) {
+            // An invalid date is ignored, as if the header were absent
+            return false;
+        }
+    }
+
+    /**
+     * Whether the request carries any validator, so a cheap version lookup is worth doing first.
+     */
+    static boolean isConditional(HttpServerRequest request) {
+        return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    static HttpServerResponse putValidators(HttpServerResponse response, String etag, LocalDateTime lastModified) {
+        response.putHeader(HttpHeaders.ETAG, etag)
+                .putHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        if (lastModified != null) {
+            response.putHeader(HttpHeaders.LAST_MODIFIED, DateTimeFormatter.RFC_1123_DATE_TIME.format(toGmt(lastModified)));
+        }
+        return response;
+    }
+
+    static void notModified(HttpServerResponse response, String etag, LocalDateTime lastModified) {
+        putValidators(response, etag, lastModified)
+                .setStatusCode(304)
+                .end();
+    }
+
+    // Weak comparison, as required for If-None-Match
+    private static boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ZonedDateTime toGmt(LocalDateTime value) {
+        return value.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC);
+    }
+}
@@ -1,8 +1,11 @@
 package br.com.labs.handler;
 
 import br.com.labs.dto.response.ApiResponse;
+import br.com.labs.exception.ConflictException;
+import br.com.labs.exception.ForbiddenException;
 import br.com.labs.exception.InsufficientStockException;
 import br.com.labs.exception.NotFoundException;
+import br.com.labs.exception.ServiceUnavailableException;
 import br.com.labs.exception.UnauthorizedException;
 import br.com.labs.exception.ValidationException;
 import io.vertx.core.json.Json;
@@ -21,27 +24,12 @@ public class ErrorHandler {
         if (failure != null) {
             logger.error("Request failed", failure);
 
-            if (failure instanceof ValidationException) {
-                statusCode = 400;
-            } else if (failure instanceof UnauthorizedException) {
-                statusCode = 401;
-            } else if (failure instanceof NotFoundException) {
-                statusCode = 404;
-            } else if (failure instanceof InsufficientStockException) {
-                statusCode = 409; // Conflict - resource state conflict
-            } else {
-                statusCode = 500;
-            }
-
-            String message = failure.getMessage();
-            if (statusCode == 500) {
-                message = "Internal server error";
-            }
+            statusCode = statusFor(failure);
 
             ctx.response()
                     .setStatusCode(statusCode)
                     .putHeader("content-type", "application/json")
-                    .end(Json.encode(ApiResponse.error(message)));
+                    .end(encodeFailure(failure, statusCode));
         } else {
             // No failure object, use status code
             String message = switch (statusCode) {
@@ -59,4 +47,35 @@ public class ErrorHandler {
                     .end(Json.encode(ApiResponse.error(message)));
         }
     }
+
+    static int statusFor(Throwable failure) {
+        if (failure instanceof ValidationException) {
+            return 400;
+        } else if (failure instanceof UnauthorizedException) {
+            return 401;
+        } else if (failure instanceof ForbiddenException) {
+            return 403;
+        } else if (failure instanceof NotFoundException) {
+            return 404;
+        } else if (failure instanceof InsufficientStockException || failure instanceof ConflictException) {
+            return 409; // Conflict - resource state conflict
+        } else if (failure instanceof ServiceUnavailableException) {
+            return 503;
+        }
+        return 500;
+    }
+
+    static String encodeFailure(Throwable failure, int statusCode) {
+        String message = failure.getMessage();
+        if (statusCode == 500) {
+            message = "Internal server error";
+        }
+
+        // Tell the client every product that was short, not just the first one
+        Object details = failure instanceof InsufficientStockException stockException
+                ? stockException.getShortages()
+                : null;
+
+        return Json.encode(ApiResponse.error(message, details));
+    }
 }
@@ -0,0 +1,124 @@
+package br.com.labs.handler;
+
+import br.com.labs.dto.request.FeedFormat;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.VertxException;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.jackson.DatabindCodec;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Writes a database stream to a chunked response, one NDJSON or CSV line per element.
+ *
+ * The stream is paused whenever the response write queue is full and resumed when it drains,
+ * so a slow client slows down the cursor instead of piling rows up in memory: an export of any
+ * size holds at most one fetch of rows plus the write queue.
+ */
+final class ExportResponse {
+
+    private ExportResponse() {}
+
+    /**
+     * Consumer for a repository stream that writes every element to the response and ends it.
+     *
+     * @param fileName download name without extension
+     * @param csvHeader header line written first in CSV exports, without the line break
+     * @param encoder encodes one element as one or more complete lines
+     * @return Function completing when the response is written, or failing when the stream fails
+     *         or the client goes away, which releases the cursor and its connection
+     */
+    static <T> Function<ReadStream<T>, Future<Void>> writer(RoutingContext ctx, FeedFormat format, String fileName,
+                                                            String csvHeader, Function<T, String> encoder) {
+        return rows -> {
+            Promise<Void> done = Promise.promise();
+            HttpServerResponse response = ctx.response()
+                    .setChunked(true)
+                    .putHeader("content-type", format.contentType())
+                    .putHeader("content-disposition", "attachment; filename=\"" + fileName + "."
+                            + format.name().toLowerCase(Locale.ROOT) + "\"");
+            if (format == FeedFormat.CSV) {
+                response.write(csvHeader + "\n");
+            }
+
+            response.closeHandler(v -> done.tryFail(new VertxException("Client closed the connection during export")));
+            response.drainHandler(v -> rows.resume());
+            rows.exceptionHandler(done::tryFail);
+            rows.endHandler(v -> {
+                if (done.tryComplete()) {
+                    response.end();
+                }
+            });
+            rows.handler(row -> {
+                if (done.future().isComplete()) {
+                    return;
+                }
+                response.write(encoder.apply(row));
+                if (response.writeQueueFull()) {
+                    rows.pause();
+                }
+            });
+            return done.future();
+        };
+    }
+
+    /**
+     * Reports a failed export: as an error response when nothing was sent yet, otherwise by
+     * resetting the connection, since a 200 with a truncated body must not look complete.
+     */
+    static void fail(RoutingContext ctx, Throwable err) {
+        HttpServerResponse response = ctx.response();
+        if (!response.headWritten()) {
+            ctx.fail(err);
+        } else if (!response.closed() && !response.ended()) {
+            response.reset();
+        }
+    }
+
+    /**
+     * One CSV line (RFC 4180) with the given values, without the line break; nulls are written empty.
+     */
+    static String csvLine(Collection<?> values) {
+        StringBuilder line = new StringBuilder();
+        boolean first = true;
+        for (Object value : values) {
+            if (!first) {
+                line.append(',');
+            }
+            first = false;
+            appendCsv(line, value == null ? "" : value.toString());
+        }
+        return line.toString();
+    }
+
+    /**
+     * CSV line with the named properties of a model, written as they appear in its JSON.
+     */
+    static String csvLine(Object value, Collection<String> fields) {
+        JsonNode json = DatabindCodec.mapper().valueToTree(value);
+        List<String> values = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            JsonNode node = json.get(field);
+            values.add(node == null || node.isNull() ? null : node.asText());
+        }
+        return csvLine(values);
+    }
+
+    private static void appendCsv(StringBuilder line, String value) {
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -1,24 +1,52 @@
 package br.com.labs.handler;
 
+import br.com.labs.config.JsonConfig;
 import br.com.labs.dto.request.CreateOrderRequest;
+import br.com.labs.dto.request.FeedFormat;
+import br.com.labs.dto.request.FieldSet;
+import br.com.labs.dto.request.PageCursor;
 import br.com.labs.dto.response.ApiResponse;
+import br.com.labs.exception.ConflictException;
+import br.com.labs.exception.NotFoundException;
 import br.com.labs.exception.ValidationException;
+import br.com.labs.intake.OrderIntakeVerticle;
+import br.com.labs.model.Order;
+import br.com.labs.model.OrderItem;
+import br.com.labs.model.OrderRequest;
+import br.com.labs.security.JwtProvider;
 import br.com.labs.service.OrderService;
+import io.vertx.core.Future;
 import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.RoutingContext;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
 
 public class OrderHandler {
 
+    private static final String CSV_HEADER =
+            "orderId,userId,status,total,createdAt,updatedAt,productId,quantity,unitPrice";
+
+    private static final String RESPOND_ASYNC = "respond-async";
+    private static final String RETRY_AFTER_SECONDS = "1";
+
     private final OrderService orderService;
+    private final boolean asyncIntake;
 
-    public OrderHandler(OrderService orderService) {
+    /**
+     * @param asyncIntake whether intake workers are running, so POST can answer 202 to clients asking for it
+     */
+    public OrderHandler(OrderService orderService, boolean asyncIntake) {
         this.orderService = orderService;
+        this.asyncIntake = asyncIntake;
     }
 
     public void create(RoutingContext ctx) {
@@ -60,7 +88,15 @@ public class OrderHandler {
             request.setItems(items);
         }
 
-        orderService.create(userId, request)
+        String idempotencyKey = ctx.request().getHeader("Idempotency-Key");
+        // Keyed requests stay synchronous: the key must answer retries with the created order
+        if (asyncIntake && idempotencyKey == null && prefersAsync(ctx.request().getHeader("Prefer"))) {
+            enqueue(ctx, userId, request);
+            return;
+        }
+
+        // Retries with the same Idempotency-Key get the order of the first request
+        orderService.create(userId, request, idempotencyKey)
                 .onSuccess(order -> ctx.response()
                         .setStatusCode(201)
                         .putHeader("content-type", "application/json")
@@ -85,14 +121,78 @@ public class OrderHandler {
             return;
         }
 
-        orderService.findById(id, userId)
-                .onSuccess(order -> ctx.response()
-                        .setStatusCode(200)
-                        .putHeader("content-type", "application/json")
-                        .end(Json.encode(ApiResponse.success(order))))
+        Future<Order> order = orderService.findById(id, userId);
+        if (asyncIntake) {
+            // Orders accepted with 202 only exist once a worker has created them
+            order = order.recover(err -> err instanceof NotFoundException
+                    ? findQueued(ctx, id, userId)
+                    : Future.failedFuture(err));
+        }
+        order
+                .onSuccess(found -> {
+                    if (found != null) {
+                        ctx.response()
+                                .setStatusCode(200)
+                                .putHeader("content-type", "application/json")
+                                .end(Json.encode(ApiResponse.success(found)));
+                    }
+                })
                 .onFailure(ctx::fail);
     }
 
+    private void enqueue(RoutingContext ctx, UUID userId, CreateOrderRequest request) {
+        orderService.enqueue(userId, request)
+                .onSuccess(queued -> {
+                    // Wakes an intake worker on this node instead of waiting for its next poll
+                    ctx.vertx().eventBus().send(OrderIntakeVerticle.ADDRESS, null);
+                    ctx.response()
+                            .setStatusCode(202)
+                            .putHeader("content-type", "application/json")
+                            .putHeader("Location", ctx.request().path().replaceAll("/+$", "") + "/" + queued.getId())
+                            .putHeader("Preference-Applied", RESPOND_ASYNC)
+                            .end(Json.encode(ApiResponse.success("Order accepted for processing", queued)));
+                })
+                .onFailure(ctx::fail);
+    }
+
+    /**
+     * Answers for an order that does not exist (yet): 202 while its request is queued, 409 when the request
+     * failed. Completes with null once the response is written.
+     */
+    private Future<Order> findQueued(RoutingContext ctx, UUID id, UUID userId) {
+        return orderService.findQueued(id, userId)
+                .compose(queued -> {
+                    if (queued.getStatus() == OrderRequest.Status.FAILED) {
+                        return Future.failedFuture(
+                                new ConflictException("Order could not be created: " + queued.getError()));
+                    }
+                    ctx.response()
+                            .setStatusCode(202)
+                            .putHeader("content-type", "application/json")
+                            .putHeader("Retry-After", RETRY_AFTER_SECONDS)
+                            .end(Json.encode(ApiResponse.success("Order is being processed", queued)));
+                    return Future.<Order>succeededFuture(null);
+                })
+                // The order may have been created between the two lookups, deleting its request
+                .recover(err -> err instanceof NotFoundException
+                        ? orderService.findById(id, userId)
+                        : Future.failedFuture(err));
+    }
+
+    // Prefer: respond-async, possibly among other preferences (RFC 7240)
+    private static boolean prefersAsync(String prefer) {
+        if (prefer == null) {
+            return false;
+        }
+        for (String preference : prefer.split(",")) {
+            String token = preference.split(";")[0].trim();
+            if (token.equalsIgnoreCase(RESPOND_ASYNC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void findByUser(RoutingContext ctx) {
         UUID userId = getUserIdFromContext(ctx);
         if (userId == null) {
@@ -107,14 +207,199 @@ public class OrderHandler {
             size = 100;
         }
 
-        orderService.findByUserId(userId, page, size)
+        FieldSet fields;
+        boolean withItems;
+        try {
+            fields = FieldSet.orders(ctx.queryParam("fields").isEmpty() ? null : ctx.queryParam("fields").get(0));
+            withItems = includesItems(ctx.queryParam("include").isEmpty() ? null : ctx.queryParam("include").get(0));
+        } catch (ValidationException e) {
+            ctx.fail(e);
+            return;
+        }
+        // Items are serialized even when fields= narrows the order columns
+        String[] included = withItems ? new String[] {"items"} : new String[0];
+
+        // Keyset mode when a cursor parameter is present (empty for the first page)
+        if (!ctx.queryParam("cursor").isEmpty()) {
+            PageCursor cursor;
+            try {
+                cursor = parseCursor(ctx.queryParam("cursor").get(0));
+            } catch (ValidationException e) {
+                ctx.fail(e);
+                return;
+            }
+
+            orderService.findByUserId(userId, cursor, Math.max(size, 1), fields, withItems)
+                    .onSuccess(pageResponse -> ctx.response()
+                            .setStatusCode(200)
+                            .putHeader("content-type", "application/json")
+                            .end(JsonConfig.encode(ApiResponse.success(pageResponse), fields, included)))
+                    .onFailure(ctx::fail);
+            return;
+        }
+
+        orderService.findByUserId(userId, page, size, fields, withItems)
                 .onSuccess(pageResponse -> ctx.response()
                         .setStatusCode(200)
                         .putHeader("content-type", "application/json")
-                        .end(Json.encode(ApiResponse.success(pageResponse))))
+                        .end(JsonConfig.encode(ApiResponse.success(pageResponse), fields, included)))
+                .onFailure(ctx::fail);
+    }
+
+    public void exportOrders(RoutingContext ctx) {
+        UUID userId = getUserIdFromContext(ctx);
+        if (userId == null) {
+            ctx.fail(new ValidationException("User ID not found in token"));
+            return;
+        }
+
+        FeedFormat format;
+        try {
+            format = FeedFormat.fromParam(ctx.queryParam("format").isEmpty() ? null : ctx.queryParam("format").get(0));
+        } catch (ValidationException e) {
+            ctx.fail(e);
+            return;
+        }
+
+        Function<Order, String> encoder = format == FeedFormat.CSV
+                ? OrderHandler::toCsvLines
+                : order -> Json.encode(order) + "\n";
+
+        orderService.exportByUserId(userId, ExportResponse.writer(ctx, format, "orders", CSV_HEADER, encoder))
+                .onFailure(err -> ExportResponse.fail(ctx, err));
+    }
+
+    public void updateStatus(RoutingContext ctx) {
+        // Fulfilment staff may move any order; a customer only their own, and only to CANCELLED
+        boolean fulfilment = JwtProvider.hasRole(ctx.user(), JwtProvider.FULFILMENT_ROLE);
+        UUID userId = getUserIdFromContext(ctx);
+        if (!fulfilment && userId == null) {
+            ctx.fail(new ValidationException("User ID not found in token"));
+            return;
+        }
+
+        UUID id;
+        try {
+            id = UUID.fromString(ctx.pathParam("id"));
+        } catch (IllegalArgumentException e) {
+            ctx.fail(new ValidationException("Invalid order ID format"));
+            return;
+        }
+
+        JsonObject body = ctx.body().asJsonObject();
+        if (body == null) {
+            ctx.fail(new ValidationException("Request body is required"));
+            return;
+        }
+
+        Order.OrderStatus status;
+        Integer version;
+        try {
+            status = parseStatus(body.getString("status"));
+            version = parseVersion(body, "version");
+        } catch (ValidationException | ClassCastException e) {
+            ctx.fail(e instanceof ValidationException ? e : new ValidationException("Invalid status update"));
+            return;
+        }
+
+        orderService.updateStatus(id, fulfilment ? null : userId, status, version)
+                .onSuccess(order -> ctx.response()
+                        .setStatusCode(200)
+                        .putHeader("content-type", "application/json")
+                        .end(Json.encode(ApiResponse.success(order))))
                 .onFailure(ctx::fail);
     }
 
+    public void updateStatuses(RoutingContext ctx) {
+        JsonObject body = ctx.body().asJsonObject();
+        if (body == null) {
+            ctx.fail(new ValidationException("Request body is required"));
+            return;
+        }
+
+        Order.OrderStatus status;
+        Map<UUID, Integer> expectedVersions = new LinkedHashMap<>();
+        try {
+            status = parseStatus(body.getString("status"));
+            JsonArray orders = body.getJsonArray("orders");
+            if (orders == null) {
+                throw new ValidationException("orders is required");
+            }
+            for (int i = 0; i < orders.size(); i++) {
+                JsonObject order = orders.getJsonObject(i);
+                UUID id;
+                try {
+                    id = UUID.fromString(order.getString("id"));
+                } catch (IllegalArgumentException | NullPointerException e) {
+                    throw new ValidationException("Invalid order ID format at index " + i);
+                }
+                // A repeated ID would be matched twice by the same UPDATE
+                if (expectedVersions.containsKey(id)) {
+                    throw new ValidationException("Duplicate order ID at index " + i);
+                }
+                expectedVersions.put(id, parseVersion(order, "version"));
+            }
+        } catch (ValidationException | ClassCastException e) {
+            ctx.fail(e instanceof ValidationException ? e : new ValidationException("Invalid status update"));
+            return;
+        }
+
+        orderService.updateStatuses(status, expectedVersions)
+                .onSuccess(result -> ctx.response()
+                        .setStatusCode(200)
+                        .putHeader("content-type", "application/json")
+                        .end(Json.encode(ApiResponse.success(result))))
+                .onFailure(ctx::fail);
+    }
+
+    private static Order.OrderStatus parseStatus(String value) {
+        if (value == null || value.isBlank()) {
+            throw new ValidationException("Status is required");
+        }
+        try {
+            return Order.OrderStatus.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Unknown status: " + value.trim() + ". Allowed: "
+                    + Arrays.toString(Order.OrderStatus.values()));
+        }
+    }
+
+    // The version is optional: without it the transition is applied to whatever version the order has
+    private static Integer parseVersion(JsonObject json, String field) {
+        Integer version = json.getInteger(field);
+        if (version != null && version < 1) {
+            throw new ValidationException("Version must be greater than 0");
+        }
+        return version;
+    }
+
+    // CSV is flat: one line per item, repeating the order columns
+    private static String toCsvLines(Order order) {
+        StringBuilder lines = new StringBuilder();
+        List<OrderItem> items = order.getItems() == null ? List.of() : order.getItems();
+        if (items.isEmpty()) {
+            lines.append(ExportResponse.csvLine(orderColumns(order, null))).append('\n');
+        }
+        for (OrderItem item : items) {
+            lines.append(ExportResponse.csvLine(orderColumns(order, item))).append('\n');
+        }
+        return lines.toString();
+    }
+
+    private static List<Object> orderColumns(Order order, OrderItem item) {
+        List<Object> columns = new ArrayList<>(9);
+        columns.add(order.getId());
+        columns.add(order.getUserId());
+        columns.add(order.getStatus());
+        columns.add(order.getTotal());
+        columns.add(order.getCreatedAt());
+        columns.add(order.getUpdatedAt());
+        columns.add(item == null ? null : item.getProductId());
+        columns.add(item == null ? null : item.getQuantity());
+        columns.add(item == null ? null : item.getUnitPrice());
+        return columns;
+    }
+
     private UUID getUserIdFromContext(RoutingContext ctx) {
         try {
             String sub = ctx.user().principal().getString("sub");
@@ -124,6 +409,23 @@ public class OrderHandler {
         }
     }
 
+    // include=items is the only expansion of the order listing
+    private static boolean includesItems(String include) {
+        if (include == null || include.isBlank()) {
+            return false;
+        }
+        for (String name : include.split(",")) {
+            if (!name.isBlank() && !"items".equals(name.trim())) {
+                throw new ValidationException("Unknown include: " + name.trim() + ". Allowed: items");
+            }
+        }
+        return true;
+    }
+
+    private PageCursor parseCursor(String value) {
+        return value.isBlank() ? null : PageCursor.decode(value);
+    }
+
     private int parseIntParam(String value, int defaultValue) {
         try {
             return Integer.parseInt(value);
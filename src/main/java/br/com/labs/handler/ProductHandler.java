@@ -1,19 +1,32 @@
 package br.com.labs.handler;
 
+import br.com.labs.config.JsonConfig;
 import br.com.labs.dto.request.CreateProductRequest;
+import br.com.labs.dto.request.FieldSet;
+import br.com.labs.dto.request.FeedFormat;
+import br.com.labs.dto.request.PageCursor;
+import br.com.labs.dto.request.SearchCursor;
 import br.com.labs.dto.request.UpdateProductRequest;
 import br.com.labs.dto.response.ApiResponse;
 import br.com.labs.exception.ValidationException;
+import br.com.labs.model.Product;
 import br.com.labs.service.ProductService;
 import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.parsetools.RecordParser;
 import io.vertx.ext.web.RoutingContext;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Function;
 
 public class ProductHandler {
 
+    private static final int MAX_IMPORT_LINE_BYTES = 64 * 1024;
+
     private final ProductService productService;
 
     public ProductHandler(ProductService productService) {
@@ -63,8 +76,30 @@ public class ProductHandler {
             return;
         }
 
+        if (!ConditionalRequests.isConditional(ctx.request())) {
+            respondWithProduct(ctx, id);
+            return;
+        }
+
+        // Revalidation: compare against the version alone before loading the whole row
+        productService.findVersion(id)
+                .onSuccess(current -> {
+                    String etag = ConditionalRequests.etag(id, current.version());
+                    if (ConditionalRequests.isNotModified(ctx.request(), etag, current.updatedAt())) {
+                        ConditionalRequests.notModified(ctx.response(), etag, current.updatedAt());
+                    } else {
+                        respondWithProduct(ctx, id);
+                    }
+                })
+                .onFailure(ctx::fail);
+    }
+
+    private void respondWithProduct(RoutingContext ctx, UUID id) {
         productService.findById(id)
-                .onSuccess(product -> ctx.response()
+                .onSuccess(product -> ConditionalRequests
+                        .putValidators(ctx.response(),
+                                ConditionalRequests.etag(product.getId(), product.getVersion()),
+                                product.getUpdatedAt())
                         .setStatusCode(200)
                         .putHeader("content-type", "application/json")
                         .end(Json.encode(ApiResponse.success(product))))
@@ -72,6 +107,26 @@ public class ProductHandler {
     }
 
     public void findAll(RoutingContext ctx) {
+        // Batch lookup when ids is present: ?ids=a,b,c or ?ids=a&ids=b
+        if (!ctx.queryParam("ids").isEmpty()) {
+            List<UUID> ids = new ArrayList<>();
+            try {
+                for (String value : ctx.queryParam("ids")) {
+                    for (String id : value.split(",")) {
+                        if (!id.isBlank()) {
+                            ids.add(parseProductId(id.trim()));
+                        }
+                    }
+                }
+            } catch (ValidationException e) {
+                ctx.fail(e);
+                return;
+            }
+
+            respondWithBatch(ctx, ids);
+            return;
+        }
+
         int page = parseIntParam(ctx.queryParam("page").isEmpty() ? "0" : ctx.queryParam("page").get(0), 0);
         int size = parseIntParam(ctx.queryParam("size").isEmpty() ? "10" : ctx.queryParam("size").get(0), 10);
 
@@ -79,14 +134,161 @@ public class ProductHandler {
             size = 100;
         }
 
-        productService.findAll(page, size)
+        FieldSet fields;
+        try {
+            fields = FieldSet.products(ctx.queryParam("fields").isEmpty() ? null : ctx.queryParam("fields").get(0));
+        } catch (ValidationException e) {
+            ctx.fail(e);
+            return;
+        }
+
+        // Keyset mode when a cursor parameter is present (empty for the first page)
+        if (!ctx.queryParam("cursor").isEmpty()) {
+            PageCursor cursor;
+            try {
+                cursor = parseCursor(ctx.queryParam("cursor").get(0));
+            } catch (ValidationException e) {
+                ctx.fail(e);
+                return;
+            }
+
+            productService.findAll(cursor, Math.max(size, 1), fields)
+                    .onSuccess(pageResponse -> ctx.response()
+                            .setStatusCode(200)
+                            .putHeader("content-type", "application/json")
+                            .end(JsonConfig.encode(ApiResponse.success(pageResponse), fields)))
+                    .onFailure(ctx::fail);
+            return;
+        }
+
+        productService.findAll(page, size, fields)
                 .onSuccess(pageResponse -> ctx.response()
                         .setStatusCode(200)
                         .putHeader("content-type", "application/json")
-                        .end(Json.encode(ApiResponse.success(pageResponse))))
+                        .end(JsonConfig.encode(ApiResponse.success(pageResponse), fields)))
                 .onFailure(ctx::fail);
     }
 
+    public void findByIds(RoutingContext ctx) {
+        JsonObject body = ctx.body().asJsonObject();
+
+        if (body == null) {
+            ctx.fail(new ValidationException("Request body is required"));
+            return;
+        }
+
+        JsonArray values;
+        try {
+            values = body.getJsonArray("ids");
+        } catch (ClassCastException e) {
+            ctx.fail(new ValidationException("ids must be an array of product IDs"));
+            return;
+        }
+
+        List<UUID> ids = new ArrayList<>();
+        if (values != null) {
+            try {
+                for (Object value : values) {
+                    if (!(value instanceof String id)) {
+                        throw new ValidationException("Invalid product ID format");
+                    }
+                    ids.add(parseProductId(id));
+                }
+            } catch (ValidationException e) {
+                ctx.fail(e);
+                return;
+            }
+        }
+
+        respondWithBatch(ctx, ids);
+    }
+
+    public void search(RoutingContext ctx) {
+        String query = ctx.queryParam("q").isEmpty() ? null : ctx.queryParam("q").get(0);
+        int size = parseIntParam(ctx.queryParam("size").isEmpty() ? "10" : ctx.queryParam("size").get(0), 10);
+
+        if (size > 100) {
+            size = 100;
+        }
+
+        SearchCursor cursor;
+        FieldSet fields;
+        try {
+            String token = ctx.queryParam("cursor").isEmpty() ? "" : ctx.queryParam("cursor").get(0);
+            cursor = token.isBlank() ? null : SearchCursor.decode(token);
+            fields = FieldSet.products(ctx.queryParam("fields").isEmpty() ? null : ctx.queryParam("fields").get(0));
+        } catch (ValidationException e) {
+            ctx.fail(e);
+            return;
+        }
+
+        productService.search(query, cursor, Math.max(size, 1), fields)
+                .onSuccess(pageResponse -> ctx.response()
+                        .setStatusCode(200)
+                        .putHeader("content-type", "application/json")
+                        .end(JsonConfig.encode(ApiResponse.success(pageResponse), fields)))
+                .onFailure(ctx::fail);
+    }
+
+    public void suggest(RoutingContext ctx) {
+        String prefix = ctx.queryParam("q").isEmpty() ? null : ctx.queryParam("q").get(0);
+        int limit = parseIntParam(ctx.queryParam("limit").isEmpty() ? "10" : ctx.queryParam("limit").get(0), 10);
+
+        if (limit > 20) {
+            limit = 20;
+        }
+
+        productService.suggest(prefix, Math.max(limit, 1))
+                .onSuccess(suggestions -> ctx.response()
+                        .setStatusCode(200)
+                        .putHeader("content-type", "application/json")
+                        .end(Json.encode(ApiResponse.success(suggestions))))
+                .onFailure(ctx::fail);
+    }
+
+    /**
+     * Registered before BodyHandler: the body is split into lines as it arrives instead of being buffered.
+     */
+    public void importProducts(RoutingContext ctx) {
+        FeedFormat format;
+        try {
+            format = FeedFormat.fromContentType(ctx.request().getHeader("content-type"));
+        } catch (ValidationException e) {
+            ctx.fail(e);
+            return;
+        }
+
+        RecordParser lines = RecordParser.newDelimited("\n", ctx.request())
+                .maxRecordSize(MAX_IMPORT_LINE_BYTES);
+
+        productService.importProducts(lines, format)
+                .onSuccess(summary -> ctx.response()
+                        .setStatusCode(200)
+                        .putHeader("content-type", "application/json")
+                        .end(Json.encode(ApiResponse.success(summary))))
+                .onFailure(ctx::fail);
+    }
+
+    public void exportProducts(RoutingContext ctx) {
+        FeedFormat format;
+        FieldSet fields;
+        try {
+            format = FeedFormat.fromParam(ctx.queryParam("format").isEmpty() ? null : ctx.queryParam("format").get(0));
+            fields = FieldSet.products(ctx.queryParam("fields").isEmpty() ? null : ctx.queryParam("fields").get(0));
+        } catch (ValidationException e) {
+            ctx.fail(e);
+            return;
+        }
+
+        Function<Product, String> encoder = format == FeedFormat.CSV
+                ? product -> ExportResponse.csvLine(product, fields.fields()) + "\n"
+                : product -> JsonConfig.encode(product, fields) + "\n";
+
+        productService.exportProducts(fields, ExportResponse.writer(ctx, format, "products",
+                        ExportResponse.csvLine(fields.fields()), encoder))
+                .onFailure(err -> ExportResponse.fail(ctx, err));
+    }
+
     public void update(RoutingContext ctx) {
         String idParam = ctx.pathParam("id");
 
@@ -146,6 +348,27 @@ public class ProductHandler {
                 .onFailure(ctx::fail);
     }
 
+    private void respondWithBatch(RoutingContext ctx, List<UUID> ids) {
+        productService.findByIds(ids)
+                .onSuccess(batch -> ctx.response()
+                        .setStatusCode(200)
+                        .putHeader("content-type", "application/json")
+                        .end(Json.encode(ApiResponse.success(batch))))
+                .onFailure(ctx::fail);
+    }
+
+    private UUID parseProductId(String value) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Invalid product ID format");
+        }
+    }
+
+    private PageCursor parseCursor(String value) {
+        return value.isBlank() ? null : PageCursor.decode(value);
+    }
+
     private int parseIntParam(String value, int defaultValue) {
         try {
             return Integer.parseInt(value);
@@ -0,0 +1,189 @@
+package br.com.labs.intake;
+
+import br.com.labs.exception.ConflictException;
+import br.com.labs.exception.InsufficientStockException;
+import br.com.labs.exception.NotFoundException;
+import br.com.labs.exception.ValidationException;
+import br.com.labs.model.OrderRequest;
+import br.com.labs.repository.OrderRequestRepository;
+import br.com.labs.service.OrderService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.pgclient.PgException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Creates the orders accepted with 202. Each instance claims a batch of queued requests with
+ * SKIP LOCKED, so instances on any node never take the same request, and creates their orders
+ * one at a time: intake holds at most one connection per instance, and a spike drains at the
+ * rate the database sustains while the rest of the pool keeps serving HTTP.
+ *
+ * The handler sends a message to {@link #ADDRESS} after enqueueing, which wakes a worker right
+ * away; the periodic poll picks up requests queued on other nodes and the ones whose lease ended.
+ * A claimed request hides from other workers for the lease: if this worker dies, another one
+ * takes the request over once it ends.
+ */
+public class OrderIntakeVerticle extends AbstractVerticle {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderIntakeVerticle.class);
+
+    public static final String ADDRESS = "orders.intake";
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String FOREIGN_KEY_VIOLATION = "23503";
+
+    private final OrderService orderService;
+    private final OrderRequestRepository repository;
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final Counter created;
+    private final Counter failed;
+    private final Counter retried;
+    private final Timer waitTime;
+
+    private MessageConsumer<Void> consumer;
+    private long pollTimer = -1;
+    private boolean polling;
+    private boolean pollAgain;
+
+    public OrderIntakeVerticle(OrderService orderService, OrderRequestRepository repository, int batchSize,
+                               long pollIntervalMs, Duration lease, int maxAttempts, MeterRegistry meterRegistry) {
+        this.orderService = orderService;
+        this.repository = repository;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+
+        this.created = processed(meterRegistry, "created");
+        this.failed = processed(meterRegistry, "failed");
+        this.retried = processed(meterRegistry, "retried");
+        this.waitTime = Timer.builder("orders.intake.wait")
+                .description("Time from accepting an order request to creating its order")
+                .register(meterRegistry);
+    }
+
+    private static Counter processed(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("orders.intake.processed")
+                .description("Queued order requests processed by the intake workers")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start(Promise<Void> startPromise) {
+        consumer = vertx.eventBus().localConsumer(ADDRESS, message -> poll());
+        consumer.completionHandler(ar -> {
+            if (ar.failed()) {
+                startPromise.fail(ar.cause());
+                return;
+            }
+            pollTimer = vertx.setPeriodic(pollIntervalMs, id -> poll());
+            // Requests left by a previous run are picked up right away
+            poll();
+            startPromise.complete();
+        });
+    }
+
+    @Override
+    public void stop(Promise<Void> stopPromise) {
+        vertx.cancelTimer(pollTimer);
+        // Requests claimed and not processed yet are taken over by another worker when the lease ends
+        consumer.unregister().onComplete(ar -> stopPromise.complete());
+    }
+
+    /**
+     * Claims and processes one batch, and the next one right away while batches come back full
+     * or a wakeup arrived meanwhile.
+     */
+    Future<Integer> poll() {
+        if (polling) {
+            pollAgain = true;
+            return Future.succeededFuture(0);
+        }
+        polling = true;
+
+        return repository.claim(batchSize, lease)
+                .compose(requests -> processAll(requests, 0).map(requests.size()))
+                .onComplete(ar -> {
+                    polling = false;
+                    boolean again = pollAgain;
+                    pollAgain = false;
+                    if (ar.failed()) {
+                        logger.warn("Failed to claim queued order requests", ar.cause());
+                    } else if (ar.result() == batchSize || again) {
+                        poll();
+                    }
+                });
+    }
+
+    private Future<Void> processAll(List<OrderRequest> requests, int index) {
+        if (index == requests.size()) {
+            return Future.succeededFuture();
+        }
+        return process(requests.get(index))
+                .compose(v -> processAll(requests, index + 1));
+    }
+
+    private Future<Void> process(OrderRequest request) {
+        return orderService.createQueued(request)
+                .<Void>map(order -> {
+                    created.increment();
+                    waitTime.record(Duration.between(request.getCreatedAt(), LocalDateTime.now()));
+                    return null;
+                })
+                .recover(err -> {
+                    if (isAlreadyCreated(err)) {
+                        // A worker whose lease ran out created it first, and deleted the request with it
+                        return Future.succeededFuture();
+                    }
+                    if (isRejected(err)) {
+                        failed.increment();
+                        return markFailed(request, err.getMessage());
+                    }
+                    if (request.getAttempts() >= maxAttempts) {
+                        logger.error("Giving up on order request {} after {} attempts",
+                                request.getId(), request.getAttempts(), err);
+                        failed.increment();
+                        return markFailed(request, "Order could not be processed");
+                    }
+                    logger.warn("Failed to process order request {} (attempt {}), retrying after the lease",
+                            request.getId(), request.getAttempts(), err);
+                    retried.increment();
+                    return Future.succeededFuture();
+                });
+    }
+
+    private Future<Void> markFailed(OrderRequest request, String error) {
+        return repository.markFailed(request.getId(), error)
+                .recover(err -> {
+                    // Left queued: it is retried once the lease ends
+                    logger.warn("Failed to mark order request {} as failed", request.getId(), err);
+                    return Future.succeededFuture();
+                });
+    }
+
+    // The order is what the client asked for and cannot be created; retrying would fail the same way
+    private static boolean isRejected(Throwable err) {
+        return err instanceof ValidationException
+                || err instanceof NotFoundException
+                || err instanceof InsufficientStockException
+                || err instanceof ConflictException
+                || err instanceof PgException pgException && FOREIGN_KEY_VIOLATION.equals(pgException.getSqlState());
+    }
+
+    private static boolean isAlreadyCreated(Throwable err) {
+        return err instanceof PgException pgException && UNIQUE_VIOLATION.equals(pgException.getSqlState());
+    }
+}
@@ -0,0 +1,53 @@
+package br.com.labs.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.Vertx;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how late timers fire on the event loop it is started from.
+ * A timer that fires late means a handler blocked the loop or the loop is saturated,
+ * and every request on it waits by the same amount.
+ */
+public class EventLoopLagMonitor {
+
+    private static final long INTERVAL_MS = 100;
+
+    private final Vertx vertx;
+    private final Timer lag;
+    private long timerId = -1;
+    private boolean stopped;
+
+    /**
+     * Must be created on the event loop to monitor; the meter is tagged with its thread name.
+     */
+    public EventLoopLagMonitor(Vertx vertx, MeterRegistry meterRegistry) {
+        this.vertx = vertx;
+        this.lag = Timer.builder("vertx.eventloop.lag")
+                .description("Delay between when a timer was due and when the event loop ran it")
+                .tag("thread", Thread.currentThread().getName())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public void start() {
+        schedule(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(INTERVAL_MS));
+    }
+
+    public void stop() {
+        stopped = true;
+        vertx.cancelTimer(timerId);
+    }
+
+    private void schedule(long due) {
+        timerId = vertx.setTimer(INTERVAL_MS, id -> {
+            long now = System.nanoTime();
+            lag.record(Math.max(0, now - due), TimeUnit.NANOSECONDS);
+            if (!stopped) {
+                schedule(now + TimeUnit.MILLISECONDS.toNanos(INTERVAL_MS));
+            }
+        });
+    }
+}
@@ -0,0 +1,235 @@
+package br.com.labs.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.PrepareOptions;
+import io.vertx.sqlclient.PreparedQuery;
+import io.vertx.sqlclient.Query;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.SqlClient;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.SqlResult;
+import io.vertx.sqlclient.TransactionPropagation;
+import io.vertx.sqlclient.Tuple;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collector;
+
+/**
+ * Pool decorator that counts leased connections, which the Vert.x SQL pool does not report.
+ *
+ * One-shot queries run on a connection leased through {@link #withConnection}, exactly like the pool
+ * does internally, so every query and transaction is counted from the moment it gets a connection until
+ * the connection is back in the pool. Idle is derived as open connections minus leased ones.
+ * Connections taken with {@link #getConnection()} are not counted: the pool gives no signal when they
+ * are returned, and the application only uses scoped leases.
+ */
+public class MeteredPool implements Pool {
+
+    private final Pool delegate;
+    private final MeterRegistry meterRegistry;
+    private final Timer acquireTimer;
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public MeteredPool(Pool delegate, String name, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+
+        this.acquireTimer = Timer.builder("db.pool.acquire")
+                .description("Time from requesting a pooled connection until it was ready")
+                .tag("pool", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("db.pool.in.use", inUse::get)
+                .description("Connections leased to a query or transaction")
+                .tag("pool", name)
+                .register(meterRegistry);
+        Gauge.builder("db.pool.idle", () -> Math.max(0, delegate.size() - inUse.get()))
+                .description("Open connections waiting in the pool")
+                .tag("pool", name)
+                .register(meterRegistry);
+        Gauge.builder("db.pool.pending", pending::get)
+                .description("Requests waiting for a connection")
+                .tag("pool", name)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public <T> Future<T> withConnection(Function<SqlConnection, Future<T>> function) {
+        return leased(work -> delegate.withConnection(work), function);
+    }
+
+    @Override
+    public <T> Future<T> withTransaction(Function<SqlConnection, Future<T>> function) {
+        return leased(work -> delegate.withTransaction(work), function);
+    }
+
+    @Override
+    public <T> Future<T> withTransaction(TransactionPropagation txPropagation,
+                                         Function<SqlConnection, Future<T>> function) {
+        return leased(work -> delegate.withTransaction(txPropagation, work), function);
+    }
+
+    @Override
+    public Query<RowSet<Row>> query(String sql) {
+        return new LeasedQuery<>(client -> client.query(sql));
+    }
+
+    @Override
+    public PreparedQuery<RowSet<Row>> preparedQuery(String sql) {
+        return new LeasedPreparedQuery<>(client -> client.preparedQuery(sql));
+    }
+
+    @Override
+    public PreparedQuery<RowSet<Row>> preparedQuery(String sql, PrepareOptions options) {
+        return new LeasedPreparedQuery<>(client -> client.preparedQuery(sql, options));
+    }
+
+    @Override
+    public void getConnection(Handler<AsyncResult<SqlConnection>> handler) {
+        delegate.getConnection(handler);
+    }
+
+    @Override
+    public Future<SqlConnection> getConnection() {
+        return delegate.getConnection();
+    }
+
+    @Override
+    public Pool connectHandler(Handler<SqlConnection> handler) {
+        delegate.connectHandler(handler);
+        return this;
+    }
+
+    @Override
+    public Pool connectionProvider(Function<Context, Future<SqlConnection>> provider) {
+        delegate.connectionProvider(provider);
+        return this;
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void close(Handler<AsyncResult<Void>> handler) {
+        delegate.close(handler);
+    }
+
+    @Override
+    public Future<Void> close() {
+        return delegate.close();
+    }
+
+    private <T> Future<T> leased(Function<Function<SqlConnection, Future<T>>, Future<T>> acquire,
+                                 Function<SqlConnection, Future<T>> work) {
+        Timer.Sample waiting = Timer.start(meterRegistry);
+        AtomicBoolean acquired = new AtomicBoolean();
+        pending.incrementAndGet();
+
+        // The outer future completes after the commit and the release, so that is when the lease ends
+        return acquire.apply(conn -> {
+            acquired.set(true);
+            pending.decrementAndGet();
+            waiting.stop(acquireTimer);
+            inUse.incrementAndGet();
+            return work.apply(conn);
+        }).onComplete(ar -> {
+            if (acquired.get()) {
+                inUse.decrementAndGet();
+            } else {
+                pending.decrementAndGet();
+            }
+        });
+    }
+
+    private class LeasedQuery<T> implements Query<T> {
+
+        private final Function<SqlClient, Query<T>> query;
+
+        LeasedQuery(Function<SqlClient, Query<T>> query) {
+            this.query = query;
+        }
+
+        @Override
+        public Future<T> execute() {
+            return withConnection(conn -> query.apply(conn).execute());
+        }
+
+        @Override
+        public void execute(Handler<AsyncResult<T>> handler) {
+            execute().onComplete(handler);
+        }
+
+        @Override
+        public <R> Query<SqlResult<R>> collecting(Collector<Row, ?, R> collector) {
+            return new LeasedQuery<>(client -> query.apply(client).collecting(collector));
+        }
+
+        @Override
+        public <U> Query<RowSet<U>> mapping(Function<Row, U> mapper) {
+            return new LeasedQuery<>(client -> query.apply(client).mapping(mapper));
+        }
+    }
+
+    private class LeasedPreparedQuery<T> implements PreparedQuery<T> {
+
+        private final Function<SqlClient, PreparedQuery<T>> query;
+
+        LeasedPreparedQuery(Function<SqlClient, PreparedQuery<T>> query) {
+            this.query = query;
+        }
+
+        @Override
+        public Future<T> execute() {
+            return withConnection(conn -> query.apply(conn).execute());
+        }
+
+        @Override
+        public void execute(Handler<AsyncResult<T>> handler) {
+            execute().onComplete(handler);
+        }
+
+        @Override
+        public Future<T> execute(Tuple tuple) {
+            return withConnection(conn -> query.apply(conn).execute(tuple));
+        }
+
+        @Override
+        public void execute(Tuple tuple, Handler<AsyncResult<T>> handler) {
+            execute(tuple).onComplete(handler);
+        }
+
+        @Override
+        public Future<T> executeBatch(List<Tuple> batch) {
+            return withConnection(conn -> query.apply(conn).executeBatch(batch));
+        }
+
+        @Override
+        public void executeBatch(List<Tuple> batch, Handler<AsyncResult<T>> handler) {
+            executeBatch(batch).onComplete(handler);
+        }
+
+        @Override
+        public <R> PreparedQuery<SqlResult<R>> collecting(Collector<Row, ?, R> collector) {
+            return new LeasedPreparedQuery<>(client -> query.apply(client).collecting(collector));
+        }
+
+        @Override
+        public <U> PreparedQuery<RowSet<U>> mapping(Function<Row, U> mapper) {
+            return new LeasedPreparedQuery<>(client -> query.apply(client).mapping(mapper));
+        }
+    }
+}
@@ -3,6 +3,7 @@ package br.com.labs.model;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
@@ -12,6 +13,7 @@ public class Order {
     private UUID userId;
     private OrderStatus status;
     private BigDecimal total;
+    private Integer version;
     private List<OrderItem> items;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
@@ -27,7 +29,30 @@ public class Order {
         PROCESSING,
         SHIPPED,
         DELIVERED,
-        CANCELLED
+        CANCELLED;
+
+        /**
+         * Whether an order in this status may move to the given one. Orders move forward one step
+         * at a time and can be cancelled until they are shipped; DELIVERED and CANCELLED are final.
+         */
+        public boolean canTransitionTo(OrderStatus next) {
+            return switch (this) {
+                case PENDING -> next == CONFIRMED || next == CANCELLED;
+                case CONFIRMED -> next == PROCESSING || next == CANCELLED;
+                case PROCESSING -> next == SHIPPED || next == CANCELLED;
+                case SHIPPED -> next == DELIVERED;
+                case DELIVERED, CANCELLED -> false;
+            };
+        }
+
+        /**
+         * The statuses an order can be in to move to this one.
+         */
+        public List<OrderStatus> sources() {
+            return Arrays.stream(values())
+                    .filter(status -> status.canTransitionTo(this))
+                    .toList();
+        }
     }
 
     // Getters and Setters
@@ -63,6 +88,14 @@ public class Order {
         this.total = total;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     public List<OrderItem> getItems() {
         return items;
     }
@@ -115,6 +148,11 @@ public class Order {
             return this;
         }
 
+        public Builder version(Integer version) {
+            order.version = version;
+            return this;
+        }
+
         public Builder items(List<OrderItem> items) {
             order.items = items;
             return this;
@@ -0,0 +1,147 @@
+package br.com.labs.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * An order accepted for asynchronous creation that has not become an order yet.
+ * Its id is the id the order will have, so clients poll the order with it.
+ */
+public class OrderRequest {
+
+    private UUID id;
+    private UUID userId;
+    private Map<UUID, Integer> quantities;
+    private Status status;
+    private String error;
+    private int attempts;
+    private LocalDateTime createdAt;
+
+    public OrderRequest() {
+        this.status = Status.QUEUED;
+    }
+
+    public enum Status {
+        QUEUED,
+        FAILED
+    }
+
+    // Getters and Setters
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    public void setUserId(UUID userId) {
+        this.userId = userId;
+    }
+
+    /**
+     * Quantity per product, with repeated products already merged.
+     */
+    @JsonIgnore
+    public Map<UUID, Integer> getQuantities() {
+        return quantities;
+    }
+
+    public void setQuantities(Map<UUID, Integer> quantities) {
+        this.quantities = quantities;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    /**
+     * Why the order could not be created; null while it is queued.
+     */
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    /**
+     * Times a worker has claimed the request.
+     */
+    @JsonIgnore
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    // Builder
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private final OrderRequest request = new OrderRequest();
+
+        public Builder id(UUID id) {
+            request.id = id;
+            return this;
+        }
+
+        public Builder userId(UUID userId) {
+            request.userId = userId;
+            return this;
+        }
+
+        public Builder quantities(Map<UUID, Integer> quantities) {
+            request.quantities = quantities;
+            return this;
+        }
+
+        public Builder status(Status status) {
+            request.status = status;
+            return this;
+        }
+
+        public Builder error(String error) {
+            request.error = error;
+            return this;
+        }
+
+        public Builder attempts(int attempts) {
+            request.attempts = attempts;
+            return this;
+        }
+
+        public Builder createdAt(LocalDateTime createdAt) {
+            request.createdAt = createdAt;
+            return this;
+        }
+
+        public OrderRequest build() {
+            return request;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package br.com.labs.model;
+
+import java.util.UUID;
+
+/**
+ * A typeahead match: enough to render the suggestion, plus the units sold used to rank it.
+ */
+public record ProductSuggestion(UUID id, String name, String code, long popularity) {
+}
@@ -0,0 +1,10 @@
+package br.com.labs.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Just enough of a product to revalidate a cached copy: its version and last update time.
+ */
+public record ProductVersion(UUID id, int version, LocalDateTime updatedAt) {
+}
@@ -0,0 +1,9 @@
+package br.com.labs.model;
+
+import java.util.UUID;
+
+/**
+ * A product that could not cover the quantity requested for it.
+ */
+public record StockShortage(UUID productId, int requested, int available) {
+}
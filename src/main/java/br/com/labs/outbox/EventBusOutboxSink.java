@@ -0,0 +1,40 @@
+package br.com.labs.outbox;
+
+import br.com.labs.repository.OutboxEvent;
+import io.vertx.core.Future;
+import io.vertx.core.eventbus.EventBus;
+
+import java.util.List;
+
+/**
+ * Publishes each event to {@code outbox.<eventType>}, for example {@code outbox.order.created}.
+ * Publishing does not wait for consumers, so delivery is at least once up to the event bus only:
+ * a consumer that is not registered when the event is published misses it.
+ */
+public class EventBusOutboxSink implements OutboxSink {
+
+    public static final String ADDRESS_PREFIX = "outbox.";
+
+    private final EventBus eventBus;
+
+    public EventBusOutboxSink(EventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    public static String address(String eventType) {
+        return ADDRESS_PREFIX + eventType;
+    }
+
+    @Override
+    public Future<Void> publish(List<OutboxEvent> events) {
+        for (OutboxEvent event : events) {
+            eventBus.publish(address(event.eventType()), event.toJson());
+        }
+        return Future.succeededFuture();
+    }
+
+    @Override
+    public String name() {
+        return "eventbus";
+    }
+}
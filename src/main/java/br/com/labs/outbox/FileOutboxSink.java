@@ -0,0 +1,52 @@
+package br.com.labs.outbox;
+
+import br.com.labs.repository.OutboxEvent;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.AsyncFile;
+import io.vertx.core.file.OpenOptions;
+
+import java.util.List;
+
+/**
+ * Appends the events to a file, one JSON object per line (NDJSON). Each batch is one write followed
+ * by a flush to disk, so a batch is only removed from the outbox once it is durable in the file.
+ */
+public class FileOutboxSink implements OutboxSink {
+
+    private final Vertx vertx;
+    private final String path;
+    private Future<AsyncFile> file;
+
+    public FileOutboxSink(Vertx vertx, String path) {
+        this.vertx = vertx;
+        this.path = path;
+    }
+
+    @Override
+    public Future<Void> publish(List<OutboxEvent> events) {
+        Buffer lines = Buffer.buffer();
+        for (OutboxEvent event : events) {
+            lines.appendString(event.toJson().encode()).appendString("\n");
+        }
+        return open().compose(opened -> opened.write(lines).compose(v -> opened.flush()));
+    }
+
+    private Future<AsyncFile> open() {
+        if (file == null || file.failed()) {
+            file = vertx.fileSystem().open(path, new OpenOptions().setAppend(true).setCreate(true));
+        }
+        return file;
+    }
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public Future<Void> close() {
+        return file != null && file.succeeded() ? file.result().close() : Future.succeededFuture();
+    }
+}
@@ -0,0 +1,130 @@
+package br.com.labs.outbox;
+
+import br.com.labs.repository.OutboxEvent;
+import br.com.labs.repository.OutboxRepository;
+import br.com.labs.repository.TransactionManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Relays the outbox to a sink. Each batch is one transaction: claim the pending events of a set of
+ * aggregates, publish them in order, delete them, commit. A crash or a failed publish rolls the
+ * transaction back and the batch is published again, so delivery is at least once.
+ *
+ * Claims skip the aggregates locked by other relays, so instances on every node share the outbox, and
+ * the events of one aggregate are always published by one relay at a time, in order. A claim holds one
+ * connection while the sink publishes.
+ */
+public class OutboxRelayVerticle extends AbstractVerticle {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelayVerticle.class);
+
+    private final OutboxRepository repository;
+    private final TransactionManager transactionManager;
+    private final Function<Vertx, OutboxSink> sinkFactory;
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final MeterRegistry meterRegistry;
+
+    private OutboxSink sink;
+    private Counter published;
+    private Counter failures;
+    private Timer lag;
+    private long pollTimer = -1;
+    private boolean polling;
+
+    /**
+     * @param sinkFactory creates the sink of this instance, on its own event loop
+     */
+    public OutboxRelayVerticle(OutboxRepository repository, TransactionManager transactionManager,
+                               Function<Vertx, OutboxSink> sinkFactory, int batchSize, long pollIntervalMs,
+                               MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.transactionManager = transactionManager;
+        this.sinkFactory = sinkFactory;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void start() {
+        sink = sinkFactory.apply(vertx);
+        published = Counter.builder("outbox.published")
+                .description("Outbox events published and removed from the outbox")
+                .tag("sink", sink.name())
+                .register(meterRegistry);
+        failures = Counter.builder("outbox.publish.failures")
+                .description("Outbox batches rolled back to be published again")
+                .tag("sink", sink.name())
+                .register(meterRegistry);
+        lag = Timer.builder("outbox.lag")
+                .description("Time from committing a change to publishing its event")
+                .tag("sink", sink.name())
+                .register(meterRegistry);
+
+        pollTimer = vertx.setPeriodic(pollIntervalMs, id -> poll());
+        poll();
+    }
+
+    @Override
+    public void stop(Promise<Void> stopPromise) {
+        vertx.cancelTimer(pollTimer);
+        sink.close().onComplete(ar -> stopPromise.complete());
+    }
+
+    /**
+     * Relays one batch, and the next one right away while batches come back full.
+     */
+    Future<Integer> poll() {
+        if (polling) {
+            return Future.succeededFuture(0);
+        }
+        polling = true;
+
+        return relay()
+                .onComplete(ar -> {
+                    polling = false;
+                    if (ar.failed()) {
+                        failures.increment();
+                        logger.warn("Failed to relay outbox events to {}, retrying on the next poll",
+                                sink.name(), ar.cause());
+                    } else if (ar.result() == batchSize) {
+                        poll();
+                    }
+                });
+    }
+
+    private Future<Integer> relay() {
+        return transactionManager.<List<OutboxEvent>>inTransaction(conn -> repository.claim(conn, batchSize)
+                        .compose(events -> {
+                            if (events.isEmpty()) {
+                                return Future.succeededFuture(events);
+                            }
+                            List<Long> ids = events.stream().map(OutboxEvent::id).toList();
+                            return sink.publish(events)
+                                    .compose(v -> repository.delete(conn, ids))
+                                    .map(events);
+                        }))
+                .map(events -> {
+                    LocalDateTime now = LocalDateTime.now();
+                    for (OutboxEvent event : events) {
+                        lag.record(Duration.between(event.createdAt(), now));
+                    }
+                    published.increment(events.size());
+                    return events.size();
+                });
+    }
+}
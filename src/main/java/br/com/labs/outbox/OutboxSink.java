@@ -0,0 +1,27 @@
+package br.com.labs.outbox;
+
+import br.com.labs.repository.OutboxEvent;
+import io.vertx.core.Future;
+
+import java.util.List;
+
+/**
+ * Destination of the events relayed from the outbox.
+ */
+public interface OutboxSink {
+
+    /**
+     * Delivers a batch of events in the given order. When the future fails, the whole batch stays in the
+     * outbox and is delivered again, so consumers must drop the events they already have, by event id.
+     */
+    Future<Void> publish(List<OutboxEvent> events);
+
+    /**
+     * Name used as the sink tag of the relay metrics.
+     */
+    String name();
+
+    default Future<Void> close() {
+        return Future.succeededFuture();
+    }
+}
@@ -0,0 +1,60 @@
+package br.com.labs.outbox;
+
+import br.com.labs.repository.OutboxEvent;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxException;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.json.JsonArray;
+
+import java.util.List;
+
+/**
+ * POSTs each batch to a URL as a JSON array of events. Any answer other than 2xx, or no answer within
+ * the timeout, fails the batch, which is sent again on the next poll.
+ */
+public class WebhookOutboxSink implements OutboxSink {
+
+    private final HttpClient client;
+    private final String url;
+    private final long timeoutMs;
+
+    public WebhookOutboxSink(Vertx vertx, String url, long timeoutMs) {
+        this.client = vertx.createHttpClient();
+        this.url = url;
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    public Future<Void> publish(List<OutboxEvent> events) {
+        JsonArray body = new JsonArray();
+        events.forEach(event -> body.add(event.toJson()));
+
+        RequestOptions options = new RequestOptions()
+                .setMethod(HttpMethod.POST)
+                .setAbsoluteURI(url)
+                .setIdleTimeout(timeoutMs)
+                .putHeader("content-type", "application/json");
+
+        return client.request(options)
+                .compose(request -> request.send(body.toBuffer()))
+                .compose(response -> {
+                    if (response.statusCode() / 100 != 2) {
+                        return Future.failedFuture(new VertxException("Webhook answered " + response.statusCode(), true));
+                    }
+                    return response.body().mapEmpty();
+                });
+    }
+
+    @Override
+    public String name() {
+        return "webhook";
+    }
+
+    @Override
+    public Future<Void> close() {
+        return client.close();
+    }
+}
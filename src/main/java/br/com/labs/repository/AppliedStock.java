@@ -0,0 +1,13 @@
+package br.com.labs.repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Outcome of applying the pending stock decrements of reserved products.
+ *
+ * @param items the number of order items applied
+ * @param productIds the products whose stock was changed
+ */
+public record AppliedStock(int items, List<UUID> productIds) {
+}
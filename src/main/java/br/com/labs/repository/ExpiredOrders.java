@@ -0,0 +1,19 @@
+package br.com.labs.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Outcome of one batch of pending orders cancelled for being too old.
+ *
+ * @param cancelled number of orders cancelled
+ * @param releasedUnits units put back per product, including items whose decrement was still deferred
+ * @param restockedProducts the products whose stock row was changed
+ */
+public record ExpiredOrders(int cancelled, Map<UUID, Integer> releasedUnits, List<UUID> restockedProducts) {
+
+    public int totalUnits() {
+        return releasedUnits.values().stream().mapToInt(Integer::intValue).sum();
+    }
+}
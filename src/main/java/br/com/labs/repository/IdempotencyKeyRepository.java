@@ -0,0 +1,32 @@
+package br.com.labs.repository;
+
+import io.vertx.core.Future;
+import io.vertx.sqlclient.SqlClient;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Idempotency keys of order creation, scoped to the user who sent them.
+ */
+public interface IdempotencyKeyRepository {
+
+    Future<Optional<StoredIdempotencyKey>> find(UUID userId, String key);
+
+    /**
+     * Stores the key with the response of the request that used it.
+     *
+     * @param client the client to run on, the transaction that created the order
+     * @return Future with false when the key was already stored by a concurrent request; the insert
+     *         waits for that request's transaction, so false means it committed
+     */
+    Future<Boolean> save(SqlClient client, UUID userId, String key, StoredIdempotencyKey stored);
+
+    /**
+     * Deletes the keys created before the cutoff.
+     *
+     * @return Future with the number of keys deleted
+     */
+    Future<Integer> deleteCreatedBefore(LocalDateTime cutoff);
+}
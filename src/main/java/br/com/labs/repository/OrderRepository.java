@@ -1,24 +1,98 @@
 package br.com.labs.repository;
 
+import br.com.labs.dto.request.FieldSet;
+import br.com.labs.dto.request.PageCursor;
 import br.com.labs.model.Order;
 import br.com.labs.model.OrderItem;
 import io.vertx.core.Future;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.sqlclient.SqlClient;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 
 public interface OrderRepository {
 
     Future<Order> save(Order order);
 
+    /**
+     * Returns the order with its items, read in a single query.
+     */
     Future<Optional<Order>> findById(UUID id);
 
-    Future<List<Order>> findByUserId(UUID userId, int page, int size);
+    /**
+     * Returns a page of the user's orders loading only the columns of the requested fields.
+     * With {@code withItems} every order carries its items, aggregated in the same query.
+     */
+    Future<List<Order>> findByUserId(UUID userId, int page, int size, FieldSet fields, boolean withItems);
+
+    /**
+     * Keyset pagination: returns up to {@code limit} orders of the user ordered by (created_at DESC, id DESC)
+     * that come after the cursor, or from the start when the cursor is null.
+     * With {@code withItems} every order carries its items, aggregated in the same query.
+     */
+    Future<List<Order>> findByUserIdAfter(UUID userId, PageCursor cursor, int limit, FieldSet fields,
+                                          boolean withItems);
 
     Future<Long> countByUserId(UUID userId);
 
+    /**
+     * Returns the page of the user's orders and their exact total in a single query using COUNT(*) OVER ().
+     * The total is unknown (-1) when the page is past the last row.
+     * With {@code withItems} every order carries its items, aggregated in the same query.
+     */
+    Future<PagedResult<Order>> findByUserIdWithCount(UUID userId, int page, int size, FieldSet fields,
+                                                     boolean withItems);
+
+    /**
+     * Opens a server-side cursor over all the user's orders, newest first, each row carrying the order's items,
+     * and hands it to the consumer as a stream. Rows are fetched only while the stream is not paused; the
+     * transaction holding the cursor stays open until the future returned by the consumer completes.
+     */
+    Future<Void> streamByUserId(UUID userId, Function<ReadStream<Order>, Future<Void>> consumer);
+
     Future<List<OrderItem>> findItemsByOrderId(UUID orderId);
 
     Future<OrderItem> saveItem(OrderItem item);
+
+    /**
+     * Inserts the order together with all of its items in a single statement.
+     *
+     * @param client the client to run on, usually a connection with an open transaction
+     * @param order the order to insert, with its items; its id is generated when null
+     * @param deferredStock products whose stock was reserved in memory and is decremented later
+     *                      by the reservation engine; their items are stored with stock_applied = false
+     * @return Future with the saved order and items
+     */
+    Future<Order> saveWithItems(SqlClient client, Order order, Set<UUID> deferredStock);
+
+    /**
+     * Cancels up to {@code limit} PENDING orders created before the given time, oldest first, and puts
+     * the stock of their items back, all in one statement. Orders locked by another transaction are
+     * skipped, so sweepers running on several nodes never wait on each other or cancel an order twice.
+     * Items whose decrement was still deferred are marked applied without touching products.stock.
+     *
+     * @param client the client to run on, usually a connection with an open transaction
+     * @return Future with the number of orders cancelled and the units released per product
+     */
+    Future<ExpiredOrders> cancelExpired(SqlClient client, LocalDateTime createdBefore, int limit);
+
+    /**
+     * Moves the requested orders to the target status in a single statement, each one only if it is in one
+     * of the source statuses and, when an expected version is given, still has that version. Moving to
+     * CANCELLED also puts back the stock of the cancelled orders' items in the same statement.
+     *
+     * @param expectedVersions requested order IDs mapped to the version each must still have;
+     *                         a null version skips the check for that order
+     * @param sources statuses the orders may be in to move to the target
+     * @param userId when not null, only that user's orders are moved; the others are reported as missing
+     * @return Future with the orders updated, the ones refused and the ones that do not exist
+     */
+    Future<StatusTransitionResult> transitionStatus(Map<UUID, Integer> expectedVersions, Order.OrderStatus target,
+                                                    List<Order.OrderStatus> sources, UUID userId);
 }
@@ -0,0 +1,43 @@
+package br.com.labs.repository;
+
+import br.com.labs.model.OrderRequest;
+import io.vertx.core.Future;
+import io.vertx.sqlclient.SqlClient;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Queue of orders accepted for asynchronous creation.
+ */
+public interface OrderRequestRepository {
+
+    Future<OrderRequest> save(OrderRequest request);
+
+    Future<Optional<OrderRequest>> findByIdAndUserId(UUID id, UUID userId);
+
+    /**
+     * Claims up to {@code limit} queued requests, oldest first, hiding them from other workers for the lease
+     * and counting the attempt. Requests claimed by a concurrent worker are skipped, not waited for.
+     */
+    Future<List<OrderRequest>> claim(int limit, Duration lease);
+
+    /**
+     * Removes the request once its order exists.
+     *
+     * @param client the client to run on, the transaction that created the order
+     */
+    Future<Void> delete(SqlClient client, UUID id);
+
+    Future<Void> markFailed(UUID id, String error);
+
+    /**
+     * Deletes the failed requests created before the cutoff.
+     *
+     * @return Future with the number of requests deleted
+     */
+    Future<Integer> deleteFailedBefore(LocalDateTime cutoff);
+}
@@ -0,0 +1,28 @@
+package br.com.labs.repository;
+
+import io.vertx.core.json.JsonObject;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An event written to the outbox together with the change it describes.
+ *
+ * @param id position in the outbox; increases with commit order within an aggregate, and lets
+ *           consumers drop the duplicates that at-least-once delivery can produce
+ * @param aggregateType "order" or "product"
+ * @param eventType for example "order.created" or "product.stock_changed"
+ */
+public record OutboxEvent(long id, String aggregateType, UUID aggregateId, String eventType,
+                          JsonObject payload, LocalDateTime createdAt) {
+
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("id", id)
+                .put("aggregateType", aggregateType)
+                .put("aggregateId", aggregateId.toString())
+                .put("eventType", eventType)
+                .put("payload", payload)
+                .put("createdAt", createdAt.toString());
+    }
+}
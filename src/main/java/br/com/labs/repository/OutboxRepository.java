@@ -0,0 +1,25 @@
+package br.com.labs.repository;
+
+import io.vertx.core.Future;
+import io.vertx.sqlclient.SqlClient;
+
+import java.util.List;
+
+/**
+ * Reads the outbox for the relay. Events are written by the repositories that make the changes,
+ * in the same statements.
+ */
+public interface OutboxRepository {
+
+    /**
+     * Claims the pending events of up to {@code limit} aggregates, locking the oldest event of each
+     * so no other relay takes the same aggregates until this transaction ends. Aggregates claimed by
+     * another relay are skipped.
+     *
+     * @param client a connection with an open transaction, held while the events are published
+     * @return Future with at most {@code limit} events, oldest first
+     */
+    Future<List<OutboxEvent>> claim(SqlClient client, int limit);
+
+    Future<Void> delete(SqlClient client, List<Long> ids);
+}
@@ -0,0 +1,16 @@
+package br.com.labs.repository;
+
+import java.util.List;
+
+/**
+ * A page of rows together with the total number of rows, fetched in a single query.
+ *
+ * @param content the rows of the page
+ * @param total the total number of rows, or -1 when it could not be read from the page
+ */
+public record PagedResult<T>(List<T> content, long total) {
+
+    public boolean hasTotal() {
+        return total >= 0;
+    }
+}
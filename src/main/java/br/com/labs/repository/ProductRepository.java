@@ -1,28 +1,108 @@
 package br.com.labs.repository;
 
+import br.com.labs.dto.request.FieldSet;
+import br.com.labs.dto.request.PageCursor;
+import br.com.labs.dto.request.SearchCursor;
 import br.com.labs.model.Product;
+import br.com.labs.model.ProductSuggestion;
+import br.com.labs.model.ProductVersion;
 import io.vertx.core.Future;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.sqlclient.SqlClient;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public interface ProductRepository {
 
     Future<Product> save(Product product);
 
-    Future<Product> update(Product product);
+    /**
+     * Updates a product using optimistic locking and increments its version.
+     *
+     * @param product the product with the version it was read at
+     * @return Future with the updated Product, or empty if the version no longer matches
+     */
+    Future<Optional<Product>> update(Product product);
+
+    /**
+     * Inserts the products or, when the code already exists, overwrites name, description, price,
+     * stock and category in a single statement. Rows identical to the stored product are left alone.
+     * Codes must be unique within the list. Existing rows are first locked in ascending ID order,
+     * like {@link #decrementStock(SqlClient, Map)}, so an import and concurrent orders cannot deadlock.
+     *
+     * @param client the client to run on, a connection with an open transaction for the locks to hold
+     * @param products the products to write
+     */
+    Future<ProductUpsertResult> upsertByCode(SqlClient client, List<Product> products);
 
     Future<Optional<Product>> findById(UUID id);
 
     Future<Optional<Product>> findByCode(String code);
 
-    Future<List<Product>> findAll(int page, int size);
+    /**
+     * Reads only the version and update time of a product, for conditional requests.
+     */
+    Future<Optional<ProductVersion>> findVersion(UUID id);
+
+    /**
+     * Returns the products with the given IDs in a single query.
+     * IDs that do not exist are absent from the result, which is in no particular order.
+     */
+    Future<List<Product>> findByIds(List<UUID> ids);
+
+    /**
+     * Returns a page of products loading only the columns of the requested fields.
+     */
+    Future<List<Product>> findAll(int page, int size, FieldSet fields);
 
     Future<List<Product>> findByCategory(UUID categoryId, int page, int size);
 
+    /**
+     * Keyset pagination: returns up to {@code limit} products ordered by (created_at DESC, id DESC)
+     * that come after the cursor, or from the start when the cursor is null.
+     */
+    Future<List<Product>> findAllAfter(PageCursor cursor, int limit, FieldSet fields);
+
+    /**
+     * Full-text search over name, code and description, ordered by (rank DESC, id DESC)
+     * and paginated by keyset like {@link #findAllAfter}. Single words of three or more
+     * characters also match code prefixes, which rank above text matches.
+     */
+    Future<List<ProductSearchHit>> search(String query, SearchCursor cursor, int limit, FieldSet fields);
+
+    /**
+     * Streams every product with its popularity (units sold in orders not cancelled) to the consumer,
+     * fetching the rows in batches so the whole table is never held in one result set.
+     */
+    Future<Void> streamSuggestions(Consumer<ProductSuggestion> consumer);
+
+    /**
+     * Opens a server-side cursor over all products, newest first, and hands it to the consumer as a stream.
+     * Rows are fetched only while the stream is not paused; the transaction holding the cursor stays open
+     * until the future returned by the consumer completes.
+     */
+    Future<Void> streamAll(FieldSet fields, Function<ReadStream<Product>, Future<Void>> consumer);
+
     Future<Long> count();
 
+    /**
+     * Returns the page and the exact total in a single query using COUNT(*) OVER ().
+     * The total is unknown (-1) when the page is past the last row.
+     */
+    Future<PagedResult<Product>> findAllWithCount(int page, int size, FieldSet fields);
+
+    /**
+     * Returns the page and the planner's row estimate (pg_class.reltuples) in a single query.
+     * The estimate is -1 when the table has never been analyzed.
+     */
+    Future<PagedResult<Product>> findAllWithEstimatedCount(int page, int size, FieldSet fields);
+
     Future<Boolean> delete(UUID id);
 
     Future<Boolean> existsByCode(String code);
@@ -37,4 +117,33 @@ public interface ProductRepository {
      * @return Future with the updated Product if successful, or empty if version mismatch or insufficient stock
      */
     Future<Optional<Product>> decrementStock(UUID productId, int quantity, int expectedVersion);
+
+    /**
+     * Loads all products with the given IDs in a single query.
+     * IDs without a matching product are simply absent from the result.
+     *
+     * @param client the client to run on, usually a connection with an open transaction
+     * @param ids the product IDs
+     * @return Future with the products found
+     */
+    Future<List<Product>> findByIds(SqlClient client, List<UUID> ids);
+
+    /**
+     * Decrements the stock of several products in a single statement, all or nothing.
+     * Rows are locked in ascending ID order before any of them is updated, so concurrent
+     * multi-item orders queue behind each other instead of deadlocking.
+     *
+     * @param client the client to run on, usually a connection with an open transaction
+     * @param quantities the quantity to decrement per product ID
+     * @return Future with the updated products, or with every missing and short product when nothing was applied
+     */
+    Future<StockDecrementResult> decrementStock(SqlClient client, Map<UUID, Integer> quantities);
+
+    /**
+     * Drops any in-memory copy of the given products. Called once a statement that changed them without
+     * going through this repository has committed, e.g. a reservation flush or an order cancellation.
+     * Repositories without a cache have nothing to drop.
+     */
+    default void evict(Collection<UUID> ids) {
+    }
 }
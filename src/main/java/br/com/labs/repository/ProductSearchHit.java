@@ -0,0 +1,9 @@
+package br.com.labs.repository;
+
+import br.com.labs.model.Product;
+
+/**
+ * A product matched by a full-text search, with the rank it was ordered by.
+ */
+public record ProductSearchHit(Product product, float rank) {
+}
@@ -0,0 +1,14 @@
+package br.com.labs.repository;
+
+import br.com.labs.model.Product;
+
+import java.util.List;
+
+/**
+ * Outcome of an upsert by code. Products whose values did not change are in neither list.
+ *
+ * @param inserted products created by the upsert
+ * @param updated existing products that were changed, with their new version
+ */
+public record ProductUpsertResult(List<Product> inserted, List<Product> updated) {
+}
@@ -0,0 +1,20 @@
+package br.com.labs.repository;
+
+import br.com.labs.model.Order;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Outcome of a set-based status transition.
+ *
+ * @param updated the orders moved to the new status, with their new version
+ * @param rejected requested orders left as they were, holding only their id, current status and version
+ * @param missing requested order IDs that do not exist
+ * @param releasedUnits units put back per product by a cancellation; empty for other transitions
+ * @param restockedProducts the products whose stock row a cancellation changed; empty for other transitions
+ */
+public record StatusTransitionResult(List<Order> updated, List<Order> rejected, List<UUID> missing,
+                                     Map<UUID, Integer> releasedUnits, List<UUID> restockedProducts) {
+}
@@ -0,0 +1,22 @@
+package br.com.labs.repository;
+
+import br.com.labs.model.Product;
+import br.com.labs.model.StockShortage;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Outcome of an all-or-nothing stock decrement.
+ * Either every product was updated, or none was and the missing and short products are listed.
+ *
+ * @param updated the products after the decrement; empty when nothing was applied
+ * @param missing requested product IDs that do not exist
+ * @param shortages products whose stock did not cover the requested quantity
+ */
+public record StockDecrementResult(List<Product> updated, List<UUID> missing, List<StockShortage> shortages) {
+
+    public boolean isApplied() {
+        return missing.isEmpty() && shortages.isEmpty();
+    }
+}
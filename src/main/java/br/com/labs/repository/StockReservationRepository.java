@@ -0,0 +1,28 @@
+package br.com.labs.repository;
+
+import io.vertx.core.Future;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Persistence for the in-memory stock reservation engine.
+ */
+public interface StockReservationRepository {
+
+    /**
+     * Loads the stock that can still be reserved: products.stock minus the quantity of
+     * order items whose decrement has not been applied yet.
+     * Products that do not exist are absent from the result.
+     */
+    Future<Map<UUID, Integer>> loadAvailable(List<UUID> productIds);
+
+    /**
+     * Applies every pending decrement of the given products in one statement and marks
+     * the order items as applied.
+     *
+     * @return Future with the number of order items applied and the products whose stock changed
+     */
+    Future<AppliedStock> applyPending(List<UUID> productIds);
+}
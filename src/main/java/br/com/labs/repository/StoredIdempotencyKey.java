@@ -0,0 +1,13 @@
+package br.com.labs.repository;
+
+import java.util.UUID;
+
+/**
+ * An Idempotency-Key already used by a successful request.
+ *
+ * @param requestHash fingerprint of the request that used the key, to refuse the key for a different request
+ * @param orderId the order the request created
+ * @param response the order as returned to the first request, in JSON
+ */
+public record StoredIdempotencyKey(String requestHash, UUID orderId, String response) {
+}
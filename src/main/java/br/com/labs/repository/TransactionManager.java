@@ -0,0 +1,18 @@
+package br.com.labs.repository;
+
+import io.vertx.core.Future;
+import io.vertx.sqlclient.SqlConnection;
+
+import java.util.function.Function;
+
+public interface TransactionManager {
+
+    /**
+     * Runs the given work inside a single database transaction.
+     * The transaction is committed when the returned future succeeds and rolled back when it fails.
+     *
+     * @param work function receiving the transactional connection, to be passed to repository methods
+     * @return Future with the result of the work
+     */
+    <T> Future<T> inTransaction(Function<SqlConnection, Future<T>> work);
+}
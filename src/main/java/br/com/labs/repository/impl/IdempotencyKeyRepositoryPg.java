@@ -0,0 +1,68 @@
+package br.com.labs.repository.impl;
+
+import br.com.labs.repository.IdempotencyKeyRepository;
+import br.com.labs.repository.StoredIdempotencyKey;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.SqlClient;
+import io.vertx.sqlclient.Tuple;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+public class IdempotencyKeyRepositoryPg implements IdempotencyKeyRepository {
+
+    private final Pool pool;
+
+    public IdempotencyKeyRepositoryPg(Pool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public Future<Optional<StoredIdempotencyKey>> find(UUID userId, String key) {
+        String sql = """
+            SELECT request_hash, order_id, response::text AS response
+            FROM idempotency_keys
+            WHERE user_id = $1 AND idempotency_key = $2
+            """;
+
+        return pool.preparedQuery(sql)
+                .execute(Tuple.of(userId, key))
+                .map(rows -> {
+                    if (rows.rowCount() == 0) {
+                        return Optional.empty();
+                    }
+                    Row row = rows.iterator().next();
+                    return Optional.of(new StoredIdempotencyKey(
+                            row.getString("request_hash"),
+                            row.getUUID("order_id"),
+                            row.getString("response")));
+                });
+    }
+
+    @Override
+    public Future<Boolean> save(SqlClient client, UUID userId, String key, StoredIdempotencyKey stored) {
+        String sql = """
+            INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash, order_id, response)
+            VALUES ($1, $2, $3, $4, $5)
+            ON CONFLICT (user_id, idempotency_key) DO NOTHING
+            """;
+
+        return client.preparedQuery(sql)
+                .execute(Tuple.of(userId, key, stored.requestHash(), stored.orderId(),
+                        new JsonObject(stored.response())))
+                .map(rows -> rows.rowCount() == 1);
+    }
+
+    @Override
+    public Future<Integer> deleteCreatedBefore(LocalDateTime cutoff) {
+        String sql = "DELETE FROM idempotency_keys WHERE created_at < $1";
+
+        return pool.preparedQuery(sql)
+                .execute(Tuple.of(cutoff))
+                .map(rows -> rows.rowCount());
+    }
+}
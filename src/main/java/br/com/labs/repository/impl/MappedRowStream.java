@@ -0,0 +1,59 @@
+package br.com.labs.repository.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowStream;
+
+import java.util.function.Function;
+
+/**
+ * A cursor-backed {@link RowStream} exposed as a stream of mapped entities.
+ * Pausing it stops fetching from the cursor, so rows are only read as fast as they are consumed.
+ */
+final class MappedRowStream<T> implements ReadStream<T> {
+
+    private final RowStream<Row> rows;
+    private final Function<Row, T> mapper;
+
+    MappedRowStream(RowStream<Row> rows, Function<Row, T> mapper) {
+        this.rows = rows;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public ReadStream<T> exceptionHandler(Handler<Throwable> handler) {
+        rows.exceptionHandler(handler);
+        return this;
+    }
+
+    @Override
+    public ReadStream<T> handler(Handler<T> handler) {
+        rows.handler(handler == null ? null : row -> handler.handle(mapper.apply(row)));
+        return this;
+    }
+
+    @Override
+    public ReadStream<T> pause() {
+        rows.pause();
+        return this;
+    }
+
+    @Override
+    public ReadStream<T> resume() {
+        rows.resume();
+        return this;
+    }
+
+    @Override
+    public ReadStream<T> fetch(long amount) {
+        rows.fetch(amount);
+        return this;
+    }
+
+    @Override
+    public ReadStream<T> endHandler(Handler<Void> endHandler) {
+        rows.endHandler(endHandler);
+        return this;
+    }
+}
@@ -1,22 +1,50 @@
 package br.com.labs.repository.impl;
 
+import br.com.labs.dto.request.FieldSet;
+import br.com.labs.dto.request.PageCursor;
 import br.com.labs.model.Order;
 import br.com.labs.model.OrderItem;
+import br.com.labs.repository.ExpiredOrders;
 import br.com.labs.repository.OrderRepository;
+import br.com.labs.repository.PagedResult;
+import br.com.labs.repository.StatusTransitionResult;
 import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.sqlclient.Pool;
 import io.vertx.sqlclient.Row;
 import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.SqlClient;
 import io.vertx.sqlclient.Tuple;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 
 public class OrderRepositoryPg implements OrderRepository {
 
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    // Items of the order aliased o, aggregated into one JSON column so an order and its items come back
+    // in the same row. unit_price goes as text so the JSON number never passes through a double.
+    private static final String ITEMS_COLUMN = """
+            (SELECT COALESCE(json_agg(json_build_object(
+                        'id', oi.id,
+                        'productId', oi.product_id,
+                        'quantity', oi.quantity,
+                        'unitPrice', oi.unit_price::text) ORDER BY oi.id), '[]'::json)
+             FROM order_items oi
+             WHERE oi.order_id = o.id) AS items""";
+
     private final Pool pool;
 
     public OrderRepositoryPg(Pool pool) {
@@ -28,7 +56,7 @@ public class OrderRepositoryPg implements OrderRepository {
         String sql = """
             INSERT INTO orders (user_id, status, total, created_at, updated_at)
             VALUES ($1, $2, $3, $4, $5)
-            RETURNING id, user_id, status, total, created_at, updated_at
+            RETURNING id, user_id, status, total, version, created_at, updated_at
             """;
 
         LocalDateTime now = LocalDateTime.now();
@@ -46,31 +74,55 @@ public class OrderRepositoryPg implements OrderRepository {
 
     @Override
     public Future<Optional<Order>> findById(UUID id) {
-        String sql = "SELECT * FROM orders WHERE id = $1";
+        String sql = "SELECT o.*, " + ITEMS_COLUMN + " FROM orders o WHERE o.id = $1";
 
         return pool.preparedQuery(sql)
                 .execute(Tuple.of(id))
-                .compose(rows -> {
+                .map(rows -> {
                     if (rows.rowCount() == 0) {
-                        return Future.succeededFuture(Optional.empty());
+                        return Optional.empty();
                     }
-                    Order order = mapRow(rows.iterator().next());
-                    return findItemsByOrderId(order.getId())
-                            .map(items -> {
-                                order.setItems(items);
-                                return Optional.of(order);
-                            });
+                    Row row = rows.iterator().next();
+                    Order order = mapRow(row);
+                    order.setItems(mapAggregatedItems(order.getId(), row.getJsonArray("items")));
+                    return Optional.of(order);
                 });
     }
 
     @Override
-    public Future<List<Order>> findByUserId(UUID userId, int page, int size) {
-        String sql = "SELECT * FROM orders WHERE user_id = $1 ORDER BY created_at DESC LIMIT $2 OFFSET $3";
+    public Future<List<Order>> findByUserId(UUID userId, int page, int size, FieldSet fields, boolean withItems) {
+        String sql = "SELECT " + selectList(fields, withItems)
+                + " FROM orders o WHERE user_id = $1 ORDER BY created_at DESC, id DESC LIMIT $2 OFFSET $3";
         int offset = page * size;
 
         return pool.preparedQuery(sql)
                 .execute(Tuple.of(userId, size, offset))
-                .map(this::mapRows);
+                .map(rows -> mapRows(rows, fields, withItems));
+    }
+
+    @Override
+    public Future<List<Order>> findByUserIdAfter(UUID userId, PageCursor cursor, int limit, FieldSet fields,
+                                                 boolean withItems) {
+        if (cursor == null) {
+            String sql = "SELECT " + selectList(fields, withItems)
+                    + " FROM orders o WHERE user_id = $1 ORDER BY created_at DESC, id DESC LIMIT $2";
+
+            return pool.preparedQuery(sql)
+                    .execute(Tuple.of(userId, limit))
+                    .map(rows -> mapRows(rows, fields, withItems));
+        }
+
+        String sql = """
+            SELECT %s FROM orders o
+            WHERE user_id = $1
+              AND (created_at, id) < ($2, $3)
+            ORDER BY created_at DESC, id DESC
+            LIMIT $4
+            """.formatted(selectList(fields, withItems));
+
+        return pool.preparedQuery(sql)
+                .execute(Tuple.of(userId, cursor.getCreatedAt(), cursor.getId(), limit))
+                .map(rows -> mapRows(rows, fields, withItems));
     }
 
     @Override
@@ -82,6 +134,43 @@ public class OrderRepositoryPg implements OrderRepository {
                 .map(rows -> rows.iterator().next().getLong(0));
     }
 
+    @Override
+    public Future<PagedResult<Order>> findByUserIdWithCount(UUID userId, int page, int size, FieldSet fields,
+                                                            boolean withItems) {
+        String sql = """
+            SELECT %s, COUNT(*) OVER () AS total_count
+            FROM orders o
+            WHERE user_id = $1
+            ORDER BY created_at DESC, id DESC
+            LIMIT $2 OFFSET $3
+            """.formatted(selectList(fields, withItems));
+        int offset = page * size;
+
+        return pool.preparedQuery(sql)
+                .execute(Tuple.of(userId, size, offset))
+                .map(rows -> {
+                    List<Order> orders = new ArrayList<>();
+                    long total = -1;
+                    for (Row row : rows) {
+                        total = row.getLong("total_count");
+                        orders.add(mapRow(row, fields, withItems));
+                    }
+                    return new PagedResult<>(orders, total);
+                });
+    }
+
+    @Override
+    public Future<Void> streamByUserId(UUID userId, Function<ReadStream<Order>, Future<Void>> consumer) {
+        // Items are aggregated per order so the cursor yields one complete order per row
+        String sql = "SELECT " + selectList(FieldSet.ALL_ORDER_FIELDS, true)
+                + " FROM orders o WHERE user_id = $1 ORDER BY created_at DESC, id DESC";
+
+        return pool.withTransaction(connection -> connection.prepare(sql)
+                .compose(statement -> consumer.apply(new MappedRowStream<>(
+                        statement.createStream(STREAM_FETCH_SIZE, Tuple.of(userId)),
+                        row -> mapRow(row, FieldSet.ALL_ORDER_FIELDS, true)))));
+    }
+
     @Override
     public Future<List<OrderItem>> findItemsByOrderId(UUID orderId) {
         String sql = "SELECT * FROM order_items WHERE order_id = $1";
@@ -109,25 +198,330 @@ public class OrderRepositoryPg implements OrderRepository {
                 .map(rows -> mapItemRow(rows.iterator().next()));
     }
 
+    @Override
+    public Future<Order> saveWithItems(SqlClient client, Order order, Set<UUID> deferredStock) {
+        // Order, items and the outbox event go in one statement: the items CTE reads the order id,
+        // generated unless given
+        String sql = """
+            WITH new_order AS (
+                INSERT INTO orders (id, user_id, status, total, created_at, updated_at)
+                VALUES (COALESCE($9, gen_random_uuid()), $1, $2, $3, $4, $4)
+                RETURNING id, user_id, status, total, version, created_at, updated_at
+            ), new_items AS (
+                INSERT INTO order_items (order_id, product_id, quantity, unit_price, stock_applied)
+                SELECT new_order.id, item.product_id, item.quantity, item.unit_price, item.stock_applied
+                FROM new_order, unnest($5::uuid[], $6::int[], $7::numeric[], $8::boolean[])
+                    AS item(product_id, quantity, unit_price, stock_applied)
+                RETURNING id, order_id, product_id, quantity, unit_price
+            ), order_events AS (
+                %s
+            )
+            SELECT o.id, o.user_id, o.status, o.total, o.version, o.created_at, o.updated_at,
+                   i.id AS item_id, i.product_id, i.quantity, i.unit_price
+            FROM new_order o
+            JOIN new_items i ON i.order_id = o.id
+            """.formatted(OutboxStatements.orderCreated("new_order", "new_items"));
+
+        List<OrderItem> items = order.getItems();
+        UUID[] productIds = new UUID[items.size()];
+        Integer[] quantities = new Integer[items.size()];
+        BigDecimal[] unitPrices = new BigDecimal[items.size()];
+        Boolean[] stockApplied = new Boolean[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            productIds[i] = items.get(i).getProductId();
+            quantities[i] = items.get(i).getQuantity();
+            unitPrices[i] = items.get(i).getUnitPrice();
+            stockApplied[i] = !deferredStock.contains(productIds[i]);
+        }
+
+        return client.preparedQuery(sql)
+                .execute(Tuple.of(
+                        order.getUserId(),
+                        order.getStatus().name(),
+                        order.getTotal(),
+                        LocalDateTime.now(),
+                        productIds,
+                        quantities,
+                        unitPrices,
+                        stockApplied,
+                        order.getId()
+                ))
+                .map(rows -> {
+                    Order saved = null;
+                    List<OrderItem> savedItems = new ArrayList<>();
+                    for (Row row : rows) {
+                        if (saved == null) {
+                            saved = mapRow(row);
+                        }
+                        savedItems.add(OrderItem.builder()
+                                .id(row.getUUID("item_id"))
+                                .orderId(saved.getId())
+                                .productId(row.getUUID("product_id"))
+                                .quantity(row.getInteger("quantity"))
+                                .unitPrice(row.getBigDecimal("unit_price"))
+                                .build());
+                    }
+                    saved.setItems(savedItems);
+                    return saved;
+                });
+    }
+
+    @Override
+    public Future<ExpiredOrders> cancelExpired(SqlClient client, LocalDateTime createdBefore, int limit) {
+        // Lock the oldest expired orders, skipping the ones another sweeper or request holds
+        String sql = """
+            WITH targets AS (
+                SELECT id FROM orders
+                WHERE status = 'PENDING'
+                  AND created_at < $1
+                ORDER BY created_at
+                LIMIT $2
+                FOR UPDATE SKIP LOCKED
+            ),
+            %s
+            SELECT (SELECT COUNT(*) FROM cancelled)::int AS cancelled,
+                   (SELECT json_object_agg(product_id, quantity) FROM released) AS released,
+                   (SELECT COALESCE(array_agg(id), '{}') FROM updated_products) AS restocked
+            """.formatted(cancelCtes(3));
+
+        return client.preparedQuery(sql)
+                .execute(Tuple.of(createdBefore, limit, LocalDateTime.now()))
+                .map(rows -> {
+                    Row row = rows.iterator().next();
+                    return new ExpiredOrders(row.getInteger("cancelled"), mapReleased(row),
+                            Arrays.asList(row.getArrayOfUUIDs("restocked")));
+                });
+    }
+
+    @Override
+    public Future<StatusTransitionResult> transitionStatus(Map<UUID, Integer> expectedVersions,
+                                                           Order.OrderStatus target,
+                                                           List<Order.OrderStatus> sources,
+                                                           UUID userId) {
+        // Orders are locked in id order, like products, so overlapping bulk transitions cannot deadlock.
+        // A transition waiting on a lock re-checks status and version against the committed row,
+        // so two writers can never both move the same order.
+        boolean cancel = target == Order.OrderStatus.CANCELLED;
+        String transition = cancel ? cancelCtes(4) : """
+            updated AS (
+                UPDATE orders o
+                SET status = $6,
+                    version = o.version + 1,
+                    updated_at = $4
+                FROM targets t
+                WHERE o.id = t.id
+                RETURNING o.id, o.user_id, o.status, o.total, o.version, o.created_at, o.updated_at
+            ),
+            status_events AS (
+                %s
+            )""".formatted(OutboxStatements.orderStatusChanged("updated"));
+        String sql = """
+            WITH requested AS (
+                SELECT * FROM unnest($1::uuid[], $2::int[]) AS r(id, version)
+            ),
+            targets AS (
+                SELECT o.id
+                FROM orders o
+                JOIN requested r ON r.id = o.id
+                WHERE o.status = ANY($3)
+                  AND (r.version IS NULL OR o.version = r.version)
+                  AND ($5::uuid IS NULL OR o.user_id = $5)
+                ORDER BY o.id
+                FOR UPDATE OF o
+            ),
+            %s
+            SELECT r.id AS requested_id, u.id, u.user_id, u.status, u.total, u.version, u.created_at, u.updated_at,
+                   cur.status AS current_status, cur.version AS current_version, %s AS released,
+                   %s AS restocked
+            FROM requested r
+            LEFT JOIN %s u ON u.id = r.id
+            LEFT JOIN orders cur ON cur.id = r.id AND ($5::uuid IS NULL OR cur.user_id = $5)
+            """.formatted(transition,
+                cancel ? "(SELECT json_object_agg(product_id, quantity) FROM released)" : "NULL::json",
+                cancel ? "(SELECT COALESCE(array_agg(id), '{}') FROM updated_products)" : "'{}'::uuid[]",
+                cancel ? "cancelled" : "updated");
+
+        UUID[] ids = expectedVersions.keySet().toArray(new UUID[0]);
+        Integer[] versions = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            versions[i] = expectedVersions.get(ids[i]);
+        }
+        String[] sourceNames = sources.stream().map(Enum::name).toArray(String[]::new);
+        Tuple params = Tuple.of(ids, versions, sourceNames, LocalDateTime.now(), userId);
+        if (!cancel) {
+            params.addString(target.name());
+        }
+
+        return pool.preparedQuery(sql)
+                .execute(params)
+                .map(rows -> {
+                    List<Order> updated = new ArrayList<>();
+                    List<Order> rejected = new ArrayList<>();
+                    List<UUID> missing = new ArrayList<>();
+                    Map<UUID, Integer> released = Map.of();
+                    List<UUID> restocked = List.of();
+                    for (Row row : rows) {
+                        released = mapReleased(row);
+                        restocked = Arrays.asList(row.getArrayOfUUIDs("restocked"));
+                        if (row.getUUID("id") != null) {
+                            updated.add(mapRow(row));
+                        } else if (row.getString("current_status") != null) {
+                            rejected.add(Order.builder()
+                                    .id(row.getUUID("requested_id"))
+                                    .status(Order.OrderStatus.valueOf(row.getString("current_status")))
+                                    .version(row.getInteger("current_version"))
+                                    .build());
+                        } else {
+                            missing.add(row.getUUID("requested_id"));
+                        }
+                    }
+                    return new StatusTransitionResult(updated, rejected, missing, released, restocked);
+                });
+    }
+
+    /**
+     * CTEs cancelling the orders of a "targets" CTE that the statement has already locked:
+     * 1. Lock their items; a concurrent reservation flush is waited for, so stock_applied is current
+     * 2. Put back the stock already decremented, locking products in id order like order creation
+     * 3. Mark deferred items applied so the flush never decrements them, and cancel the orders
+     * They end with "cancelled", the orders as updated, "released", the units put back per product, and
+     * "updated_products", the product rows whose stock changed, and write the outbox events of the cancelled orders and of the products whose stock changed.
+     *
+     * @param updatedAtParam position of the update timestamp parameter
+     */
+    private static String cancelCtes(int updatedAtParam) {
+        return """
+            items AS (
+                SELECT oi.id, oi.product_id, oi.quantity, oi.stock_applied
+                FROM order_items oi
+                JOIN targets t ON t.id = oi.order_id
+                FOR UPDATE OF oi
+            ),
+            restored AS (
+                SELECT product_id, SUM(quantity)::int AS quantity
+                FROM items
+                WHERE stock_applied
+                GROUP BY product_id
+            ),
+            locked AS (
+                SELECT p.id
+                FROM products p
+                JOIN restored r ON r.product_id = p.id
+                ORDER BY p.id
+                FOR UPDATE OF p
+            ),
+            updated_products AS (
+                UPDATE products p
+                SET stock = p.stock + r.quantity,
+                    version = p.version + 1,
+                    updated_at = $%1$d
+                FROM restored r
+                JOIN locked l ON l.id = r.product_id
+                WHERE p.id = r.product_id
+                RETURNING p.id, p.stock, p.version
+            ),
+            applied AS (
+                UPDATE order_items oi
+                SET stock_applied = true
+                FROM items i
+                WHERE oi.id = i.id
+                  AND NOT i.stock_applied
+                RETURNING oi.id
+            ),
+            cancelled AS (
+                UPDATE orders o
+                SET status = 'CANCELLED',
+                    version = o.version + 1,
+                    updated_at = $%1$d
+                FROM targets t
+                WHERE o.id = t.id
+                RETURNING o.id, o.user_id, o.status, o.total, o.version, o.created_at, o.updated_at
+            ),
+            released AS (
+                SELECT product_id, SUM(quantity)::int AS quantity
+                FROM items
+                GROUP BY product_id
+            ),
+            stock_events AS (
+                %2$s
+            ),
+            status_events AS (
+                %3$s
+            )""".formatted(updatedAtParam, OutboxStatements.stockChanged("updated_products"),
+                OutboxStatements.orderStatusChanged("cancelled"));
+    }
+
+    private static Map<UUID, Integer> mapReleased(Row row) {
+        JsonObject json = row.getJsonObject("released");
+        if (json == null) {
+            return Map.of();
+        }
+        Map<UUID, Integer> released = new HashMap<>();
+        json.forEach(entry -> released.put(UUID.fromString(entry.getKey()), ((Number) entry.getValue()).intValue()));
+        return released;
+    }
+
     private Order mapRow(Row row) {
         return Order.builder()
                 .id(row.getUUID("id"))
                 .userId(row.getUUID("user_id"))
                 .status(Order.OrderStatus.valueOf(row.getString("status")))
                 .total(row.getBigDecimal("total"))
+                .version(row.getInteger("version"))
                 .createdAt(row.getLocalDateTime("created_at"))
                 .updatedAt(row.getLocalDateTime("updated_at"))
                 .build();
     }
 
-    private List<Order> mapRows(RowSet<Row> rows) {
+    /**
+     * Maps a row holding only the columns of the requested fields, leaving the others null.
+     */
+    private Order mapRow(Row row, FieldSet fields) {
+        if (fields.isAll()) {
+            return mapRow(row);
+        }
+
+        Order.Builder builder = Order.builder()
+                .id(row.getUUID("id"))
+                .createdAt(row.getLocalDateTime("created_at"));
+        if (fields.loads("userId")) {
+            builder.userId(row.getUUID("user_id"));
+        }
+        if (fields.loads("status")) {
+            builder.status(Order.OrderStatus.valueOf(row.getString("status")));
+        }
+        if (fields.loads("total")) {
+            builder.total(row.getBigDecimal("total"));
+        }
+        if (fields.loads("version")) {
+            builder.version(row.getInteger("version"));
+        }
+        if (fields.loads("updatedAt")) {
+            builder.updatedAt(row.getLocalDateTime("updated_at"));
+        }
+        return builder.build();
+    }
+
+    private Order mapRow(Row row, FieldSet fields, boolean withItems) {
+        Order order = mapRow(row, fields);
+        if (withItems) {
+            order.setItems(mapAggregatedItems(order.getId(), row.getJsonArray("items")));
+        }
+        return order;
+    }
+
+    private List<Order> mapRows(RowSet<Row> rows, FieldSet fields, boolean withItems) {
         List<Order> orders = new ArrayList<>();
         for (Row row : rows) {
-            orders.add(mapRow(row));
+            orders.add(mapRow(row, fields, withItems));
         }
         return orders;
     }
 
+    private static String selectList(FieldSet fields, boolean withItems) {
+        return withItems ? fields.columns() + ", " + ITEMS_COLUMN : fields.columns();
+    }
+
     private OrderItem mapItemRow(Row row) {
         return OrderItem.builder()
                 .id(row.getUUID("id"))
@@ -138,6 +532,21 @@ public class OrderRepositoryPg implements OrderRepository {
                 .build();
     }
 
+    private List<OrderItem> mapAggregatedItems(UUID orderId, JsonArray rows) {
+        List<OrderItem> items = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            JsonObject row = rows.getJsonObject(i);
+            items.add(OrderItem.builder()
+                    .id(UUID.fromString(row.getString("id")))
+                    .orderId(orderId)
+                    .productId(UUID.fromString(row.getString("productId")))
+                    .quantity(row.getInteger("quantity"))
+                    .unitPrice(new BigDecimal(row.getString("unitPrice")))
+                    .build());
+        }
+        return items;
+    }
+
     private List<OrderItem> mapItemRows(RowSet<Row> rows) {
         List<OrderItem> items = new ArrayList<>();
         for (Row row : rows) {
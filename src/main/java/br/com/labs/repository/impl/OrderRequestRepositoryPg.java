@@ -0,0 +1,131 @@
+package br.com.labs.repository.impl;
+
+import br.com.labs.model.OrderRequest;
+import br.com.labs.repository.OrderRequestRepository;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.SqlClient;
+import io.vertx.sqlclient.Tuple;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+public class OrderRequestRepositoryPg implements OrderRequestRepository {
+
+    private static final String COLUMNS = "id, user_id, items, status, error, attempts, created_at";
+
+    private final Pool pool;
+
+    public OrderRequestRepositoryPg(Pool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public Future<OrderRequest> save(OrderRequest request) {
+        String sql = """
+            INSERT INTO order_requests (id, user_id, items, available_at, created_at)
+            VALUES ($1, $2, $3, $4, $4)
+            RETURNING %s
+            """.formatted(COLUMNS);
+
+        JsonObject items = new JsonObject();
+        request.getQuantities().forEach((productId, quantity) -> items.put(productId.toString(), quantity));
+
+        return pool.preparedQuery(sql)
+                .execute(Tuple.of(request.getId(), request.getUserId(), items, LocalDateTime.now()))
+                .map(rows -> mapRow(rows.iterator().next()));
+    }
+
+    @Override
+    public Future<Optional<OrderRequest>> findByIdAndUserId(UUID id, UUID userId) {
+        String sql = "SELECT " + COLUMNS + " FROM order_requests WHERE id = $1 AND user_id = $2";
+
+        return pool.preparedQuery(sql)
+                .execute(Tuple.of(id, userId))
+                .map(rows -> rows.rowCount() == 0
+                        ? Optional.empty()
+                        : Optional.of(mapRow(rows.iterator().next())));
+    }
+
+    @Override
+    public Future<List<OrderRequest>> claim(int limit, Duration lease) {
+        String sql = """
+            UPDATE order_requests r
+            SET available_at = $2,
+                attempts = r.attempts + 1
+            FROM (
+                SELECT id FROM order_requests
+                WHERE status = 'QUEUED'
+                  AND available_at <= $3
+                ORDER BY available_at
+                LIMIT $1
+                FOR UPDATE SKIP LOCKED
+            ) claimed
+            WHERE r.id = claimed.id
+            RETURNING r.id, r.user_id, r.items, r.status, r.error, r.attempts, r.created_at
+            """;
+
+        LocalDateTime now = LocalDateTime.now();
+        return pool.preparedQuery(sql)
+                .execute(Tuple.of(limit, now.plus(lease), now))
+                .map(this::mapRows);
+    }
+
+    @Override
+    public Future<Void> delete(SqlClient client, UUID id) {
+        return client.preparedQuery("DELETE FROM order_requests WHERE id = $1")
+                .execute(Tuple.of(id))
+                .mapEmpty();
+    }
+
+    @Override
+    public Future<Void> markFailed(UUID id, String error) {
+        String sql = "UPDATE order_requests SET status = 'FAILED', error = $2 WHERE id = $1";
+
+        return pool.preparedQuery(sql)
+                .execute(Tuple.of(id, error))
+                .mapEmpty();
+    }
+
+    @Override
+    public Future<Integer> deleteFailedBefore(LocalDateTime cutoff) {
+        String sql = "DELETE FROM order_requests WHERE status = 'FAILED' AND created_at < $1";
+
+        return pool.preparedQuery(sql)
+                .execute(Tuple.of(cutoff))
+                .map(rows -> rows.rowCount());
+    }
+
+    private OrderRequest mapRow(Row row) {
+        Map<UUID, Integer> quantities = new LinkedHashMap<>();
+        row.getJsonObject("items").forEach(e -> quantities.put(UUID.fromString(e.getKey()),
+                ((Number) e.getValue()).intValue()));
+
+        return OrderRequest.builder()
+                .id(row.getUUID("id"))
+                .userId(row.getUUID("user_id"))
+                .quantities(quantities)
+                .status(OrderRequest.Status.valueOf(row.getString("status")))
+                .error(row.getString("error"))
+                .attempts(row.getInteger("attempts"))
+                .createdAt(row.getLocalDateTime("created_at"))
+                .build();
+    }
+
+    private List<OrderRequest> mapRows(RowSet<Row> rows) {
+        List<OrderRequest> requests = new ArrayList<>();
+        for (Row row : rows) {
+            requests.add(mapRow(row));
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,74 @@
+package br.com.labs.repository.impl;
+
+import br.com.labs.repository.OutboxEvent;
+import br.com.labs.repository.OutboxRepository;
+import io.vertx.core.Future;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.SqlClient;
+import io.vertx.sqlclient.Tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class OutboxRepositoryPg implements OutboxRepository {
+
+    // Oldest events examined per event of the batch, so relays on other nodes do not leave this one empty-handed
+    private static final int CANDIDATES_PER_EVENT = 4;
+
+    @Override
+    public Future<List<OutboxEvent>> claim(SqlClient client, int limit) {
+        // Only the head of each aggregate is locked. A later event of the same aggregate is never a head
+        // while an earlier one exists, so another relay cannot take it before this one commits its delete.
+        // Any prefix in id order is a prefix of every aggregate, so the LIMIT cannot break the order.
+        // Heads are picked by age: the oldest events are read off the primary key, and each is kept only
+        // when idx_outbox_aggregate has nothing earlier for its aggregate. The oldest pending event is
+        // always a candidate, so no aggregate waits behind newer ones however many aggregates are pending,
+        // and a poll reads a bounded number of rows. The cap leaves room for the heads other relays hold,
+        // which SKIP LOCKED passes over.
+        String sql = """
+            WITH candidates AS (
+                SELECT id, aggregate_id FROM outbox ORDER BY id LIMIT $2
+            ), heads AS (
+                SELECT e.id, e.aggregate_id
+                FROM outbox e
+                JOIN candidates c ON c.id = e.id
+                WHERE NOT EXISTS (
+                    SELECT 1 FROM outbox p
+                    WHERE p.aggregate_id = c.aggregate_id
+                      AND p.id < c.id
+                )
+                ORDER BY e.id
+                LIMIT $1
+                FOR UPDATE OF e SKIP LOCKED
+            )
+            SELECT e.id, e.aggregate_type, e.aggregate_id, e.event_type, e.payload, e.created_at
+            FROM outbox e
+            WHERE e.aggregate_id IN (SELECT aggregate_id FROM heads)
+            ORDER BY e.id
+            LIMIT $1
+            """;
+
+        return client.preparedQuery(sql)
+                .execute(Tuple.of(limit, limit * CANDIDATES_PER_EVENT))
+                .map(rows -> {
+                    List<OutboxEvent> events = new ArrayList<>();
+                    for (Row row : rows) {
+                        events.add(new OutboxEvent(
+                                row.getLong("id"),
+                                row.getString("aggregate_type"),
+                                row.getUUID("aggregate_id"),
+                                row.getString("event_type"),
+                                row.getJsonObject("payload"),
+                                row.getLocalDateTime("created_at")));
+                    }
+                    return events;
+                });
+    }
+
+    @Override
+    public Future<Void> delete(SqlClient client, List<Long> ids) {
+        return client.preparedQuery("DELETE FROM outbox WHERE id = ANY($1)")
+                .execute(Tuple.of(ids.toArray(new Long[0])))
+                .mapEmpty();
+    }
+}
@@ -0,0 +1,57 @@
+package br.com.labs.repository.impl;
+
+/**
+ * INSERT statements writing outbox events, to be used as CTEs of the statement that makes the change:
+ * the event commits with the change and costs no extra round trip. Each one reads the changed rows
+ * from a CTE of that statement, usually the RETURNING of its UPDATE or INSERT.
+ */
+final class OutboxStatements {
+
+    private OutboxStatements() {}
+
+    /**
+     * One "order.created" event per order, with its items.
+     *
+     * @param orders CTE with id, user_id, status, total, version and created_at of the new orders
+     * @param items CTE with order_id, product_id, quantity and unit_price of their items
+     */
+    static String orderCreated(String orders, String items) {
+        return """
+            INSERT INTO outbox (aggregate_type, aggregate_id, event_type, payload)
+            SELECT 'order', o.id, 'order.created', jsonb_build_object(
+                'orderId', o.id, 'userId', o.user_id, 'status', o.status, 'total', o.total,
+                'version', o.version, 'createdAt', o.created_at,
+                'items', (SELECT jsonb_agg(jsonb_build_object(
+                              'productId', i.product_id, 'quantity', i.quantity, 'unitPrice', i.unit_price))
+                          FROM %2$s i WHERE i.order_id = o.id))
+            FROM %1$s o""".formatted(orders, items);
+    }
+
+    /**
+     * One "order.status_changed" event per order, with the new status.
+     *
+     * @param orders CTE with id, user_id, status, version and updated_at of the updated orders
+     */
+    static String orderStatusChanged(String orders) {
+        return """
+            INSERT INTO outbox (aggregate_type, aggregate_id, event_type, payload)
+            SELECT 'order', o.id, 'order.status_changed', jsonb_build_object(
+                'orderId', o.id, 'userId', o.user_id, 'status', o.status, 'version', o.version,
+                'updatedAt', o.updated_at)
+            FROM %s o""".formatted(orders);
+    }
+
+    /**
+     * One "product.stock_changed" event per product, with the stock after the change. Consumers apply
+     * the stock with the highest version, so a duplicate is harmless.
+     *
+     * @param products CTE with id, stock and version of the changed products
+     */
+    static String stockChanged(String products) {
+        return """
+            INSERT INTO outbox (aggregate_type, aggregate_id, event_type, payload)
+            SELECT 'product', p.id, 'product.stock_changed', jsonb_build_object(
+                'productId', p.id, 'stock', p.stock, 'version', p.version)
+            FROM %s p""".formatted(products);
+    }
+}
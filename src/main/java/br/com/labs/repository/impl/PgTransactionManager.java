@@ -0,0 +1,34 @@
+package br.com.labs.repository.impl;
+
+import br.com.labs.repository.TransactionManager;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.SqlConnection;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class PgTransactionManager implements TransactionManager {
+
+    private final Pool pool;
+    private final AtomicInteger active = new AtomicInteger();
+
+    public PgTransactionManager(Pool pool, MeterRegistry meterRegistry) {
+        this.pool = pool;
+
+        // Acquire time and leased connections are measured by the pool itself, for queries too
+        Gauge.builder("db.transactions.active", active::get)
+                .description("Transactions currently holding a pooled connection")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public <T> Future<T> inTransaction(Function<SqlConnection, Future<T>> work) {
+        return pool.withTransaction(conn -> {
+            active.incrementAndGet();
+            return work.apply(conn).onComplete(ar -> active.decrementAndGet());
+        });
+    }
+}
@@ -1,21 +1,43 @@
 package br.com.labs.repository.impl;
 
+import br.com.labs.dto.request.FieldSet;
+import br.com.labs.dto.request.PageCursor;
+import br.com.labs.dto.request.SearchCursor;
 import br.com.labs.model.Product;
+import br.com.labs.model.ProductSuggestion;
+import br.com.labs.model.ProductVersion;
+import br.com.labs.model.StockShortage;
+import br.com.labs.repository.PagedResult;
 import br.com.labs.repository.ProductRepository;
+import br.com.labs.repository.ProductSearchHit;
+import br.com.labs.repository.ProductUpsertResult;
+import br.com.labs.repository.StockDecrementResult;
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.sqlclient.Pool;
 import io.vertx.sqlclient.Row;
 import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.RowStream;
+import io.vertx.sqlclient.SqlClient;
 import io.vertx.sqlclient.Tuple;
+import io.vertx.sqlclient.data.Numeric;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class ProductRepositoryPg implements ProductRepository {
 
+    // Explicit list instead of *: the table also holds search_vector, which is never mapped
+    private static final String COLUMNS = FieldSet.ALL_PRODUCT_FIELDS.columns();
+    private static final int STREAM_FETCH_SIZE = 1000;
+
     private final Pool pool;
 
     public ProductRepositoryPg(Pool pool) {
@@ -25,10 +47,15 @@ public class ProductRepositoryPg implements ProductRepository {
     @Override
     public Future<Product> save(Product product) {
         String sql = """
-            INSERT INTO products (name, description, code, price, stock, version, category_id, created_at, updated_at)
-            VALUES ($1, $2, $3, $4, $5, $6, $7, $8, $9)
-            RETURNING *
-            """;
+            WITH inserted AS (
+                INSERT INTO products (name, description, code, price, stock, version, category_id, created_at, updated_at)
+                VALUES ($1, $2, $3, $4, $5, $6, $7, $8, $9)
+                RETURNING %s
+            ), stock_events AS (
+                %s
+            )
+            SELECT * FROM inserted
+            """.formatted(COLUMNS, OutboxStatements.stockChanged("inserted"));
 
         LocalDateTime now = LocalDateTime.now();
         Integer stock = product.getStock() != null ? product.getStock() : 0;
@@ -49,13 +76,28 @@ public class ProductRepositoryPg implements ProductRepository {
     }
 
     @Override
-    public Future<Product> update(Product product) {
+    public Future<Optional<Product>> update(Product product) {
+        // The version check means the row was not changed since the previous snapshot, so comparing
+        // with it tells whether this update changed the stock
         String sql = """
-            UPDATE products
-            SET name = $1, description = $2, price = $3, stock = $4, category_id = $5, updated_at = $6
-            WHERE id = $7
-            RETURNING *
-            """;
+            WITH previous AS (
+                SELECT id, stock FROM products WHERE id = $7
+            ), updated AS (
+                UPDATE products
+                SET name = $1, description = $2, price = $3, stock = $4, category_id = $5, updated_at = $6,
+                    version = version + 1
+                WHERE id = $7
+                  AND version = $8
+                RETURNING %s
+            ), stock_changed AS (
+                SELECT u.* FROM updated u
+                JOIN previous p ON p.id = u.id
+                WHERE u.stock <> p.stock
+            ), stock_events AS (
+                %s
+            )
+            SELECT * FROM updated
+            """.formatted(COLUMNS, OutboxStatements.stockChanged("stock_changed"));
 
         return pool.preparedQuery(sql)
                 .execute(Tuple.of(
@@ -65,14 +107,92 @@ public class ProductRepositoryPg implements ProductRepository {
                         product.getStock(),
                         product.getCategoryId(),
                         LocalDateTime.now(),
-                        product.getId()
+                        product.getId(),
+                        product.getVersion()
                 ))
-                .map(rows -> mapRow(rows.iterator().next()));
+                .map(rows -> {
+                    if (rows.rowCount() == 0) {
+                        return Optional.empty();
+                    }
+                    return Optional.of(mapRow(rows.iterator().next()));
+                });
+    }
+
+    @Override
+    public Future<ProductUpsertResult> upsertByCode(SqlClient client, List<Product> products) {
+        // ON CONFLICT DO UPDATE locks rows in feed order, while orders lock them in id order: lock every
+        // existing row in id order first, so an import queues behind orders instead of deadlocking with them
+        String lock = "SELECT id FROM products WHERE code = ANY($1) ORDER BY id FOR UPDATE";
+
+        // One statement per batch: the rows travel as one array per column.
+        // A null stock keeps the stored one. The column is NOT NULL, so the proposed row carries 0 and
+        // DO UPDATE reads the incoming value back from the batch (codes are unique within a batch).
+        // A stock event is written for new products and for updated ones whose stock differs from the
+        // snapshot, or that another writer changed after it (the version then skips a number)
+        String sql = """
+            WITH incoming AS (
+                SELECT * FROM unnest($1::varchar[], $2::text[], $3::varchar[], $4::numeric[], $5::int[], $6::uuid[])
+                    AS r(name, description, code, price, stock, category_id)
+            ), previous AS (
+                SELECT code, stock, version FROM products WHERE code = ANY($3)
+            ), upserted AS (
+                INSERT INTO products (name, description, code, price, stock, category_id, created_at, updated_at)
+                SELECT name, description, code, price, COALESCE(stock, 0), category_id, $7, $7 FROM incoming
+                ORDER BY code
+                ON CONFLICT (code) DO UPDATE
+                SET name = EXCLUDED.name, description = EXCLUDED.description, price = EXCLUDED.price,
+                    stock = COALESCE((SELECT i.stock FROM incoming i WHERE i.code = EXCLUDED.code), products.stock),
+                    category_id = EXCLUDED.category_id, updated_at = $7, version = products.version + 1
+                WHERE (products.name, products.description, products.price, products.stock, products.category_id)
+                    IS DISTINCT FROM (EXCLUDED.name, EXCLUDED.description, EXCLUDED.price,
+                        COALESCE((SELECT i.stock FROM incoming i WHERE i.code = EXCLUDED.code), products.stock),
+                        EXCLUDED.category_id)
+                RETURNING %s, (xmax = 0) AS inserted
+            ), stock_changed AS (
+                SELECT u.* FROM upserted u
+                LEFT JOIN previous p ON p.code = u.code
+                WHERE p.code IS NULL OR u.stock <> p.stock OR u.version <> p.version + 1
+            ), stock_events AS (
+                %s
+            )
+            SELECT * FROM upserted
+            """.formatted(COLUMNS, OutboxStatements.stockChanged("stock_changed"));
+
+        int size = products.size();
+        String[] names = new String[size];
+        String[] descriptions = new String[size];
+        String[] codes = new String[size];
+        Numeric[] prices = new Numeric[size];
+        Integer[] stocks = new Integer[size];
+        UUID[] categoryIds = new UUID[size];
+        for (int i = 0; i < size; i++) {
+            Product product = products.get(i);
+            names[i] = product.getName();
+            descriptions[i] = product.getDescription();
+            codes[i] = product.getCode();
+            prices[i] = Numeric.create(product.getPrice());
+            stocks[i] = product.getStock();
+            categoryIds[i] = product.getCategoryId();
+        }
+
+        return client.preparedQuery(lock)
+                .execute(Tuple.of(codes))
+                .compose(locked -> client.preparedQuery(sql)
+                        .execute(Tuple.of(names, descriptions, codes, prices, stocks, categoryIds, LocalDateTime.now())))
+                .map(rows -> {
+                    List<Product> inserted = new ArrayList<>();
+                    List<Product> updated = new ArrayList<>();
+                    for (Row row : rows) {
+                        // xmax is only set on a row version created by an update
+                        (row.getBoolean("inserted") ? inserted : updated).add(mapRow(row));
+                    }
+                    return new ProductUpsertResult(inserted, updated);
+                });
     }
 
     @Override
     public Future<Optional<Product>> findById(UUID id) {
-        String sql = "SELECT * FROM products WHERE id = $1";
+        String sql = "SELECT " + COLUMNS + " FROM products WHERE id = $1";
 
         return pool.preparedQuery(sql)
                 .execute(Tuple.of(id))
@@ -86,7 +206,7 @@ public class ProductRepositoryPg implements ProductRepository {
 
     @Override
     public Future<Optional<Product>> findByCode(String code) {
-        String sql = "SELECT * FROM products WHERE code = $1";
+        String sql = "SELECT " + COLUMNS + " FROM products WHERE code = $1";
 
         return pool.preparedQuery(sql)
                 .execute(Tuple.of(code))
@@ -99,18 +219,34 @@ public class ProductRepositoryPg implements ProductRepository {
     }
 
     @Override
-    public Future<List<Product>> findAll(int page, int size) {
-        String sql = "SELECT * FROM products ORDER BY created_at DESC LIMIT $1 OFFSET $2";
+    public Future<Optional<ProductVersion>> findVersion(UUID id) {
+        String sql = "SELECT version, updated_at FROM products WHERE id = $1";
+
+        return pool.preparedQuery(sql)
+                .execute(Tuple.of(id))
+                .map(rows -> {
+                    if (rows.rowCount() == 0) {
+                        return Optional.empty();
+                    }
+                    Row row = rows.iterator().next();
+                    return Optional.of(new ProductVersion(id, row.getInteger("version"),
+                            row.getLocalDateTime("updated_at")));
+                });
+    }
+
+    @Override
+    public Future<List<Product>> findAll(int page, int size, FieldSet fields) {
+        String sql = "SELECT " + fields.columns() + " FROM products ORDER BY created_at DESC, id DESC LIMIT $1 OFFSET $2";
         int offset = page * size;
 
         return pool.preparedQuery(sql)
                 .execute(Tuple.of(size, offset))
-                .map(this::mapRows);
+                .map(rows -> mapRows(rows, fields));
     }
 
     @Override
     public Future<List<Product>> findByCategory(UUID categoryId, int page, int size) {
-        String sql = "SELECT * FROM products WHERE category_id = $1 ORDER BY created_at DESC LIMIT $2 OFFSET $3";
+        String sql = "SELECT " + COLUMNS + " FROM products WHERE category_id = $1 ORDER BY created_at DESC, id DESC LIMIT $2 OFFSET $3";
         int offset = page * size;
 
         return pool.preparedQuery(sql)
@@ -118,6 +254,111 @@ public class ProductRepositoryPg implements ProductRepository {
                 .map(this::mapRows);
     }
 
+    @Override
+    public Future<List<Product>> findAllAfter(PageCursor cursor, int limit, FieldSet fields) {
+        if (cursor == null) {
+            String sql = "SELECT " + fields.columns() + " FROM products ORDER BY created_at DESC, id DESC LIMIT $1";
+
+            return pool.preparedQuery(sql)
+                    .execute(Tuple.of(limit))
+                    .map(rows -> mapRows(rows, fields));
+        }
+
+        String sql = """
+            SELECT %s FROM products
+            WHERE (created_at, id) < ($1, $2)
+            ORDER BY created_at DESC, id DESC
+            LIMIT $3
+            """.formatted(fields.columns());
+
+        return pool.preparedQuery(sql)
+                .execute(Tuple.of(cursor.getCreatedAt(), cursor.getId(), limit))
+                .map(rows -> mapRows(rows, fields));
+    }
+
+    @Override
+    public Future<List<ProductSearchHit>> search(String query, SearchCursor cursor, int limit, FieldSet fields) {
+        Tuple params = Tuple.of(query);
+        String rank = "ts_rank(search_vector, q.query)";
+        String match = "search_vector @@ q.query";
+
+        String codePrefix = codePrefix(query);
+        if (codePrefix != null) {
+            params.addString(codePrefix);
+            rank += " + CASE WHEN code ILIKE $2 THEN 1 ELSE 0 END";
+            match += " OR code ILIKE $2";
+        }
+
+        String after = "";
+        if (cursor != null) {
+            params.addFloat(cursor.getRank()).addUUID(cursor.getId());
+            after = "WHERE (rank, id) < ($%d::real, $%d)".formatted(params.size() - 1, params.size());
+        }
+        params.addInteger(limit);
+
+        // The query is parsed with both configurations: stemmed words for name/description, exact tokens for code
+        String sql = """
+            SELECT * FROM (
+                SELECT %s, (%s)::real AS rank
+                FROM products,
+                     (SELECT websearch_to_tsquery('portuguese', $1) || websearch_to_tsquery('simple', $1) AS query) q
+                WHERE %s
+            ) hits
+            %s
+            ORDER BY rank DESC, id DESC
+            LIMIT $%d
+            """.formatted(fields.columns(), rank, match, after, params.size());
+
+        return pool.preparedQuery(sql)
+                .execute(params)
+                .map(rows -> {
+                    List<ProductSearchHit> hits = new ArrayList<>();
+                    for (Row row : rows) {
+                        hits.add(new ProductSearchHit(mapRow(row, fields), row.getFloat("rank")));
+                    }
+                    return hits;
+                });
+    }
+
+    @Override
+    public Future<Void> streamSuggestions(Consumer<ProductSuggestion> consumer) {
+        String sql = """
+            SELECT p.id, p.name, p.code, COALESCE(s.sold, 0) AS sold
+            FROM products p
+            LEFT JOIN (
+                SELECT oi.product_id, SUM(oi.quantity) AS sold
+                FROM order_items oi
+                JOIN orders o ON o.id = oi.order_id
+                WHERE o.status <> 'CANCELLED'
+                GROUP BY oi.product_id
+            ) s ON s.product_id = p.id
+            """;
+
+        // A cursor only lives inside a transaction
+        return pool.withTransaction(connection -> connection.prepare(sql)
+                .compose(statement -> {
+                    Promise<Void> done = Promise.promise();
+                    RowStream<Row> stream = statement.createStream(STREAM_FETCH_SIZE);
+                    stream.exceptionHandler(done::tryFail);
+                    stream.endHandler(v -> done.tryComplete());
+                    stream.handler(row -> consumer.accept(new ProductSuggestion(
+                            row.getUUID("id"),
+                            row.getString("name"),
+                            row.getString("code"),
+                            row.getLong("sold"))));
+                    return done.future();
+                }));
+    }
+
+    @Override
+    public Future<Void> streamAll(FieldSet fields, Function<ReadStream<Product>, Future<Void>> consumer) {
+        String sql = "SELECT " + fields.columns() + " FROM products ORDER BY created_at DESC, id DESC";
+
+        return pool.withTransaction(connection -> connection.prepare(sql)
+                .compose(statement -> consumer.apply(new MappedRowStream<>(
+                        statement.createStream(STREAM_FETCH_SIZE), row -> mapRow(row, fields)))));
+    }
+
     @Override
     public Future<Long> count() {
         String sql = "SELECT COUNT(*) FROM products";
@@ -127,6 +368,40 @@ public class ProductRepositoryPg implements ProductRepository {
                 .map(rows -> rows.iterator().next().getLong(0));
     }
 
+    @Override
+    public Future<PagedResult<Product>> findAllWithCount(int page, int size, FieldSet fields) {
+        String sql = """
+            SELECT %s, COUNT(*) OVER () AS total_count
+            FROM products
+            ORDER BY created_at DESC, id DESC
+            LIMIT $1 OFFSET $2
+            """.formatted(fields.columns());
+        int offset = page * size;
+
+        return pool.preparedQuery(sql)
+                .execute(Tuple.of(size, offset))
+                .map(rows -> mapPagedRows(rows, fields));
+    }
+
+    @Override
+    public Future<PagedResult<Product>> findAllWithEstimatedCount(int page, int size, FieldSet fields) {
+        // The lateral join keeps the estimate row even when the page itself is empty
+        String sql = """
+            SELECT p.*, est.total_count
+            FROM (SELECT reltuples::bigint AS total_count FROM pg_class WHERE oid = 'products'::regclass) est
+            LEFT JOIN LATERAL (
+                SELECT %s FROM products
+                ORDER BY created_at DESC, id DESC
+                LIMIT $1 OFFSET $2
+            ) p ON true
+            """.formatted(fields.columns());
+        int offset = page * size;
+
+        return pool.preparedQuery(sql)
+                .execute(Tuple.of(size, offset))
+                .map(rows -> mapPagedRows(rows, fields));
+    }
+
     @Override
     public Future<Boolean> delete(UUID id) {
         String sql = "DELETE FROM products WHERE id = $1";
@@ -150,15 +425,20 @@ public class ProductRepositoryPg implements ProductRepository {
         // Atomic UPDATE with optimistic locking
         // Only succeeds if: version matches AND stock >= quantity
         String sql = """
-            UPDATE products
-            SET stock = stock - $1,
-                version = version + 1,
-                updated_at = $2
-            WHERE id = $3
-              AND version = $4
-              AND stock >= $1
-            RETURNING *
-            """;
+            WITH updated AS (
+                UPDATE products
+                SET stock = stock - $1,
+                    version = version + 1,
+                    updated_at = $2
+                WHERE id = $3
+                  AND version = $4
+                  AND stock >= $1
+                RETURNING %s
+            ), stock_events AS (
+                %s
+            )
+            SELECT * FROM updated
+            """.formatted(COLUMNS, OutboxStatements.stockChanged("updated"));
 
         return pool.preparedQuery(sql)
                 .execute(Tuple.of(
@@ -176,7 +456,83 @@ public class ProductRepositoryPg implements ProductRepository {
                 });
     }
 
-    private Product mapRow(Row row) {
+    @Override
+    public Future<List<Product>> findByIds(List<UUID> ids) {
+        return findByIds(pool, ids);
+    }
+
+    @Override
+    public Future<List<Product>> findByIds(SqlClient client, List<UUID> ids) {
+        String sql = "SELECT " + COLUMNS + " FROM products WHERE id = ANY($1)";
+
+        return client.preparedQuery(sql)
+                .execute(Tuple.of(ids.toArray(new UUID[0])))
+                .map(this::mapRows);
+    }
+
+    @Override
+    public Future<StockDecrementResult> decrementStock(SqlClient client, Map<UUID, Integer> quantities) {
+        // 1. Lock every requested row in id order, so concurrent orders always wait in the same order
+        // 2. Update them only if all exist and all have enough stock
+        // 3. Report each requested product with its stock before the update
+        // 4. Write the stock events of the updated products to the outbox
+        String sql = """
+            WITH requested AS (
+                SELECT * FROM unnest($1::uuid[], $2::int[]) AS r(product_id, quantity)
+            ),
+            locked AS (
+                SELECT p.id, p.stock
+                FROM products p
+                JOIN requested r ON r.product_id = p.id
+                ORDER BY p.id
+                FOR UPDATE OF p
+            ),
+            checked AS (
+                SELECT r.product_id, r.quantity, l.stock AS available
+                FROM requested r
+                LEFT JOIN locked l ON l.id = r.product_id
+            ),
+            updated AS (
+                UPDATE products p
+                SET stock = p.stock - c.quantity,
+                    version = p.version + 1,
+                    updated_at = $3
+                FROM checked c
+                WHERE p.id = c.product_id
+                  AND NOT EXISTS (
+                      SELECT 1 FROM checked
+                      WHERE available IS NULL OR available < quantity
+                  )
+                RETURNING p.id, p.name, p.description, p.code, p.price, p.stock, p.version,
+                          p.category_id, p.created_at, p.updated_at
+            ),
+            stock_events AS (
+                %s
+            )
+            SELECT c.product_id AS requested_id, c.quantity AS requested_quantity, c.available, u.*
+            FROM checked c
+            LEFT JOIN updated u ON u.id = c.product_id
+            """.formatted(OutboxStatements.stockChanged("updated"));
+
+        return client.preparedQuery(sql)
+                .execute(Tuple.of(
+                        quantities.keySet().toArray(new UUID[0]),
+                        quantities.values().toArray(new Integer[0]),
+                        LocalDateTime.now()
+                ))
+                .map(this::mapDecrement);
+    }
+
+    // The trigram index needs at least three characters; shorter prefixes would scan the table
+    private static String codePrefix(String query) {
+        String term = query.trim();
+        if (term.length() < 3 || term.chars().anyMatch(Character::isWhitespace)) {
+            return null;
+        }
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    Product mapRow(Row row) {
         return Product.builder()
                 .id(row.getUUID("id"))
                 .name(row.getString("name"))
@@ -191,6 +547,85 @@ public class ProductRepositoryPg implements ProductRepository {
                 .build();
     }
 
+    /**
+     * Maps a row holding only the columns of the requested fields, leaving the others null.
+     */
+    Product mapRow(Row row, FieldSet fields) {
+        if (fields.isAll()) {
+            return mapRow(row);
+        }
+
+        Product.Builder builder = Product.builder()
+                .id(row.getUUID("id"))
+                .createdAt(row.getLocalDateTime("created_at"));
+        if (fields.loads("name")) {
+            builder.name(row.getString("name"));
+        }
+        if (fields.loads("description")) {
+            builder.description(row.getString("description"));
+        }
+        if (fields.loads("code")) {
+            builder.code(row.getString("code"));
+        }
+        if (fields.loads("price")) {
+            builder.price(row.getBigDecimal("price"));
+        }
+        if (fields.loads("stock")) {
+            builder.stock(row.getInteger("stock"));
+        }
+        if (fields.loads("version")) {
+            builder.version(row.getInteger("version"));
+        }
+        if (fields.loads("categoryId")) {
+            builder.categoryId(row.getUUID("category_id"));
+        }
+        if (fields.loads("updatedAt")) {
+            builder.updatedAt(row.getLocalDateTime("updated_at"));
+        }
+        return builder.build();
+    }
+
+    private StockDecrementResult mapDecrement(RowSet<Row> rows) {
+        List<Product> updated = new ArrayList<>();
+        List<UUID> missing = new ArrayList<>();
+        List<StockShortage> shortages = new ArrayList<>();
+
+        for (Row row : rows) {
+            UUID productId = row.getUUID("requested_id");
+            int requested = row.getInteger("requested_quantity");
+            Integer available = row.getInteger("available");
+
+            if (available == null) {
+                missing.add(productId);
+            } else if (available < requested) {
+                shortages.add(new StockShortage(productId, requested, available));
+            } else if (row.getUUID("id") != null) {
+                updated.add(mapRow(row));
+            }
+        }
+        return new StockDecrementResult(updated, missing, shortages);
+    }
+
+    private PagedResult<Product> mapPagedRows(RowSet<Row> rows, FieldSet fields) {
+        List<Product> products = new ArrayList<>();
+        long total = -1;
+        for (Row row : rows) {
+            total = row.getLong("total_count");
+            if (row.getUUID("id") != null) {
+                products.add(mapRow(row, fields));
+            }
+        }
+        return new PagedResult<>(products, total);
+    }
+
+    private List<Product> mapRows(RowSet<Row> rows, FieldSet fields) {
+        List<Product> products = new ArrayList<>();
+        for (Row row : rows) {
+            products.add(mapRow(row, fields));
+        }
+        return products;
+    }
+
     private List<Product> mapRows(RowSet<Row> rows) {
         List<Product> products = new ArrayList<>();
         for (Row row : rows) {
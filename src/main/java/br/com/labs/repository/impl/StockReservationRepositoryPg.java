@@ -0,0 +1,85 @@
+package br.com.labs.repository.impl;
+
+import br.com.labs.repository.AppliedStock;
+import br.com.labs.repository.StockReservationRepository;
+import io.vertx.core.Future;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.Tuple;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public class StockReservationRepositoryPg implements StockReservationRepository {
+
+    private final Pool pool;
+
+    public StockReservationRepositoryPg(Pool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public Future<Map<UUID, Integer>> loadAvailable(List<UUID> productIds) {
+        String sql = """
+            SELECT p.id, p.stock - COALESCE(SUM(i.quantity), 0)::int AS available
+            FROM products p
+            LEFT JOIN order_items i ON i.product_id = p.id AND NOT i.stock_applied
+            WHERE p.id = ANY($1)
+            GROUP BY p.id, p.stock
+            """;
+
+        return pool.preparedQuery(sql)
+                .execute(Tuple.of(productIds.toArray(new UUID[0])))
+                .map(rows -> {
+                    Map<UUID, Integer> available = new HashMap<>();
+                    for (Row row : rows) {
+                        available.put(row.getUUID("id"), row.getInteger("available"));
+                    }
+                    return available;
+                });
+    }
+
+    @Override
+    public Future<AppliedStock> applyPending(List<UUID> productIds) {
+        // Marking the items, decrementing the stock and writing the outbox events happen in the same
+        // statement, so a crash can never apply a decrement twice or lose it
+        String sql = """
+            WITH applied AS (
+                UPDATE order_items
+                SET stock_applied = true
+                WHERE NOT stock_applied
+                  AND product_id = ANY($1)
+                RETURNING product_id, quantity
+            ), totals AS (
+                SELECT product_id, SUM(quantity)::int AS quantity, COUNT(*)::int AS items
+                FROM applied
+                GROUP BY product_id
+            ), updated AS (
+                UPDATE products p
+                SET stock = p.stock - t.quantity,
+                    version = p.version + 1,
+                    updated_at = $2
+                FROM totals t
+                WHERE p.id = t.product_id
+                RETURNING p.id, p.stock, p.version
+            ), stock_events AS (
+                %s
+            )
+            SELECT COALESCE(SUM(t.items), 0)::int AS items,
+                   COALESCE(array_agg(u.id), '{}') AS product_ids
+            FROM totals t
+            JOIN updated u ON u.id = t.product_id
+            """.formatted(OutboxStatements.stockChanged("updated"));
+
+        return pool.preparedQuery(sql)
+                .execute(Tuple.of(productIds.toArray(new UUID[0]), LocalDateTime.now()))
+                .map(rows -> {
+                    Row row = rows.iterator().next();
+                    return new AppliedStock(row.getInteger("items"), Arrays.asList(row.getArrayOfUUIDs("product_ids")));
+                });
+    }
+}
@@ -0,0 +1,159 @@
+package br.com.labs.reservation;
+
+import br.com.labs.exception.InsufficientStockException;
+import br.com.labs.exception.NotFoundException;
+import br.com.labs.model.StockShortage;
+import io.vertx.core.Future;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Routes reservations to the StockReservationVerticle shard that owns each product.
+ * A request spanning several shards is split; if any shard rejects its part, the parts
+ * that were reserved are released again.
+ */
+public class EventBusStockReservations implements StockReservations {
+
+    public static final String ADDRESS_PREFIX = "stock.reservation.";
+
+    public static final String RESERVE = "reserve";
+    public static final String CONFIRM = "confirm";
+    public static final String RELEASE = "release";
+    public static final String RESYNC = "resync";
+
+    private final EventBus eventBus;
+    private final int shards;
+    private final Set<UUID> managed;
+
+    public EventBusStockReservations(EventBus eventBus, int shards, Set<UUID> managed) {
+        this.eventBus = eventBus;
+        this.shards = shards;
+        this.managed = Set.copyOf(managed);
+    }
+
+    public static int shardOf(UUID productId, int shards) {
+        return Math.floorMod(productId.hashCode(), shards);
+    }
+
+    public static String address(int shard) {
+        return ADDRESS_PREFIX + shard;
+    }
+
+    @Override
+    public boolean manages(UUID productId) {
+        return managed.contains(productId);
+    }
+
+    @Override
+    public Future<Void> reserve(Map<UUID, Integer> quantities) {
+        Map<Integer, Map<UUID, Integer>> byShard = groupByShard(quantities);
+
+        List<Integer> shardIds = new ArrayList<>(byShard.keySet());
+        List<Future<Message<JsonObject>>> replies = new ArrayList<>();
+        for (Integer shard : shardIds) {
+            replies.add(eventBus.request(address(shard), command(RESERVE, byShard.get(shard))));
+        }
+
+        return Future.join(replies).transform(ar -> {
+            List<UUID> missing = new ArrayList<>();
+            List<StockShortage> shortages = new ArrayList<>();
+            List<Integer> reserved = new ArrayList<>();
+            Throwable error = null;
+
+            for (int i = 0; i < shardIds.size(); i++) {
+                Future<Message<JsonObject>> reply = replies.get(i);
+                if (reply.failed()) {
+                    // The shard may or may not have reserved; never release what might not be held
+                    error = reply.cause();
+                    continue;
+                }
+                JsonObject body = reply.result().body();
+                if (body.getBoolean("reserved")) {
+                    reserved.add(shardIds.get(i));
+                } else {
+                    body.getJsonArray("missing").forEach(id -> missing.add(UUID.fromString((String) id)));
+                    body.getJsonArray("shortages").forEach(s -> shortages.add(toShortage((JsonObject) s)));
+                }
+            }
+
+            if (error == null && missing.isEmpty() && shortages.isEmpty()) {
+                return Future.succeededFuture();
+            }
+
+            reserved.forEach(shard -> eventBus.send(address(shard), command(RELEASE, byShard.get(shard))));
+
+            if (!missing.isEmpty()) {
+                return Future.failedFuture(new NotFoundException("Product", missing.get(0)));
+            }
+            if (!shortages.isEmpty()) {
+                return Future.failedFuture(new InsufficientStockException(shortages));
+            }
+            return Future.failedFuture(error);
+        });
+    }
+
+    @Override
+    public void confirm(Map<UUID, Integer> quantities) {
+        groupByShard(quantities).forEach((shard, items) -> eventBus.send(address(shard), command(CONFIRM, items)));
+    }
+
+    @Override
+    public void release(Map<UUID, Integer> quantities) {
+        groupByShard(quantities).forEach((shard, items) -> eventBus.send(address(shard), command(RELEASE, items)));
+    }
+
+    @Override
+    public void resync(UUID productId) {
+        if (manages(productId)) {
+            eventBus.send(address(shardOf(productId, shards)), command(RESYNC, Map.of(productId, 0)));
+        }
+    }
+
+    private Map<Integer, Map<UUID, Integer>> groupByShard(Map<UUID, Integer> quantities) {
+        Map<Integer, Map<UUID, Integer>> byShard = new HashMap<>();
+        quantities.forEach((productId, quantity) -> byShard
+                .computeIfAbsent(shardOf(productId, shards), k -> new HashMap<>())
+                .put(productId, quantity));
+        return byShard;
+    }
+
+    static JsonObject command(String action, Map<UUID, Integer> quantities) {
+        JsonObject items = new JsonObject();
+        quantities.forEach((productId, quantity) -> items.put(productId.toString(), quantity));
+        return new JsonObject().put("action", action).put("items", items);
+    }
+
+    static JsonObject toJson(StockShortage shortage) {
+        return new JsonObject()
+                .put("productId", shortage.productId().toString())
+                .put("requested", shortage.requested())
+                .put("available", shortage.available());
+    }
+
+    private static StockShortage toShortage(JsonObject json) {
+        return new StockShortage(
+                UUID.fromString(json.getString("productId")),
+                json.getInteger("requested"),
+                json.getInteger("available"));
+    }
+
+    static JsonObject rejected(List<UUID> missing, List<StockShortage> shortages) {
+        JsonArray missingJson = new JsonArray();
+        missing.forEach(id -> missingJson.add(id.toString()));
+        JsonArray shortagesJson = new JsonArray();
+        shortages.forEach(s -> shortagesJson.add(toJson(s)));
+        return new JsonObject()
+                .put("reserved", false)
+                .put("missing", missingJson)
+                .put("shortages", shortagesJson);
+    }
+}
@@ -0,0 +1,181 @@
+package br.com.labs.reservation;
+
+import br.com.labs.model.StockShortage;
+import br.com.labs.repository.StockReservationRepository;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Owns the stock of one shard of hot products. All state is touched only from this
+ * verticle's event loop, so reservations need no locks and take microseconds.
+ *
+ * Orders using reserved stock are stored with stock_applied = false. A periodic flush applies
+ * those decrements to products.stock in one statement and then reloads the available stock,
+ * which is also how the shard recovers after a restart: available = stock - pending items.
+ * The products changed by a flush are handed to {@code stockChanged} so product caches can drop them.
+ *
+ * Reservations not yet confirmed (in flight) are not in the database, so they are subtracted
+ * after every reload. Orders confirmed while a reload is running may or may not be in the
+ * reloaded value; they are subtracted too, which can only undercount until the next flush.
+ */
+public class StockReservationVerticle extends AbstractVerticle {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationVerticle.class);
+
+    private final int shard;
+    private final List<UUID> products;
+    private final StockReservationRepository repository;
+    private final long flushIntervalMs;
+    private final Consumer<List<UUID>> stockChanged;
+
+    private final Map<UUID, Integer> available = new HashMap<>();
+    private final Map<UUID, Integer> inFlight = new HashMap<>();
+    private final Map<UUID, Integer> confirmedDuringReload = new HashMap<>();
+
+    private MessageConsumer<JsonObject> consumer;
+    private long flushTimer = -1;
+    private boolean dirty;
+    private boolean flushing;
+
+    public StockReservationVerticle(int shard, List<UUID> products, StockReservationRepository repository,
+                                    long flushIntervalMs, Consumer<List<UUID>> stockChanged) {
+        this.shard = shard;
+        this.products = List.copyOf(products);
+        this.repository = repository;
+        this.flushIntervalMs = flushIntervalMs;
+        this.stockChanged = stockChanged;
+    }
+
+    @Override
+    public void start(Promise<Void> startPromise) {
+        // Apply whatever a previous run left pending before serving any reservation
+        flush()
+                .compose(v -> {
+                    Promise<Void> registered = Promise.promise();
+                    consumer = vertx.eventBus().consumer(EventBusStockReservations.address(shard), this::handle);
+                    consumer.completionHandler(registered);
+                    return registered.future();
+                })
+                .onSuccess(v -> {
+                    flushTimer = vertx.setPeriodic(flushIntervalMs, id -> {
+                        if (dirty && !flushing) {
+                            flush();
+                        }
+                    });
+                    logger.info("Stock reservation shard {} started with {} products", shard, available.size());
+                    startPromise.complete();
+                })
+                .onFailure(startPromise::fail);
+    }
+
+    @Override
+    public void stop(Promise<Void> stopPromise) {
+        vertx.cancelTimer(flushTimer);
+        Future<Void> unregistered = consumer != null ? consumer.unregister() : Future.succeededFuture();
+        unregistered
+                .compose(v -> flush())
+                .onComplete(ar -> stopPromise.complete());
+    }
+
+    private void handle(Message<JsonObject> message) {
+        JsonObject body = message.body();
+        Map<UUID, Integer> items = new HashMap<>();
+        body.getJsonObject("items").forEach(e -> items.put(UUID.fromString(e.getKey()), (Integer) e.getValue()));
+
+        switch (body.getString("action")) {
+            case EventBusStockReservations.RESERVE -> message.reply(reserve(items));
+            case EventBusStockReservations.CONFIRM -> confirm(items);
+            case EventBusStockReservations.RELEASE -> release(items);
+            case EventBusStockReservations.RESYNC -> dirty = true;
+            default -> message.fail(400, "Unknown action");
+        }
+    }
+
+    private JsonObject reserve(Map<UUID, Integer> items) {
+        List<UUID> missing = new ArrayList<>();
+        List<StockShortage> shortages = new ArrayList<>();
+
+        items.forEach((productId, quantity) -> {
+            Integer stock = available.get(productId);
+            if (stock == null) {
+                missing.add(productId);
+            } else if (stock < quantity) {
+                shortages.add(new StockShortage(productId, quantity, stock));
+            }
+        });
+
+        if (!missing.isEmpty() || !shortages.isEmpty()) {
+            return EventBusStockReservations.rejected(missing, shortages);
+        }
+
+        items.forEach((productId, quantity) -> {
+            available.merge(productId, -quantity, Integer::sum);
+            inFlight.merge(productId, quantity, Integer::sum);
+        });
+        return new JsonObject().put("reserved", true);
+    }
+
+    private void confirm(Map<UUID, Integer> items) {
+        items.forEach((productId, quantity) -> {
+            subtract(inFlight, productId, quantity);
+            confirmedDuringReload.merge(productId, quantity, Integer::sum);
+        });
+        dirty = true;
+    }
+
+    private void release(Map<UUID, Integer> items) {
+        items.forEach((productId, quantity) -> {
+            subtract(inFlight, productId, quantity);
+            available.computeIfPresent(productId, (id, stock) -> stock + quantity);
+        });
+    }
+
+    private Future<Void> flush() {
+        flushing = true;
+        dirty = false;
+        return repository.applyPending(products)
+                .compose(applied -> {
+                    if (applied.items() > 0) {
+                        logger.debug("Shard {} applied {} pending stock decrements", shard, applied.items());
+                        // The flush commits on its own, so cached copies of these products are now stale
+                        stockChanged.accept(applied.productIds());
+                    }
+                    return reload();
+                })
+                .onFailure(err -> {
+                    logger.error("Stock reservation shard {} failed to flush", shard, err);
+                    dirty = true;
+                })
+                .onComplete(ar -> flushing = false);
+    }
+
+    private Future<Void> reload() {
+        confirmedDuringReload.clear();
+        return repository.loadAvailable(products)
+                .map(loaded -> {
+                    available.clear();
+                    loaded.forEach((productId, stock) -> available.put(productId, stock
+                            - inFlight.getOrDefault(productId, 0)
+                            - confirmedDuringReload.getOrDefault(productId, 0)));
+                    confirmedDuringReload.clear();
+                    return null;
+                });
+    }
+
+    private static void subtract(Map<UUID, Integer> counts, UUID productId, int quantity) {
+        counts.computeIfPresent(productId, (id, count) -> count > quantity ? count - quantity : null);
+    }
+}
@@ -0,0 +1,61 @@
+package br.com.labs.reservation;
+
+import io.vertx.core.Future;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Stock of designated hot products, reserved in memory instead of through a row lock.
+ *
+ * A reservation must be followed by exactly one {@link #confirm} once the order that uses it
+ * has been committed, or one {@link #release} when the order was not created.
+ */
+public interface StockReservations {
+
+    /**
+     * Whether the stock of this product is owned by the reservation engine.
+     */
+    boolean manages(UUID productId);
+
+    /**
+     * Reserves the given quantities, all or nothing.
+     * Fails with InsufficientStockException listing every short product, or NotFoundException.
+     */
+    Future<Void> reserve(Map<UUID, Integer> quantities);
+
+    void confirm(Map<UUID, Integer> quantities);
+
+    void release(Map<UUID, Integer> quantities);
+
+    /**
+     * Reloads the available stock of a product after it was changed outside of orders.
+     */
+    void resync(UUID productId);
+
+    static StockReservations disabled() {
+        return new StockReservations() {
+            @Override
+            public boolean manages(UUID productId) {
+                return false;
+            }
+
+            @Override
+            public Future<Void> reserve(Map<UUID, Integer> quantities) {
+                return Future.failedFuture(new IllegalStateException("Stock reservation is disabled"));
+            }
+
+            @Override
+            public void confirm(Map<UUID, Integer> quantities) {
+            }
+
+            @Override
+            public void release(Map<UUID, Integer> quantities) {
+            }
+
+            @Override
+            public void resync(UUID productId) {
+            }
+        };
+    }
+}
@@ -19,12 +19,23 @@ public class OrderRouter {
         // GET /api/v1/orders
         router.get("/").handler(orderHandler::findByUser);
 
+        // GET /api/v1/orders/export (registered before /:id)
+        router.get("/export").handler(orderHandler::exportOrders);
+
         // GET /api/v1/orders/:id
         router.get("/:id").handler(orderHandler::findById);
 
         // POST /api/v1/orders
         router.post("/").handler(orderHandler::create);
 
+        // POST /api/v1/orders/status (bulk transition, fulfilment staff only)
+        router.post("/status")
+                .handler(jwtProvider.requireRole(JwtProvider.FULFILMENT_ROLE))
+                .handler(orderHandler::updateStatuses);
+
+        // PUT /api/v1/orders/:id/status
+        router.put("/:id/status").handler(orderHandler::updateStatus);
+
         return router;
     }
 }
@@ -19,6 +19,18 @@ public class ProductRouter {
         // GET /api/v1/products
         router.get("/").handler(productHandler::findAll);
 
+        // GET /api/v1/products/search (registered before /:id)
+        router.get("/search").handler(productHandler::search);
+
+        // GET /api/v1/products/suggest (registered before /:id)
+        router.get("/suggest").handler(productHandler::suggest);
+
+        // GET /api/v1/products/export (registered before /:id)
+        router.get("/export").handler(productHandler::exportProducts);
+
+        // POST /api/v1/products/batch
+        router.post("/batch").handler(productHandler::findByIds);
+
         // GET /api/v1/products/:id
         router.get("/:id").handler(productHandler::findById);
 
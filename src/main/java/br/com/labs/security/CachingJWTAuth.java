@@ -0,0 +1,128 @@
+package br.com.labs.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.JWTOptions;
+import io.vertx.ext.auth.User;
+import io.vertx.ext.auth.authentication.Credentials;
+import io.vertx.ext.auth.authentication.TokenCredentials;
+import io.vertx.ext.auth.jwt.JWTAuth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWTAuth decorator that remembers tokens it has already verified. Clients send the same token
+ * on every request, so after the first one authentication costs a SHA-256 and a lookup instead
+ * of decoding the token and recomputing its signature.
+ *
+ * Entries are keyed by the SHA-256 of the token rather than the token itself and expire at
+ * the token's exp claim. Rejected tokens are never cached.
+ */
+public class CachingJWTAuth implements JWTAuth {
+
+    private static final String CACHE_NAME = "jwt";
+
+    private final JWTAuth delegate;
+    private final Cache<String, User> verified;
+
+    public CachingJWTAuth(JWTAuth delegate, long maxSize, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new ExpireAtClaim())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, CACHE_NAME);
+    }
+
+    @Override
+    public Future<User> authenticate(Credentials credentials) {
+        if (!(credentials instanceof TokenCredentials token) || token.getToken() == null
+                || (token.getScopes() != null && !token.getScopes().isEmpty())) {
+            return delegate.authenticate(credentials);
+        }
+
+        String key = sha256(token.getToken());
+        User cached = verified.getIfPresent(key);
+        if (cached != null) {
+            return Future.succeededFuture(cached);
+        }
+
+        return delegate.authenticate(credentials)
+                .onSuccess(user -> {
+                    if (user.attributes().getLong("exp") != null) {
+                        verified.put(key, user);
+                    }
+                });
+    }
+
+    @Override
+    public void authenticate(Credentials credentials, Handler<AsyncResult<User>> resultHandler) {
+        authenticate(credentials).onComplete(resultHandler);
+    }
+
+    // The JsonObject overloads are deprecated upstream; both go through authenticate(Credentials)
+    @Deprecated
+    @Override
+    public Future<User> authenticate(JsonObject credentials) {
+        return authenticate(new TokenCredentials(credentials));
+    }
+
+    @Deprecated
+    @Override
+    public void authenticate(JsonObject credentials, Handler<AsyncResult<User>> resultHandler) {
+        authenticate(credentials).onComplete(resultHandler);
+    }
+
+    @Override
+    public String generateToken(JsonObject claims, JWTOptions options) {
+        return delegate.generateToken(claims, options);
+    }
+
+    @Override
+    public String generateToken(JsonObject claims) {
+        return delegate.generateToken(claims);
+    }
+
+    private static String sha256(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class ExpireAtClaim implements Expiry<String, User> {
+
+        @Override
+        public long expireAfterCreate(String key, User user, long currentTime) {
+            // The verified claims, including exp, are kept in the user's attributes
+            long expiresAtMillis = TimeUnit.SECONDS.toMillis(user.attributes().getLong("exp"));
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiresAtMillis - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, User user, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, user, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, User user, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -1,33 +1,54 @@
 package br.com.labs.security;
 
 import br.com.labs.config.AppConfig;
+import br.com.labs.exception.ForbiddenException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.auth.JWTOptions;
 import io.vertx.ext.auth.PubSecKeyOptions;
+import io.vertx.ext.auth.User;
 import io.vertx.ext.auth.authentication.TokenCredentials;
 import io.vertx.ext.auth.jwt.JWTAuth;
 import io.vertx.ext.auth.jwt.JWTAuthOptions;
+import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.JWTAuthHandler;
 
+import java.util.Set;
 import java.util.UUID;
 
 public class JwtProvider {
 
+    /**
+     * Role of the staff who ship and deliver orders and may change any order's status.
+     */
+    public static final String FULFILMENT_ROLE = "fulfilment";
+
+    private static final String ROLES_CLAIM = "roles";
+
     private final JWTAuth jwtAuth;
     private final int expirationMinutes;
     private final String issuer;
+    private final Set<UUID> fulfilmentUsers;
 
-    public JwtProvider(Vertx vertx, AppConfig config) {
+    public JwtProvider(Vertx vertx, AppConfig config, MeterRegistry meterRegistry) {
         this.expirationMinutes = config.getJwtExpirationMinutes();
         this.issuer = config.getJwtIssuer();
+        this.fulfilmentUsers = Set.copyOf(config.getJwtFulfilmentUsers());
 
         JWTAuthOptions jwtAuthOptions = new JWTAuthOptions()
                 .addPubSecKey(new PubSecKeyOptions()
                         .setAlgorithm("HS256")
                         .setBuffer(config.getJwtSecret()));
 
-        this.jwtAuth = JWTAuth.create(vertx, jwtAuthOptions);
+        JWTAuth verifier = JWTAuth.create(vertx, jwtAuthOptions);
+
+        // Skip signature checks for tokens already verified; every protected route shares this instance
+        this.jwtAuth = config.isJwtCacheEnabled()
+                ? new CachingJWTAuth(verifier, config.getJwtCacheMaxSize(), meterRegistry)
+                : verifier;
     }
 
     public String generateToken(UUID userId, String email) {
@@ -35,6 +56,10 @@ public class JwtProvider {
                 .put("sub", userId.toString())
                 .put("email", email)
                 .put("iss", issuer);
+        // Roles are fixed when the token is issued: a config change reaches users at their next login
+        if (fulfilmentUsers.contains(userId)) {
+            claims.put(ROLES_CLAIM, new JsonArray().add(FULFILMENT_ROLE));
+        }
 
         JWTOptions options = new JWTOptions()
                 .setExpiresInMinutes(expirationMinutes)
@@ -51,6 +76,27 @@ public class JwtProvider {
         return JWTAuthHandler.create(jwtAuth);
     }
 
+    /**
+     * Route handler that lets only users whose token carries the role through, after createAuthHandler().
+     */
+    public Handler<RoutingContext> requireRole(String role) {
+        return ctx -> {
+            if (hasRole(ctx.user(), role)) {
+                ctx.next();
+            } else {
+                ctx.fail(new ForbiddenException("Requires the " + role + " role"));
+            }
+        };
+    }
+
+    public static boolean hasRole(User user, String role) {
+        if (user == null) {
+            return false;
+        }
+        JsonArray roles = user.principal().getJsonArray(ROLES_CLAIM);
+        return roles != null && roles.contains(role);
+    }
+
     public io.vertx.core.Future<io.vertx.ext.auth.User> authenticate(String token) {
         return jwtAuth.authenticate(new TokenCredentials(token));
     }
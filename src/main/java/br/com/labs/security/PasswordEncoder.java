@@ -1,17 +1,85 @@
 package br.com.labs.security;
 
 import at.favre.lib.crypto.bcrypt.BCrypt;
+import br.com.labs.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BCrypt hashing on a dedicated, bounded worker pool.
+ * Each hash at cost 12 takes around 250 ms of CPU, so it must never run on an event loop.
+ * Requests beyond the pool size wait in a queue; when the queue is full they are rejected
+ * instead of piling up.
+ */
 public class PasswordEncoder {
 
     private static final int COST = 12;
+    private static final String POOL_NAME = "password-hashing";
+
+    private final WorkerExecutor executor;
+    private final int maxPending;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+
+    public PasswordEncoder(Vertx vertx, int poolSize, int maxQueueSize, MeterRegistry meterRegistry) {
+        this.executor = vertx.createSharedWorkerExecutor(POOL_NAME, poolSize);
+        this.maxPending = poolSize + maxQueueSize;
+
+        Gauge.builder("password.hashing.queue.depth", () -> pending.get() - active.get())
+                .description("Password hashing requests waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("password.hashing.active", active::get)
+                .description("Password hashing requests currently running")
+                .register(meterRegistry);
+
+        this.encodeTimer = Timer.builder("password.hashing.duration")
+                .tag("operation", "encode")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("password.hashing.duration")
+                .tag("operation", "matches")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 
-    public String encode(String rawPassword) {
-        return BCrypt.withDefaults().hashToString(COST, rawPassword.toCharArray());
+    public Future<String> encode(String rawPassword) {
+        return submit(encodeTimer, () -> BCrypt.withDefaults().hashToString(COST, rawPassword.toCharArray()));
     }
 
-    public boolean matches(String rawPassword, String encodedPassword) {
-        BCrypt.Result result = BCrypt.verifyer().verify(rawPassword.toCharArray(), encodedPassword);
-        return result.verified;
+    public Future<Boolean> matches(String rawPassword, String encodedPassword) {
+        return submit(matchesTimer, () -> {
+            BCrypt.Result result = BCrypt.verifyer().verify(rawPassword.toCharArray(), encodedPassword);
+            return result.verified;
+        });
+    }
+
+    public Future<Void> close() {
+        return executor.close();
+    }
+
+    private <T> Future<T> submit(Timer timer, Callable<T> task) {
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            return Future.failedFuture(new ServiceUnavailableException("Too many concurrent authentication requests"));
+        }
+
+        // Unordered so tasks from the same event loop run in parallel on the pool
+        return executor.<T>executeBlocking(() -> {
+            active.incrementAndGet();
+            try {
+                return timer.recordCallable(task);
+            } finally {
+                active.decrementAndGet();
+            }
+        }, false).onComplete(ar -> pending.decrementAndGet());
     }
 }
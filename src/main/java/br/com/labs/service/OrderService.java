@@ -1,17 +1,82 @@
 package br.com.labs.service;
 
 import br.com.labs.dto.request.CreateOrderRequest;
+import br.com.labs.dto.request.FieldSet;
+import br.com.labs.dto.request.PageCursor;
 import br.com.labs.dto.response.PageResponse;
+import br.com.labs.dto.response.StatusUpdateResponse;
 import br.com.labs.model.Order;
+import br.com.labs.model.OrderRequest;
 import io.vertx.core.Future;
+import io.vertx.core.streams.ReadStream;
 
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
 
 public interface OrderService {
 
     Future<Order> create(UUID userId, CreateOrderRequest request);
 
+    /**
+     * Creates the order at most once per idempotency key: a retry with the same key and items gets back
+     * the order created by the first request, without touching stock again. Reusing the key for other
+     * items fails with a conflict. Without a key it is the same as {@link #create(UUID, CreateOrderRequest)}.
+     */
+    Future<Order> create(UUID userId, CreateOrderRequest request, String idempotencyKey);
+
+    /**
+     * Accepts the order for asynchronous creation: only the items are validated here, and the order is
+     * created later by the intake workers with the id of the returned request.
+     */
+    Future<OrderRequest> enqueue(UUID userId, CreateOrderRequest request);
+
+    /**
+     * Returns the user's request that has not become an order yet, queued or failed.
+     * Fails with NotFoundException once the order exists or the request was purged.
+     */
+    Future<OrderRequest> findQueued(UUID id, UUID userId);
+
+    /**
+     * Creates the order for a queued request, with the request id, and deletes the request in the same
+     * transaction. Fails with the same exceptions as creating it directly.
+     */
+    Future<Order> createQueued(OrderRequest request);
+
     Future<Order> findById(UUID id, UUID userId);
 
-    Future<PageResponse<Order>> findByUserId(UUID userId, int page, int size);
+    /**
+     * Returns a page of the user's orders; with {@code withItems} each order carries its items,
+     * loaded in the same query as the page.
+     */
+    Future<PageResponse<Order>> findByUserId(UUID userId, int page, int size, FieldSet fields, boolean withItems);
+
+    Future<PageResponse<Order>> findByUserId(UUID userId, PageCursor cursor, int size, FieldSet fields,
+                                             boolean withItems);
+
+    /**
+     * Streams all the user's orders with their items, newest first, to the consumer from a database cursor.
+     * The future completes once the consumer's future does.
+     */
+    Future<Void> exportByUserId(UUID userId, Function<ReadStream<Order>, Future<Void>> consumer);
+
+    /**
+     * Moves an order to a new status, if the transition is allowed and, when a version is given, the order
+     * still has that version. Cancelling puts the stock of its items back in the same statement.
+     * Fails with NotFoundException, ForbiddenException when a customer asks for anything but a cancellation,
+     * or ConflictException when the transition or the version does not match.
+     *
+     * @param userId the customer acting on their own order, who may only cancel it; null for fulfilment staff
+     * @return Future with the order in its new status, without items
+     */
+    Future<Order> updateStatus(UUID id, UUID userId, Order.OrderStatus status, Integer expectedVersion);
+
+    /**
+     * Moves many orders, of any user, to the same status in a single statement; for fulfilment staff only.
+     * Orders that do not exist, cannot make
+     * the transition or no longer have the given version are reported as rejected and left unchanged.
+     *
+     * @param expectedVersions order IDs mapped to the version each must still have; null skips the check
+     */
+    Future<StatusUpdateResponse> updateStatuses(Order.OrderStatus status, Map<UUID, Integer> expectedVersions);
 }
@@ -1,12 +1,24 @@
 package br.com.labs.service;
 
 import br.com.labs.dto.request.CreateProductRequest;
+import br.com.labs.dto.request.FieldSet;
+import br.com.labs.dto.request.FeedFormat;
+import br.com.labs.dto.request.PageCursor;
+import br.com.labs.dto.request.SearchCursor;
 import br.com.labs.dto.request.UpdateProductRequest;
+import br.com.labs.dto.response.BatchResponse;
+import br.com.labs.dto.response.ImportSummary;
 import br.com.labs.dto.response.PageResponse;
 import br.com.labs.model.Product;
+import br.com.labs.model.ProductSuggestion;
+import br.com.labs.model.ProductVersion;
 import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.ReadStream;
 
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Function;
 
 public interface ProductService {
 
@@ -14,9 +26,46 @@ public interface ProductService {
 
     Future<Product> update(UUID id, UpdateProductRequest request);
 
+    /**
+     * Creates or updates (by code) every valid product of a feed, one line per product.
+     * The stream is consumed with backpressure, so feeds of any size use bounded memory.
+     * Invalid rows are rejected and reported without stopping the import.
+     */
+    Future<ImportSummary> importProducts(ReadStream<Buffer> lines, FeedFormat format);
+
+    /**
+     * Streams the whole catalog, newest first, to the consumer from a database cursor.
+     * The future completes once the consumer's future does.
+     */
+    Future<Void> exportProducts(FieldSet fields, Function<ReadStream<Product>, Future<Void>> consumer);
+
     Future<Product> findById(UUID id);
 
-    Future<PageResponse<Product>> findAll(int page, int size);
+    /**
+     * Version of the product without loading the whole row, for If-None-Match / If-Modified-Since.
+     */
+    Future<ProductVersion> findVersion(UUID id);
+
+    /**
+     * Looks up several products at once. Products are returned in request order,
+     * repeated IDs once, and IDs that do not exist are listed as missing.
+     */
+    Future<BatchResponse<Product>> findByIds(List<UUID> ids);
+
+    Future<PageResponse<Product>> findAll(int page, int size, FieldSet fields);
+
+    Future<PageResponse<Product>> findAll(PageCursor cursor, int size, FieldSet fields);
+
+    /**
+     * Ranked full-text search, paginated by cursor only: a total would require counting every match.
+     */
+    Future<PageResponse<Product>> search(String query, SearchCursor cursor, int size, FieldSet fields);
+
+    /**
+     * Typeahead: the most popular products whose name has a word, or whose code, starting with the prefix.
+     * Served from the in-memory index, never from the database.
+     */
+    Future<List<ProductSuggestion>> suggest(String prefix, int limit);
 
     Future<Boolean> delete(UUID id);
 }
@@ -44,14 +44,17 @@ public class AuthServiceImpl implements AuthService {
                         return Future.failedFuture(new ValidationException("Email already registered"));
                     }
 
-                    // Create user
-                    User user = User.builder()
-                            .email(request.getEmail())
-                            .passwordHash(passwordEncoder.encode(request.getPassword()))
-                            .name(request.getName())
-                            .build();
+                    // Hash on the password worker pool, then create user
+                    return passwordEncoder.encode(request.getPassword())
+                            .compose(passwordHash -> {
+                                User user = User.builder()
+                                        .email(request.getEmail())
+                                        .passwordHash(passwordHash)
+                                        .name(request.getName())
+                                        .build();
 
-                    return userRepository.save(user);
+                                return userRepository.save(user);
+                            });
                 });
     }
 
@@ -73,14 +76,17 @@ public class AuthServiceImpl implements AuthService {
 
                     User user = optionalUser.get();
 
-                    if (!passwordEncoder.matches(request.getPassword(), user.getPasswordHash())) {
-                        return Future.failedFuture(new UnauthorizedException("Invalid credentials"));
-                    }
+                    return passwordEncoder.matches(request.getPassword(), user.getPasswordHash())
+                            .compose(matches -> {
+                                if (!matches) {
+                                    return Future.failedFuture(new UnauthorizedException("Invalid credentials"));
+                                }
 
-                    String token = jwtProvider.generateToken(user.getId(), user.getEmail());
-                    TokenResponse response = new TokenResponse(token, 3600); // 1 hour
+                                String token = jwtProvider.generateToken(user.getId(), user.getEmail());
+                                TokenResponse response = new TokenResponse(token, 3600); // 1 hour
 
-                    return Future.succeededFuture(response);
+                                return Future.succeededFuture(response);
+                            });
                 });
     }
 }
@@ -1,194 +1,396 @@
 package br.com.labs.service.impl;
 
+import br.com.labs.cache.CountCache;
+import br.com.labs.config.CountStrategy;
 import br.com.labs.dto.request.CreateOrderRequest;
+import br.com.labs.dto.request.FieldSet;
+import br.com.labs.dto.request.PageCursor;
 import br.com.labs.dto.response.PageResponse;
+import br.com.labs.dto.response.StatusUpdateResponse;
+import br.com.labs.exception.ConflictException;
+import br.com.labs.exception.ForbiddenException;
 import br.com.labs.exception.InsufficientStockException;
 import br.com.labs.exception.NotFoundException;
 import br.com.labs.exception.ValidationException;
 import br.com.labs.model.Order;
 import br.com.labs.model.OrderItem;
+import br.com.labs.model.OrderRequest;
 import br.com.labs.model.Product;
+import br.com.labs.repository.IdempotencyKeyRepository;
 import br.com.labs.repository.OrderRepository;
+import br.com.labs.repository.OrderRequestRepository;
 import br.com.labs.repository.ProductRepository;
+import br.com.labs.repository.StatusTransitionResult;
+import br.com.labs.repository.StoredIdempotencyKey;
+import br.com.labs.repository.TransactionManager;
+import br.com.labs.reservation.StockReservations;
 import br.com.labs.service.OrderService;
-import io.vertx.core.CompositeFuture;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.jackson.DatabindCodec;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.sqlclient.SqlConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 public class OrderServiceImpl implements OrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderServiceImpl.class);
-    private static final int MAX_RETRY_ATTEMPTS = 3;
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    private static final int MAX_STATUS_UPDATES = 10_000;
 
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
+    private final TransactionManager transactionManager;
+    private final CountStrategy countStrategy;
+    private final CountCache<UUID> countCache;
+    private final StockReservations stockReservations;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final OrderRequestRepository orderRequestRepository;
+    private final Counter serializationRetries;
+    private final Counter deadlockRetries;
+    private final Counter idempotentReplays;
+
+    // Keyed requests still running on this node, by user and key: a retry arriving meanwhile gets the same result
+    private final Map<String, InFlightRequest> inFlight = new ConcurrentHashMap<>();
+
+    private record KeyedRequest(String key, String requestHash) {
+    }
+
+    private record InFlightRequest(String requestHash, Future<Order> order) {
+    }
+
+    /**
+     * A concurrent request with the same key committed first; this transaction is rolled back.
+     */
+    private static final class IdempotencyKeyTaken extends RuntimeException {
+        IdempotencyKeyTaken() {
+            super("Idempotency-Key already used", null, false, false);
+        }
+    }
 
-    public OrderServiceImpl(OrderRepository orderRepository, ProductRepository productRepository) {
+    public OrderServiceImpl(OrderRepository orderRepository, ProductRepository productRepository,
+                            TransactionManager transactionManager,
+                            CountStrategy countStrategy, CountCache<UUID> countCache,
+                            StockReservations stockReservations, IdempotencyKeyRepository idempotencyKeyRepository,
+                            OrderRequestRepository orderRequestRepository, MeterRegistry meterRegistry) {
         this.orderRepository = orderRepository;
         this.productRepository = productRepository;
+        this.transactionManager = transactionManager;
+        this.countStrategy = countStrategy;
+        this.countCache = countCache;
+        this.stockReservations = stockReservations;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.orderRequestRepository = orderRequestRepository;
+
+        this.serializationRetries = Counter.builder("orders.create.retries")
+                .description("Order transactions retried after PostgreSQL aborted them")
+                .tag("reason", "serialization_failure")
+                .register(meterRegistry);
+        this.deadlockRetries = Counter.builder("orders.create.retries")
+                .description("Order transactions retried after PostgreSQL aborted them")
+                .tag("reason", "deadlock")
+                .register(meterRegistry);
+        this.idempotentReplays = Counter.builder("orders.create.idempotent.replays")
+                .description("Order requests answered with the order created by an earlier request with the same key")
+                .register(meterRegistry);
     }
 
     @Override
     public Future<Order> create(UUID userId, CreateOrderRequest request) {
-        if (request.getItems() == null || request.getItems().isEmpty()) {
-            return Future.failedFuture(new ValidationException("Order must have at least one item"));
+        return create(userId, request, null);
+    }
+
+    @Override
+    public Future<Order> create(UUID userId, CreateOrderRequest request, String idempotencyKey) {
+        Map<UUID, Integer> quantities;
+        try {
+            quantities = mergeItems(request);
+        } catch (ValidationException e) {
+            return Future.failedFuture(e);
         }
 
-        // Validate all items and calculate total
-        List<Future<ProductWithQuantity>> productFutures = new ArrayList<>();
+        if (idempotencyKey == null) {
+            return placeOrder(userId, quantities, null, null);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return Future.failedFuture(new ValidationException(
+                    "Idempotency-Key must have between 1 and " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters"));
+        }
 
-        for (CreateOrderRequest.OrderItemRequest item : request.getItems()) {
-            if (item.getQuantity() <= 0) {
-                return Future.failedFuture(new ValidationException("Item quantity must be greater than 0"));
-            }
+        KeyedRequest keyed = new KeyedRequest(idempotencyKey, fingerprint(quantities));
+        String slot = userId + " " + idempotencyKey;
+        Promise<Order> result = Promise.promise();
+        InFlightRequest running = new InFlightRequest(keyed.requestHash(), result.future());
+        InFlightRequest previous = inFlight.putIfAbsent(slot, running);
+        if (previous != null) {
+            return previous.requestHash().equals(keyed.requestHash())
+                    ? previous.order()
+                    : Future.failedFuture(keyReused());
+        }
 
-            Future<ProductWithQuantity> productFuture = productRepository.findById(item.getProductId())
-                    .compose(optional -> {
-                        if (optional.isEmpty()) {
-                            return Future.failedFuture(new NotFoundException("Product", item.getProductId()));
-                        }
-                        return Future.succeededFuture(new ProductWithQuantity(optional.get(), item.getQuantity()));
-                    });
+        idempotencyKeyRepository.find(userId, idempotencyKey)
+                .compose(stored -> {
+                    if (stored.isPresent()) {
+                        return replay(stored.get(), keyed);
+                    }
+                    // Another node may commit the same key first: then this transaction rolls back and
+                    // the stored order is returned
+                    return placeOrder(userId, quantities, null, (conn, order) -> saveKey(conn, userId, keyed, order))
+                            .recover(err -> err instanceof IdempotencyKeyTaken
+                                    ? idempotencyKeyRepository.find(userId, idempotencyKey)
+                                            .compose(taken -> replay(taken.orElseThrow(), keyed))
+                                    : Future.failedFuture(err));
+                })
+                .onComplete(ar -> inFlight.remove(slot, running))
+                .onComplete(result);
+        return result.future();
+    }
 
-            productFutures.add(productFuture);
+    @Override
+    public Future<OrderRequest> enqueue(UUID userId, CreateOrderRequest request) {
+        Map<UUID, Integer> quantities;
+        try {
+            quantities = mergeItems(request);
+        } catch (ValidationException e) {
+            return Future.failedFuture(e);
         }
 
-        return CompositeFuture.all(new ArrayList<>(productFutures))
-                .compose(cf -> {
-                    List<ProductWithQuantity> productsWithQty = new ArrayList<>();
-                    BigDecimal total = BigDecimal.ZERO;
+        return orderRequestRepository.save(OrderRequest.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .quantities(quantities)
+                .build());
+    }
 
-                    for (int i = 0; i < cf.size(); i++) {
-                        ProductWithQuantity pwq = cf.resultAt(i);
-                        productsWithQty.add(pwq);
-                        total = total.add(pwq.product.getPrice().multiply(BigDecimal.valueOf(pwq.quantity)));
-                    }
+    @Override
+    public Future<OrderRequest> findQueued(UUID id, UUID userId) {
+        return orderRequestRepository.findByIdAndUserId(id, userId)
+                .compose(optional -> optional
+                        .map(Future::succeededFuture)
+                        .orElseGet(() -> Future.failedFuture(new NotFoundException("Order", id))));
+    }
 
-                    // Validate stock availability before creating order
-                    for (ProductWithQuantity pwq : productsWithQty) {
-                        if (pwq.product.getStock() < pwq.quantity) {
-                            return Future.failedFuture(new InsufficientStockException(
-                                    pwq.product.getId(),
-                                    pwq.quantity,
-                                    pwq.product.getStock()));
-                        }
-                    }
+    @Override
+    public Future<Order> createQueued(OrderRequest request) {
+        // The request goes away in the transaction that creates its order, which takes the request id
+        return placeOrder(request.getUserId(), request.getQuantities(), request.getId(),
+                (conn, order) -> orderRequestRepository.delete(conn, order.getId()).map(order));
+    }
 
-                    final BigDecimal finalTotal = total;
-                    final List<ProductWithQuantity> finalProducts = productsWithQty;
-
-                    // Decrement stock for all products with optimistic locking
-                    return decrementStockForAllProducts(finalProducts)
-                            .compose(updatedProducts -> {
-                                // Create order after stock is reserved
-                                Order order = Order.builder()
-                                        .userId(userId)
-                                        .status(Order.OrderStatus.PENDING)
-                                        .total(finalTotal)
-                                        .build();
-
-                                return orderRepository.save(order)
-                                        .compose(savedOrder -> {
-                                            // Save order items
-                                            List<Future<OrderItem>> itemFutures = new ArrayList<>();
-
-                                            for (ProductWithQuantity pwq : updatedProducts) {
-                                                OrderItem orderItem = OrderItem.builder()
-                                                        .orderId(savedOrder.getId())
-                                                        .productId(pwq.product.getId())
-                                                        .quantity(pwq.quantity)
-                                                        .unitPrice(pwq.product.getPrice())
-                                                        .build();
-
-                                                itemFutures.add(orderRepository.saveItem(orderItem));
-                                            }
-
-                                            return CompositeFuture.all(new ArrayList<>(itemFutures))
-                                                    .map(itemsCf -> {
-                                                        List<OrderItem> items = new ArrayList<>();
-                                                        for (int i = 0; i < itemsCf.size(); i++) {
-                                                            items.add(itemsCf.resultAt(i));
-                                                        }
-                                                        savedOrder.setItems(items);
-                                                        return savedOrder;
-                                                    });
-                                        });
-                            });
-                });
+    // Validate items and merge repeated products into a single line
+    private Map<UUID, Integer> mergeItems(CreateOrderRequest request) {
+        if (request.getItems() == null || request.getItems().isEmpty()) {
+            throw new ValidationException("Order must have at least one item");
+        }
+
+        Map<UUID, Integer> quantities = new LinkedHashMap<>();
+        for (CreateOrderRequest.OrderItemRequest item : request.getItems()) {
+            if (item.getProductId() == null) {
+                throw new ValidationException("Item product ID is required");
+            }
+            if (item.getQuantity() <= 0) {
+                throw new ValidationException("Item quantity must be greater than 0");
+            }
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    private Future<Order> replay(StoredIdempotencyKey stored, KeyedRequest keyed) {
+        if (!stored.requestHash().equals(keyed.requestHash())) {
+            return Future.failedFuture(keyReused());
+        }
+        idempotentReplays.increment();
+        // The stored JSON also holds derived values such as the item subtotal, which have no setter
+        try {
+            return Future.succeededFuture(DatabindCodec.mapper()
+                    .readerFor(Order.class)
+                    .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                    .readValue(stored.response()));
+        } catch (JsonProcessingException e) {
+            return Future.failedFuture(e);
+        }
+    }
+
+    private static ConflictException keyReused() {
+        return new ConflictException("Idempotency-Key was already used for a different order");
     }
 
     /**
-     * Decrements stock for all products in the order using optimistic locking.
-     * Processes each product sequentially to avoid partial updates on failure.
+     * Fingerprint of the merged items, sorted by product, so the key matches the same order
+     * however the client ordered or split its lines.
      */
-    private Future<List<ProductWithQuantity>> decrementStockForAllProducts(List<ProductWithQuantity> products) {
-        return decrementStockSequentially(products, 0, new ArrayList<>());
+    private static String fingerprint(Map<UUID, Integer> quantities) {
+        StringBuilder canonical = new StringBuilder();
+        new TreeMap<>(quantities).forEach((productId, quantity) ->
+                canonical.append(productId).append(':').append(quantity).append('\n'));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 
-    private Future<List<ProductWithQuantity>> decrementStockSequentially(
-            List<ProductWithQuantity> products,
-            int index,
-            List<ProductWithQuantity> updatedProducts) {
+    /**
+     * @param orderId id for the new order, or null to have one generated
+     * @param afterSave step run on the order transaction once the order is inserted, or null
+     */
+    private Future<Order> placeOrder(UUID userId, Map<UUID, Integer> quantities, UUID orderId,
+                                     BiFunction<SqlConnection, Order, Future<Order>> afterSave) {
+        // Hot products are reserved in memory first; the rest go through the locked UPDATE
+        Map<UUID, Integer> reserved = new LinkedHashMap<>();
+        quantities.forEach((productId, quantity) -> {
+            if (stockReservations.manages(productId)) {
+                reserved.put(productId, quantity);
+            }
+        });
 
-        if (index >= products.size()) {
-            return Future.succeededFuture(updatedProducts);
+        if (reserved.isEmpty()) {
+            return createWithRetry(userId, quantities, reserved, orderId, afterSave, 0)
+                    .onSuccess(order -> countCache.increment(userId));
         }
 
-        ProductWithQuantity pwq = products.get(index);
-        return decrementStockWithRetry(pwq.product.getId(), pwq.quantity, pwq.product.getVersion(), 0)
-                .compose(updatedProduct -> {
-                    updatedProducts.add(new ProductWithQuantity(updatedProduct, pwq.quantity));
-                    return decrementStockSequentially(products, index + 1, updatedProducts);
-                });
+        return stockReservations.reserve(reserved)
+                .compose(v -> createWithRetry(userId, quantities, reserved, orderId, afterSave, 0)
+                        .onSuccess(order -> stockReservations.confirm(reserved))
+                        .onFailure(err -> stockReservations.release(reserved)))
+                .onSuccess(order -> countCache.increment(userId));
     }
 
     /**
-     * Attempts to decrement stock with retry on optimistic locking failure.
-     * On conflict, re-fetches the product and tries again up to MAX_RETRY_ATTEMPTS times.
+     * Runs the order transaction, retrying it when PostgreSQL aborts it because of
+     * a deadlock or serialization failure. Business failures are never retried.
      */
-    private Future<Product> decrementStockWithRetry(UUID productId, int quantity, int expectedVersion, int attempt) {
-        if (attempt >= MAX_RETRY_ATTEMPTS) {
-            logger.warn("Max retry attempts ({}) reached for product {}", MAX_RETRY_ATTEMPTS, productId);
-            return Future.failedFuture(new InsufficientStockException(productId));
-        }
+    private Future<Order> createWithRetry(UUID userId, Map<UUID, Integer> quantities, Map<UUID, Integer> reserved,
+                                          UUID orderId, BiFunction<SqlConnection, Order, Future<Order>> afterSave,
+                                          int attempt) {
+        return transactionManager.inTransaction(conn ->
+                        createInTransaction(conn, userId, quantities, reserved, orderId, afterSave))
+                .recover(err -> {
+                    if (!TransientFailures.isTransient(err) || attempt + 1 >= TransientFailures.MAX_ATTEMPTS) {
+                        return Future.failedFuture(err);
+                    }
+                    (TransientFailures.isDeadlock(err) ? deadlockRetries : serializationRetries).increment();
+                    logger.info("Transient failure creating order for user {}, retrying (attempt {})",
+                            userId, attempt + 1);
+                    return createWithRetry(userId, quantities, reserved, orderId, afterSave, attempt + 1);
+                });
+    }
 
-        return productRepository.decrementStock(productId, quantity, expectedVersion)
-                .compose(optional -> {
-                    if (optional.isPresent()) {
-                        logger.debug("Stock decremented for product {} (attempt {})", productId, attempt + 1);
-                        return Future.succeededFuture(optional.get());
+    /**
+     * Creates the order with two statements on the same connection: decrement all stock
+     * (locking the products) and insert the order with its items. Prices come from the
+     * locked rows, so they cannot change between pricing and the stock update.
+     * Products already reserved in memory are only read for their price, and their items
+     * are stored for the reservation engine to apply later.
+     * The after-save step, such as storing the idempotency key, runs in the same transaction.
+     */
+    private Future<Order> createInTransaction(SqlConnection conn, UUID userId, Map<UUID, Integer> quantities,
+                                              Map<UUID, Integer> reserved, UUID orderId,
+                                              BiFunction<SqlConnection, Order, Future<Order>> afterSave) {
+        Map<UUID, Integer> toDecrement = new LinkedHashMap<>(quantities);
+        toDecrement.keySet().removeAll(reserved.keySet());
+
+        return decrementInDatabase(conn, toDecrement)
+                .compose(updated -> loadReserved(conn, reserved)
+                        .map(reservedProducts -> {
+                            Map<UUID, Product> productsById = new HashMap<>();
+                            for (Product product : updated) {
+                                productsById.put(product.getId(), product);
+                            }
+                            for (Product product : reservedProducts) {
+                                productsById.put(product.getId(), product);
+                            }
+                            return productsById;
+                        }))
+                .compose(productsById -> {
+                    for (UUID productId : quantities.keySet()) {
+                        if (!productsById.containsKey(productId)) {
+                            return Future.failedFuture(new NotFoundException("Product", productId));
+                        }
                     }
 
-                    // Optimistic locking failed - retry with fresh data
-                    logger.info("Optimistic lock conflict for product {}, retrying (attempt {})",
-                            productId, attempt + 1);
+                    List<OrderItem> items = new ArrayList<>();
+                    BigDecimal total = BigDecimal.ZERO;
+
+                    for (Map.Entry<UUID, Integer> entry : quantities.entrySet()) {
+                        Product product = productsById.get(entry.getKey());
+                        int quantity = entry.getValue();
 
-                    return productRepository.findById(productId)
-                            .compose(freshProduct -> {
-                                if (freshProduct.isEmpty()) {
-                                    return Future.failedFuture(new NotFoundException("Product", productId));
-                                }
+                        items.add(OrderItem.builder()
+                                .productId(product.getId())
+                                .quantity(quantity)
+                                .unitPrice(product.getPrice())
+                                .build());
+                        total = total.add(product.getPrice().multiply(BigDecimal.valueOf(quantity)));
+                    }
 
-                                Product product = freshProduct.get();
+                    Order order = Order.builder()
+                            .id(orderId)
+                            .userId(userId)
+                            .status(Order.OrderStatus.PENDING)
+                            .total(total)
+                            .items(items)
+                            .build();
+
+                    return orderRepository.saveWithItems(conn, order, reserved.keySet());
+                })
+                .compose(order -> afterSave == null ? Future.succeededFuture(order) : afterSave.apply(conn, order));
+    }
 
-                                // Check if there's enough stock after refresh
-                                if (product.getStock() < quantity) {
-                                    return Future.failedFuture(new InsufficientStockException(
-                                            productId, quantity, product.getStock()));
-                                }
+    private Future<Order> saveKey(SqlConnection conn, UUID userId, KeyedRequest keyed, Order order) {
+        StoredIdempotencyKey stored = new StoredIdempotencyKey(keyed.requestHash(), order.getId(), Json.encode(order));
+        return idempotencyKeyRepository.save(conn, userId, keyed.key(), stored)
+                .compose(saved -> saved ? Future.succeededFuture(order) : Future.failedFuture(new IdempotencyKeyTaken()));
+    }
 
-                                // Retry with new version
-                                return decrementStockWithRetry(productId, quantity, product.getVersion(), attempt + 1);
-                            });
+    private Future<List<Product>> decrementInDatabase(SqlConnection conn, Map<UUID, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return Future.succeededFuture(List.of());
+        }
+        return productRepository.decrementStock(conn, quantities)
+                .compose(result -> {
+                    if (!result.missing().isEmpty()) {
+                        return Future.failedFuture(new NotFoundException("Product", result.missing().get(0)));
+                    }
+                    if (!result.shortages().isEmpty()) {
+                        return Future.failedFuture(new InsufficientStockException(result.shortages()));
+                    }
+                    return Future.succeededFuture(result.updated());
                 });
     }
 
+    private Future<List<Product>> loadReserved(SqlConnection conn, Map<UUID, Integer> reserved) {
+        if (reserved.isEmpty()) {
+            return Future.succeededFuture(List.of());
+        }
+        return productRepository.findByIds(conn, new ArrayList<>(reserved.keySet()));
+    }
+
     @Override
     public Future<Order> findById(UUID id, UUID userId) {
         return orderRepository.findById(id)
@@ -209,11 +411,113 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
-    public Future<PageResponse<Order>> findByUserId(UUID userId, int page, int size) {
-        return orderRepository.countByUserId(userId)
-                .compose(total -> orderRepository.findByUserId(userId, page, size)
-                        .map(orders -> new PageResponse<>(orders, page, size, total)));
+    public Future<PageResponse<Order>> findByUserId(UUID userId, int page, int size, FieldSet fields,
+                                                    boolean withItems) {
+        if (countStrategy == CountStrategy.CACHED) {
+            Future<Long> total = countCache.get(userId, () -> orderRepository.countByUserId(userId));
+            Future<List<Order>> orders = orderRepository.findByUserId(userId, page, size, fields, withItems);
+            return Future.all(total, orders)
+                    .map(cf -> new PageResponse<>(orders.result(), page, size, total.result(), false));
+        }
+
+        // pg_class.reltuples only describes the whole table, so per-user listings always count exactly
+        return orderRepository.findByUserIdWithCount(userId, page, size, fields, withItems)
+                .compose(result -> {
+                    if (result.hasTotal()) {
+                        return Future.succeededFuture(new PageResponse<>(result.content(), page, size, result.total()));
+                    }
+                    // Page past the last row: no row carried the count
+                    return orderRepository.countByUserId(userId)
+                            .map(total -> new PageResponse<>(result.content(), page, size, total));
+                });
+    }
+
+    @Override
+    public Future<PageResponse<Order>> findByUserId(UUID userId, PageCursor cursor, int size, FieldSet fields,
+                                                    boolean withItems) {
+        // Fetch one extra row to know whether there is a next page
+        return orderRepository.findByUserIdAfter(userId, cursor, size + 1, fields, withItems)
+                .map(orders -> PageResponse.ofCursor(orders, size,
+                        order -> new PageCursor(order.getCreatedAt(), order.getId())));
+    }
+
+    @Override
+    public Future<Void> exportByUserId(UUID userId, Function<ReadStream<Order>, Future<Void>> consumer) {
+        return orderRepository.streamByUserId(userId, consumer);
     }
 
-    private record ProductWithQuantity(Product product, int quantity) {}
+    @Override
+    public Future<Order> updateStatus(UUID id, UUID userId, Order.OrderStatus status, Integer expectedVersion) {
+        if (userId != null && status != Order.OrderStatus.CANCELLED) {
+            return Future.failedFuture(new ForbiddenException("Customers can only cancel their orders"));
+        }
+        Map<UUID, Integer> expectedVersions = new HashMap<>();
+        expectedVersions.put(id, expectedVersion);
+
+        return transition(status, expectedVersions, userId)
+                .compose(result -> {
+                    if (!result.updated().isEmpty()) {
+                        return Future.succeededFuture(result.updated().get(0));
+                    }
+                    if (!result.missing().isEmpty()) {
+                        return Future.failedFuture(new NotFoundException("Order", id));
+                    }
+                    Order current = result.rejected().get(0);
+                    if (current.getStatus().canTransitionTo(status)) {
+                        return Future.failedFuture(new ConflictException("Order", id));
+                    }
+                    return Future.failedFuture(new ConflictException(rejection(current, status).message()));
+                });
+    }
+
+    @Override
+    public Future<StatusUpdateResponse> updateStatuses(Order.OrderStatus status, Map<UUID, Integer> expectedVersions) {
+        if (expectedVersions == null || expectedVersions.isEmpty()) {
+            return Future.failedFuture(new ValidationException("At least one order ID is required"));
+        }
+        if (expectedVersions.size() > MAX_STATUS_UPDATES) {
+            return Future.failedFuture(new ValidationException(
+                    "At most " + MAX_STATUS_UPDATES + " orders can be updated at once"));
+        }
+
+        return transition(status, expectedVersions, null)
+                .map(result -> {
+                    List<StatusUpdateResponse.Rejection> rejected = new ArrayList<>();
+                    for (UUID id : result.missing()) {
+                        rejected.add(new StatusUpdateResponse.Rejection(id, null, null, "Order not found"));
+                    }
+                    for (Order current : result.rejected()) {
+                        rejected.add(rejection(current, status));
+                    }
+                    return new StatusUpdateResponse(result.updated(), rejected);
+                });
+    }
+
+    private Future<StatusTransitionResult> transition(Order.OrderStatus status, Map<UUID, Integer> expectedVersions,
+                                                      UUID userId) {
+        if (status == null) {
+            return Future.failedFuture(new ValidationException("Status is required"));
+        }
+        List<Order.OrderStatus> sources = status.sources();
+        if (sources.isEmpty()) {
+            return Future.failedFuture(new ValidationException("Orders cannot be moved to " + status));
+        }
+
+        return orderRepository.transitionStatus(expectedVersions, status, sources, userId)
+                // Committed: cached products are reloaded and hot products resync their available stock,
+                // which now includes the released units
+                .onSuccess(result -> {
+                    productRepository.evict(result.restockedProducts());
+                    result.releasedUnits().keySet().stream()
+                            .filter(stockReservations::manages)
+                            .forEach(stockReservations::resync);
+                });
+    }
+
+    private static StatusUpdateResponse.Rejection rejection(Order current, Order.OrderStatus target) {
+        String message = current.getStatus().canTransitionTo(target)
+                ? "Order was modified concurrently; current version is " + current.getVersion()
+                : "Order cannot move from " + current.getStatus() + " to " + target;
+        return new StatusUpdateResponse.Rejection(current.getId(), current.getStatus(), current.getVersion(), message);
+    }
 }
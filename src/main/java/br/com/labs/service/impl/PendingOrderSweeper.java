@@ -0,0 +1,124 @@
+package br.com.labs.service.impl;
+
+import br.com.labs.repository.ExpiredOrders;
+import br.com.labs.repository.OrderRepository;
+import br.com.labs.repository.ProductRepository;
+import br.com.labs.repository.TransactionManager;
+import br.com.labs.reservation.StockReservations;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cancels PENDING orders older than the TTL and puts their stock back, so abandoned checkouts
+ * do not hold inventory forever.
+ *
+ * Each run cancels batches of at most {@code batchSize} orders, one transaction per batch, until
+ * a batch comes back short. Every node runs the sweeper: batches lock their orders with
+ * SKIP LOCKED, so concurrent runs split the expired orders between them instead of colliding.
+ */
+public class PendingOrderSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(PendingOrderSweeper.class);
+
+    private final Vertx vertx;
+    private final OrderRepository orderRepository;
+    private final ProductRepository productRepository;
+    private final TransactionManager transactionManager;
+    private final StockReservations stockReservations;
+    private final Duration pendingTtl;
+    private final long intervalMs;
+    private final int batchSize;
+
+    private final Counter expiredOrders;
+    private final DistributionSummary releasedUnits;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private long timer = -1;
+
+    private record RunTotals(int orders, int units) {
+    }
+
+    public PendingOrderSweeper(Vertx vertx, OrderRepository orderRepository, ProductRepository productRepository,
+                               TransactionManager transactionManager, StockReservations stockReservations,
+                               Duration pendingTtl, long intervalMs, int batchSize, MeterRegistry meterRegistry) {
+        this.vertx = vertx;
+        this.orderRepository = orderRepository;
+        this.productRepository = productRepository;
+        this.transactionManager = transactionManager;
+        this.stockReservations = stockReservations;
+        this.pendingTtl = pendingTtl;
+        this.intervalMs = intervalMs;
+        this.batchSize = batchSize;
+
+        this.expiredOrders = Counter.builder("orders.expired")
+                .description("Pending orders cancelled for exceeding the pending TTL")
+                .register(meterRegistry);
+        this.releasedUnits = DistributionSummary.builder("orders.expiry.released.units")
+                .description("Stock units put back by each run of the pending order sweeper")
+                .register(meterRegistry);
+    }
+
+    public void start() {
+        timer = vertx.setPeriodic(intervalMs, id -> sweep());
+    }
+
+    public void stop() {
+        vertx.cancelTimer(timer);
+    }
+
+    /**
+     * Runs one sweep, unless the previous one is still running on this node.
+     *
+     * @return Future with the number of orders cancelled
+     */
+    public Future<Integer> sweep() {
+        if (!running.compareAndSet(false, true)) {
+            return Future.succeededFuture(0);
+        }
+
+        // The cutoff is fixed per run, so orders expiring meanwhile wait for the next one
+        LocalDateTime cutoff = LocalDateTime.now().minus(pendingTtl);
+        return sweepFrom(cutoff, new RunTotals(0, 0))
+                .map(totals -> {
+                    releasedUnits.record(totals.units());
+                    if (totals.orders() > 0) {
+                        logger.info("Cancelled {} expired pending orders, releasing {} units of stock",
+                                totals.orders(), totals.units());
+                    }
+                    return totals.orders();
+                })
+                .onFailure(err -> logger.error("Failed to cancel expired pending orders", err))
+                .onComplete(ar -> running.set(false));
+    }
+
+    private Future<RunTotals> sweepFrom(LocalDateTime cutoff, RunTotals totals) {
+        return transactionManager.inTransaction(conn -> orderRepository.cancelExpired(conn, cutoff, batchSize))
+                .compose(batch -> {
+                    released(batch);
+                    RunTotals sum = new RunTotals(totals.orders() + batch.cancelled(),
+                            totals.units() + batch.totalUnits());
+                    if (batch.cancelled() < batchSize) {
+                        return Future.succeededFuture(sum);
+                    }
+                    return sweepFrom(cutoff, sum);
+                });
+    }
+
+    // Committed: cached products are reloaded and hot products resync their available stock, which now
+    // includes the released units. Other nodes drop their copies on the products' change notification.
+    private void released(ExpiredOrders batch) {
+        expiredOrders.increment(batch.cancelled());
+        productRepository.evict(batch.restockedProducts());
+        batch.releasedUnits().keySet().stream()
+                .filter(stockReservations::manages)
+                .forEach(stockReservations::resync);
+    }
+}
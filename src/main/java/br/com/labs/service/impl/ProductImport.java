@@ -0,0 +1,377 @@
+package br.com.labs.service.impl;
+
+import br.com.labs.dto.request.FeedFormat;
+import br.com.labs.dto.response.ImportSummary;
+import br.com.labs.exception.ValidationException;
+import br.com.labs.model.Product;
+import br.com.labs.repository.CategoryRepository;
+import br.com.labs.repository.ProductRepository;
+import br.com.labs.repository.ProductUpsertResult;
+import br.com.labs.repository.TransactionManager;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One bulk import: reads the body line by line, validates each row and writes the valid ones
+ * in batches of {@link #BATCH_SIZE} with a single upsert per batch.
+ *
+ * The line stream is paused while a batch is being written, so a feed of any size holds at most
+ * one batch in memory and the client is slowed down by TCP backpressure instead. Batches commit
+ * independently: a failure stops the import, and the batches already written stay. A batch that
+ * PostgreSQL aborts with a deadlock or serialization failure is run again.
+ */
+final class ProductImport {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImport.class);
+
+    static final int BATCH_SIZE = 1000;
+
+    private static final int MAX_NAME_LENGTH = 255;
+    private static final int MAX_CODE_LENGTH = 50;
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+    private static final Set<String> CSV_COLUMNS = Set.of("name", "description", "code", "price", "stock", "categoryid");
+
+    private final ReadStream<Buffer> lines;
+    private final FeedFormat format;
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final TransactionManager transactionManager;
+    private final Consumer<ProductUpsertResult> onBatchWritten;
+
+    private final ImportSummary summary = new ImportSummary();
+    private final Promise<ImportSummary> result = Promise.promise();
+    // Keyed by code: a code repeated in the feed flushes the batch first, so the later row wins
+    private final Map<String, ImportRow> batch = new LinkedHashMap<>();
+    private final Map<UUID, Boolean> knownCategories = new HashMap<>();
+
+    private List<String> header;
+    private long lineNumber;
+    private Future<Void> writing = Future.succeededFuture();
+
+    private record ImportRow(long line, Product product) {
+    }
+
+    ProductImport(ReadStream<Buffer> lines, FeedFormat format, ProductRepository productRepository,
+                  CategoryRepository categoryRepository, TransactionManager transactionManager,
+                  Consumer<ProductUpsertResult> onBatchWritten) {
+        this.lines = lines;
+        this.format = format;
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.transactionManager = transactionManager;
+        this.onBatchWritten = onBatchWritten;
+    }
+
+    Future<ImportSummary> run() {
+        lines.exceptionHandler(this::fail);
+        lines.endHandler(v -> writing
+                .compose(written -> writeBatch())
+                .onSuccess(written -> {
+                    if (format == FeedFormat.CSV && header == null) {
+                        fail(new ValidationException("CSV header line is required"));
+                    }
+                    result.tryComplete(summary);
+                })
+                .onFailure(this::fail));
+        lines.handler(this::onLine);
+        return result.future();
+    }
+
+    private void onLine(Buffer buffer) {
+        lineNumber++;
+        String line = buffer.toString();
+        if (line.endsWith("\r")) {
+            line = line.substring(0, line.length() - 1);
+        }
+        if (line.isBlank()) {
+            return;
+        }
+
+        if (format == FeedFormat.CSV && header == null) {
+            try {
+                header = parseHeader(line);
+            } catch (ValidationException e) {
+                fail(e);
+            }
+            return;
+        }
+
+        Map<String, String> values;
+        try {
+            values = format == FeedFormat.CSV ? parseCsv(line) : parseJson(line);
+        } catch (ValidationException e) {
+            summary.reject(lineNumber, null, e.getMessage());
+            return;
+        }
+        String code = trimToNull(values.get("code"));
+        ImportRow row;
+        try {
+            row = new ImportRow(lineNumber, toProduct(values));
+        } catch (ValidationException e) {
+            summary.reject(lineNumber, code, e.getMessage());
+            return;
+        }
+
+        if (batch.size() < BATCH_SIZE && !batch.containsKey(code)) {
+            batch.put(code, row);
+            return;
+        }
+
+        lines.pause();
+        writing = writeBatch()
+                .onSuccess(v -> {
+                    batch.put(code, row);
+                    lines.resume();
+                })
+                .onFailure(this::fail);
+    }
+
+    private Future<Void> writeBatch() {
+        if (batch.isEmpty() || result.future().isComplete()) {
+            return Future.succeededFuture();
+        }
+        List<ImportRow> rows = new ArrayList<>(batch.values());
+        batch.clear();
+
+        return checkCategories(rows)
+                .compose(valid -> {
+                    if (valid.isEmpty()) {
+                        return Future.succeededFuture();
+                    }
+                    List<Product> products = new ArrayList<>(valid.size());
+                    valid.forEach(row -> products.add(row.product()));
+                    return upsertWithRetry(products, 0)
+                            .<Void>map(upserted -> {
+                                int inserted = upserted.inserted().size();
+                                int updated = upserted.updated().size();
+                                summary.addWritten(inserted, updated, valid.size() - inserted - updated);
+                                onBatchWritten.accept(upserted);
+                                return null;
+                            });
+                });
+    }
+
+    // The row locks only hold within a transaction, and a deadlock rolls the whole batch back
+    private Future<ProductUpsertResult> upsertWithRetry(List<Product> products, int attempt) {
+        return transactionManager.inTransaction(conn -> productRepository.upsertByCode(conn, products))
+                .recover(err -> {
+                    if (!TransientFailures.isTransient(err) || attempt + 1 >= TransientFailures.MAX_ATTEMPTS) {
+                        return Future.failedFuture(err);
+                    }
+                    logger.info("Transient failure writing an import batch, retrying (attempt {})", attempt + 1);
+                    return upsertWithRetry(products, attempt + 1);
+                });
+    }
+
+    // Categories are few: each one is looked up once per import and remembered
+    private Future<List<ImportRow>> checkCategories(List<ImportRow> rows) {
+        List<UUID> unknown = rows.stream()
+                .map(row -> row.product().getCategoryId())
+                .filter(id -> id != null && !knownCategories.containsKey(id))
+                .distinct()
+                .toList();
+
+        List<Future<Boolean>> lookups = new ArrayList<>(unknown.size());
+        for (UUID categoryId : unknown) {
+            lookups.add(categoryRepository.existsById(categoryId)
+                    .onSuccess(exists -> knownCategories.put(categoryId, exists)));
+        }
+
+        return Future.all(lookups).map(v -> {
+            List<ImportRow> valid = new ArrayList<>(rows.size());
+            for (ImportRow row : rows) {
+                UUID categoryId = row.product().getCategoryId();
+                if (categoryId == null || knownCategories.get(categoryId)) {
+                    valid.add(row);
+                } else {
+                    summary.reject(row.line(), row.product().getCode(), "Category not found: " + categoryId);
+                }
+            }
+            return valid;
+        });
+    }
+
+    private void fail(Throwable err) {
+        if (err instanceof IllegalStateException) {
+            // Thrown by the line parser when a line exceeds its maximum size
+            err = new ValidationException("Line " + (lineNumber + 1) + " is too long");
+        }
+        if (result.tryFail(err)) {
+            lines.pause();
+        }
+    }
+
+    private static Map<String, String> parseJson(String line) {
+        JsonObject json;
+        try {
+            json = new JsonObject(line);
+        } catch (DecodeException | ClassCastException e) {
+            throw new ValidationException("Invalid JSON object");
+        }
+
+        Map<String, String> values = new HashMap<>();
+        for (String field : List.of("name", "description", "code", "price", "stock", "categoryId")) {
+            Object value = json.getValue(field);
+            if (value != null) {
+                values.put(field.toLowerCase(Locale.ROOT), value.toString());
+            }
+        }
+        return values;
+    }
+
+    private Map<String, String> parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() != header.size()) {
+            throw new ValidationException("Expected " + header.size() + " columns but found " + fields.size());
+        }
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            values.put(header.get(i), fields.get(i).isEmpty() ? null : fields.get(i));
+        }
+        return values;
+    }
+
+    private static List<String> parseHeader(String line) {
+        List<String> columns = new ArrayList<>();
+        for (String column : splitCsv(line)) {
+            String name = column.trim().toLowerCase(Locale.ROOT);
+            if (!CSV_COLUMNS.contains(name)) {
+                throw new ValidationException("Unknown CSV column: " + column.trim());
+            }
+            columns.add(name);
+        }
+        for (String required : List.of("name", "code", "price")) {
+            if (!columns.contains(required)) {
+                throw new ValidationException("CSV header must include the " + required + " column");
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Splits one CSV line (RFC 4180 quoting, with "" for a quote inside a quoted field).
+     * Quoted fields cannot span lines.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new ValidationException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // Same rules as creating a single product; lengths and ranges are checked here so one bad row cannot fail a batch
+    private static Product toProduct(Map<String, String> values) {
+        String code = trimToNull(values.get("code"));
+        if (code == null) {
+            throw new ValidationException("Product code is required");
+        }
+        if (code.length() > MAX_CODE_LENGTH) {
+            throw new ValidationException("Product code must have at most " + MAX_CODE_LENGTH + " characters");
+        }
+
+        String name = requireValue(values, "name", "Product name is required");
+        if (name.length() > MAX_NAME_LENGTH) {
+            throw new ValidationException("Product name must have at most " + MAX_NAME_LENGTH + " characters");
+        }
+
+        BigDecimal price;
+        try {
+            price = new BigDecimal(requireValue(values, "price", "Product price is required"));
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Product price must be a number");
+        }
+        if (price.signum() <= 0 || price.compareTo(MAX_PRICE) > 0) {
+            throw new ValidationException("Product price must be greater than 0 and at most " + MAX_PRICE);
+        }
+
+        // Absent or blank stock keeps the stored quantity; new products start at 0
+        Integer stock = null;
+        String stockValue = trimToNull(values.get("stock"));
+        if (stockValue != null) {
+            try {
+                stock = Integer.parseInt(stockValue);
+            } catch (NumberFormatException e) {
+                throw new ValidationException("Stock must be an integer");
+            }
+            if (stock < 0) {
+                throw new ValidationException("Stock cannot be negative");
+            }
+        }
+
+        UUID categoryId = null;
+        String categoryValue = trimToNull(values.get("categoryid"));
+        if (categoryValue != null) {
+            try {
+                categoryId = UUID.fromString(categoryValue);
+            } catch (IllegalArgumentException e) {
+                throw new ValidationException("Invalid category ID format");
+            }
+        }
+
+        return Product.builder()
+                .code(code)
+                .name(name)
+                .description(values.get("description"))
+                .price(price)
+                .stock(stock)
+                .categoryId(categoryId)
+                .build();
+    }
+
+    private static String requireValue(Map<String, String> values, String field, String message) {
+        String value = trimToNull(values.get(field));
+        if (value == null) {
+            throw new ValidationException(message);
+        }
+        return value;
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
@@ -1,26 +1,68 @@
 package br.com.labs.service.impl;
 
+import br.com.labs.cache.CountCache;
+import br.com.labs.config.CountStrategy;
 import br.com.labs.dto.request.CreateProductRequest;
+import br.com.labs.dto.request.FieldSet;
+import br.com.labs.dto.request.FeedFormat;
+import br.com.labs.dto.request.PageCursor;
+import br.com.labs.dto.request.SearchCursor;
 import br.com.labs.dto.request.UpdateProductRequest;
+import br.com.labs.dto.response.BatchResponse;
+import br.com.labs.dto.response.ImportSummary;
 import br.com.labs.dto.response.PageResponse;
+import br.com.labs.exception.ConflictException;
 import br.com.labs.exception.NotFoundException;
 import br.com.labs.exception.ValidationException;
 import br.com.labs.model.Product;
+import br.com.labs.model.ProductSuggestion;
+import br.com.labs.model.ProductVersion;
 import br.com.labs.repository.CategoryRepository;
 import br.com.labs.repository.ProductRepository;
+import br.com.labs.repository.ProductSearchHit;
+import br.com.labs.repository.ProductUpsertResult;
+import br.com.labs.repository.TransactionManager;
+import br.com.labs.reservation.StockReservations;
 import br.com.labs.service.ProductService;
+import br.com.labs.suggest.ProductSuggestions;
 import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.ReadStream;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
 
 public class ProductServiceImpl implements ProductService {
 
+    private static final String ALL_PRODUCTS = "products";
+    private static final int MAX_BATCH_IDS = 100;
+    private static final int MAX_QUERY_LENGTH = 200;
+    private static final int MAX_SUGGESTIONS = 20;
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final CountStrategy countStrategy;
+    private final CountCache<String> countCache;
+    private final StockReservations stockReservations;
+    private final ProductSuggestions productSuggestions;
+    private final TransactionManager transactionManager;
 
-    public ProductServiceImpl(ProductRepository productRepository, CategoryRepository categoryRepository) {
+    public ProductServiceImpl(ProductRepository productRepository, CategoryRepository categoryRepository,
+                              CountStrategy countStrategy, CountCache<String> countCache,
+                              StockReservations stockReservations, ProductSuggestions productSuggestions,
+                              TransactionManager transactionManager) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
+        this.transactionManager = transactionManager;
+        this.countStrategy = countStrategy;
+        this.countCache = countCache;
+        this.stockReservations = stockReservations;
+        this.productSuggestions = productSuggestions;
     }
 
     @Override
@@ -68,7 +110,31 @@ public class ProductServiceImpl implements ProductService {
                 .categoryId(request.getCategoryId())
                 .build();
 
-        return productRepository.save(product);
+        return productRepository.save(product)
+                .onSuccess(saved -> {
+                    countCache.increment(ALL_PRODUCTS);
+                    productSuggestions.put(saved);
+                });
+    }
+
+    @Override
+    public Future<ImportSummary> importProducts(ReadStream<Buffer> lines, FeedFormat format) {
+        return new ProductImport(lines, format, productRepository, categoryRepository, transactionManager,
+                this::afterImportBatch).run();
+    }
+
+    @Override
+    public Future<Void> exportProducts(FieldSet fields, Function<ReadStream<Product>, Future<Void>> consumer) {
+        return productRepository.streamAll(fields, consumer);
+    }
+
+    private void afterImportBatch(ProductUpsertResult result) {
+        countCache.add(ALL_PRODUCTS, result.inserted().size());
+        result.inserted().forEach(productSuggestions::put);
+        result.updated().forEach(product -> {
+            stockReservations.resync(product.getId());
+            productSuggestions.put(product);
+        });
     }
 
     @Override
@@ -106,11 +172,23 @@ public class ProductServiceImpl implements ProductService {
                                         return Future.failedFuture(new NotFoundException("Category", request.getCategoryId()));
                                     }
                                     product.setCategoryId(request.getCategoryId());
-                                    return productRepository.update(product);
+                                    return updateVersioned(product);
                                 });
                     }
 
-                    return productRepository.update(product);
+                    return updateVersioned(product);
+                });
+    }
+
+    private Future<Product> updateVersioned(Product product) {
+        return productRepository.update(product)
+                .compose(updated -> updated
+                        .map(Future::succeededFuture)
+                        .orElseGet(() -> Future.failedFuture(new ConflictException("Product", product.getId()))))
+                // Stock may have been set by hand; let the reservation engine reload it
+                .onSuccess(updated -> {
+                    stockReservations.resync(updated.getId());
+                    productSuggestions.put(updated);
                 });
     }
 
@@ -126,10 +204,109 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
-    public Future<PageResponse<Product>> findAll(int page, int size) {
-        return productRepository.count()
-                .compose(total -> productRepository.findAll(page, size)
-                        .map(products -> new PageResponse<>(products, page, size, total)));
+    public Future<ProductVersion> findVersion(UUID id) {
+        return productRepository.findVersion(id)
+                .compose(optional -> {
+                    if (optional.isEmpty()) {
+                        return Future.failedFuture(new NotFoundException("Product", id));
+                    }
+                    return Future.succeededFuture(optional.get());
+                });
+    }
+
+    @Override
+    public Future<BatchResponse<Product>> findByIds(List<UUID> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Future.failedFuture(new ValidationException("At least one product ID is required"));
+        }
+
+        List<UUID> requested = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (requested.size() > MAX_BATCH_IDS) {
+            return Future.failedFuture(new ValidationException(
+                    "At most " + MAX_BATCH_IDS + " product IDs can be requested at once"));
+        }
+
+        return productRepository.findByIds(requested)
+                .map(products -> {
+                    Map<UUID, Product> byId = new HashMap<>();
+                    products.forEach(product -> byId.put(product.getId(), product));
+
+                    List<Product> content = new ArrayList<>(byId.size());
+                    List<UUID> missing = new ArrayList<>();
+                    for (UUID id : requested) {
+                        Product product = byId.get(id);
+                        if (product != null) {
+                            content.add(product);
+                        } else {
+                            missing.add(id);
+                        }
+                    }
+                    return new BatchResponse<>(content, missing);
+                });
+    }
+
+    @Override
+    public Future<PageResponse<Product>> findAll(int page, int size, FieldSet fields) {
+        return switch (countStrategy) {
+            case EXACT -> productRepository.findAllWithCount(page, size, fields)
+                    .compose(result -> {
+                        if (result.hasTotal()) {
+                            return Future.succeededFuture(new PageResponse<>(result.content(), page, size, result.total()));
+                        }
+                        // Page past the last row: no row carried the count
+                        return productRepository.count()
+                                .map(total -> new PageResponse<>(result.content(), page, size, total));
+                    });
+            case CACHED -> {
+                Future<Long> total = countCache.get(ALL_PRODUCTS, productRepository::count);
+                Future<List<Product>> products = productRepository.findAll(page, size, fields);
+                yield Future.all(total, products)
+                        .map(cf -> new PageResponse<>(products.result(), page, size, total.result(), false));
+            }
+            case ESTIMATED -> productRepository.findAllWithEstimatedCount(page, size, fields)
+                    .map(result -> {
+                        // The estimate is -1 or stale before ANALYZE; never report fewer rows than we have seen
+                        long seen = (long) page * size + result.content().size();
+                        long total = Math.max(result.total(), seen);
+                        return new PageResponse<>(result.content(), page, size, total, false);
+                    });
+        };
+    }
+
+    @Override
+    public Future<PageResponse<Product>> findAll(PageCursor cursor, int size, FieldSet fields) {
+        // Fetch one extra row to know whether there is a next page
+        return productRepository.findAllAfter(cursor, size + 1, fields)
+                .map(products -> PageResponse.ofCursor(products, size,
+                        product -> new PageCursor(product.getCreatedAt(), product.getId())));
+    }
+
+    @Override
+    public Future<PageResponse<Product>> search(String query, SearchCursor cursor, int size, FieldSet fields) {
+        if (query == null || query.isBlank()) {
+            return Future.failedFuture(new ValidationException("Search query is required"));
+        }
+        if (query.length() > MAX_QUERY_LENGTH) {
+            return Future.failedFuture(new ValidationException(
+                    "Search query must have at most " + MAX_QUERY_LENGTH + " characters"));
+        }
+
+        // Fetch one extra row to know whether there is a next page
+        return productRepository.search(query.trim(), cursor, size + 1, fields)
+                .map(hits -> PageResponse.ofCursor(hits, size, ProductSearchHit::product,
+                        hit -> new SearchCursor(hit.rank(), hit.product().getId()).encode()));
+    }
+
+    @Override
+    public Future<List<ProductSuggestion>> suggest(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            return Future.failedFuture(new ValidationException("Suggestion prefix is required"));
+        }
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            return Future.failedFuture(new ValidationException(
+                    "Suggestion limit must be between 1 and " + MAX_SUGGESTIONS));
+        }
+        return Future.succeededFuture(productSuggestions.suggest(prefix, limit));
     }
 
     @Override
@@ -139,7 +316,13 @@ public class ProductServiceImpl implements ProductService {
                     if (optional.isEmpty()) {
                         return Future.failedFuture(new NotFoundException("Product", id));
                     }
-                    return productRepository.delete(id);
+                    return productRepository.delete(id)
+                            .onSuccess(deleted -> {
+                                if (deleted) {
+                                    countCache.decrement(ALL_PRODUCTS);
+                                    productSuggestions.remove(id);
+                                }
+                            });
                 });
     }
 }
@@ -0,0 +1,27 @@
+package br.com.labs.service.impl;
+
+import io.vertx.pgclient.PgException;
+
+/**
+ * Failures after which PostgreSQL rolled the transaction back and running it again can succeed.
+ */
+final class TransientFailures {
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private static final String SERIALIZATION_FAILURE = "40001";
+    private static final String DEADLOCK_DETECTED = "40P01";
+
+    private TransientFailures() {
+    }
+
+    static boolean isTransient(Throwable err) {
+        return err instanceof PgException pgException
+                && (SERIALIZATION_FAILURE.equals(pgException.getSqlState())
+                || DEADLOCK_DETECTED.equals(pgException.getSqlState()));
+    }
+
+    static boolean isDeadlock(Throwable err) {
+        return err instanceof PgException pgException && DEADLOCK_DETECTED.equals(pgException.getSqlState());
+    }
+}
@@ -0,0 +1,432 @@
+package br.com.labs.suggest;
+
+import br.com.labs.model.Product;
+import br.com.labs.model.ProductSuggestion;
+import br.com.labs.repository.ProductRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * In-process prefix index for product typeahead: a sorted array of keys searched by binary search.
+ * Each product contributes its code and every suffix of its name that starts a word, so "pre"
+ * finds "Smartphone Preto". Keys are lower case without accents.
+ *
+ * The arrays are an immutable snapshot, rebuilt off the event loop from the database on start
+ * and every reload interval, which also refreshes popularity (units sold) and picks up writes
+ * made by other nodes. Writes made through this node are kept in a small map that overrides the
+ * snapshot until they are merged by the next rebuild, so lookups never block on a rebuild.
+ */
+public class ProductSuggestIndex implements ProductSuggestions {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSuggestIndex.class);
+
+    // Prefixes covering more keys than this have their best products precomputed, so a lookup never scans more
+    private static final int MAX_SCAN_KEYS = 512;
+    // Above the largest limit the API accepts, leaving room for products changed since the build
+    private static final int TOP_SIZE = 32;
+    // Typeahead input rarely gets this long; longer keys would only cost memory
+    static final int MAX_KEY_LENGTH = 32;
+    private static final int MAX_PENDING_CHANGES = 10_000;
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Comparator<ProductSuggestion> BY_POPULARITY = Comparator
+            .comparingLong(ProductSuggestion::popularity).reversed()
+            .thenComparing(ProductSuggestion::name)
+            .thenComparing(ProductSuggestion::id);
+
+    private final Vertx vertx;
+    private final ProductRepository repository;
+    private final long reloadIntervalMs;
+
+    private final Map<UUID, Change> changes = new ConcurrentHashMap<>();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private long reloadTimer = -1;
+
+    // A write not merged into the snapshot yet; product is null when it was deleted
+    private record Change(ProductSuggestion product) {
+    }
+
+    public ProductSuggestIndex(Vertx vertx, ProductRepository repository, long reloadIntervalMs,
+                               MeterRegistry meterRegistry) {
+        this.vertx = vertx;
+        this.repository = repository;
+        this.reloadIntervalMs = reloadIntervalMs;
+
+        Gauge.builder("suggest.index.products", () -> snapshot.products.length)
+                .description("Products in the suggestion index snapshot")
+                .register(meterRegistry);
+        Gauge.builder("suggest.index.keys", () -> snapshot.keys.length)
+                .description("Prefix keys in the suggestion index snapshot")
+                .register(meterRegistry);
+        Gauge.builder("suggest.index.memory", () -> snapshot.estimatedBytes)
+                .description("Estimated heap used by the suggestion index snapshot")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("suggest.index.pending", changes::size)
+                .description("Writes not merged into the snapshot yet")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads the index and schedules the periodic reload. Until the first load completes
+     * suggestions only include products written through this node.
+     */
+    public Future<Void> start() {
+        if (reloadIntervalMs > 0) {
+            reloadTimer = vertx.setPeriodic(reloadIntervalMs, id -> reload());
+        }
+        return reload();
+    }
+
+    public void stop() {
+        vertx.cancelTimer(reloadTimer);
+    }
+
+    /**
+     * Rebuilds the snapshot from the database, streaming the rows instead of loading them in one result set.
+     */
+    public Future<Void> reload() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return Future.succeededFuture();
+        }
+
+        // Writes already recorded were committed before the read starts, so the database has them
+        Map<UUID, Change> merged = Map.copyOf(changes);
+        List<ProductSuggestion> loaded = new ArrayList<>();
+        return repository.streamSuggestions(loaded::add)
+                .compose(v -> rebuild(loaded, merged))
+                .onFailure(err -> logger.error("Failed to load the product suggestion index", err))
+                .onComplete(ar -> rebuilding.set(false));
+    }
+
+    @Override
+    public List<ProductSuggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            key = key.substring(0, MAX_KEY_LENGTH);
+        }
+
+        List<ProductSuggestion> found = snapshot.search(key, limit, changes::containsKey);
+
+        // Writes not merged yet are few; check each of them
+        for (Change change : changes.values()) {
+            ProductSuggestion product = change.product();
+            if (product != null && matches(product, key)) {
+                found.add(product);
+            }
+        }
+
+        found.sort(BY_POPULARITY);
+        return found.size() > limit ? List.copyOf(found.subList(0, limit)) : found;
+    }
+
+    @Override
+    public void put(Product product) {
+        ProductSuggestion current = find(product.getId());
+        long popularity = current != null ? current.popularity() : 0;
+        changes.put(product.getId(), new Change(
+                new ProductSuggestion(product.getId(), product.getName(), product.getCode(), popularity)));
+        compactIfNeeded();
+    }
+
+    @Override
+    public void remove(UUID productId) {
+        changes.put(productId, new Change(null));
+        compactIfNeeded();
+    }
+
+    private ProductSuggestion find(UUID productId) {
+        Change change = changes.get(productId);
+        return change != null ? change.product() : snapshot.find(productId);
+    }
+
+    // Merges pending writes into a new snapshot in memory, without going to the database
+    private void compactIfNeeded() {
+        if (changes.size() <= MAX_PENDING_CHANGES || !rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+
+        Map<UUID, Change> merged = Map.copyOf(changes);
+        Snapshot current = snapshot;
+        List<ProductSuggestion> products = new ArrayList<>(current.products.length + merged.size());
+        for (ProductSuggestion product : current.products) {
+            if (!merged.containsKey(product.id())) {
+                products.add(product);
+            }
+        }
+        merged.values().forEach(change -> {
+            if (change.product() != null) {
+                products.add(change.product());
+            }
+        });
+
+        rebuild(products, merged)
+                .onFailure(err -> logger.error("Failed to compact the product suggestion index", err))
+                .onComplete(ar -> rebuilding.set(false));
+    }
+
+    private Future<Void> rebuild(List<ProductSuggestion> products, Map<UUID, Change> merged) {
+        return vertx.executeBlocking(() -> Snapshot.build(products), false)
+                .map(built -> {
+                    snapshot = built;
+                    // Only drop the writes now in the snapshot; a newer write to the same product stays
+                    merged.forEach(changes::remove);
+                    logger.info("Product suggestion index built: {} products, {} keys, ~{} bytes per product",
+                            built.products.length, built.keys.length,
+                            built.products.length > 0 ? built.estimatedBytes / built.products.length : 0);
+                    return null;
+                });
+    }
+
+    private static boolean matches(ProductSuggestion product, String key) {
+        for (String candidate : keysOf(product)) {
+            if (candidate.startsWith(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static Set<String> keysOf(ProductSuggestion product) {
+        Set<String> keys = new LinkedHashSet<>();
+        String name = normalize(product.name());
+        int start = 0;
+        while (start < name.length()) {
+            keys.add(name.substring(start, Math.min(name.length(), start + MAX_KEY_LENGTH)));
+            int space = name.indexOf(' ', start);
+            if (space < 0) {
+                break;
+            }
+            start = space + 1;
+        }
+        String code = normalize(product.code());
+        if (!code.isEmpty()) {
+            keys.add(code.length() > MAX_KEY_LENGTH ? code.substring(0, MAX_KEY_LENGTH) : code);
+        }
+        return keys;
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String withoutAccents = COMBINING_MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+        return WHITESPACE.matcher(withoutAccents.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Immutable arrays: products sorted by id, keys sorted for binary search,
+     * and for each key the index of the product it belongs to.
+     */
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = build(List.of());
+
+        final ProductSuggestion[] products;
+        final String[] keys;
+        final int[] owners;
+        final Map<String, int[]> top;
+        final long estimatedBytes;
+
+        private Snapshot(ProductSuggestion[] products, String[] keys, int[] owners, Map<String, int[]> top) {
+            this.products = products;
+            this.keys = keys;
+            this.owners = owners;
+            this.top = top;
+            this.estimatedBytes = estimateBytes();
+        }
+
+        static Snapshot build(List<ProductSuggestion> source) {
+            ProductSuggestion[] products = source.toArray(new ProductSuggestion[0]);
+            Arrays.sort(products, Comparator.comparing(ProductSuggestion::id));
+
+            List<KeyEntry> entries = new ArrayList<>(products.length * 3);
+            for (int i = 0; i < products.length; i++) {
+                for (String key : keysOf(products[i])) {
+                    entries.add(new KeyEntry(key, i));
+                }
+            }
+            KeyEntry[] sorted = entries.toArray(new KeyEntry[0]);
+            Arrays.parallelSort(sorted, Comparator.comparing(KeyEntry::key));
+
+            String[] keys = new String[sorted.length];
+            int[] owners = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                keys[i] = sorted[i].key();
+                owners[i] = sorted[i].owner();
+            }
+
+            Map<String, int[]> top = new HashMap<>();
+            precomputeTop(products, keys, owners, 0, keys.length, 1, top);
+            return new Snapshot(products, keys, owners, top);
+        }
+
+        // Keys sharing a prefix are contiguous: split [from, to) by the next character and descend into large groups
+        private static void precomputeTop(ProductSuggestion[] products, String[] keys, int[] owners,
+                                          int from, int to, int length, Map<String, int[]> top) {
+            int start = from;
+            while (start < to) {
+                if (keys[start].length() < length) {
+                    start++;
+                    continue;
+                }
+                String prefix = keys[start].substring(0, length);
+                int end = start + 1;
+                while (end < to && keys[end].startsWith(prefix)) {
+                    end++;
+                }
+                if (end - start > MAX_SCAN_KEYS) {
+                    top.put(prefix, scanTop(products, owners, start, end, TOP_SIZE, id -> false));
+                    if (length < MAX_KEY_LENGTH) {
+                        precomputeTop(products, keys, owners, start, end, length + 1, top);
+                    }
+                }
+                start = end;
+            }
+        }
+
+        List<ProductSuggestion> search(String key, int limit, Predicate<UUID> skip) {
+            int[] best = top.get(key);
+            if (best != null) {
+                List<ProductSuggestion> found = new ArrayList<>(limit);
+                for (int index : best) {
+                    if (found.size() == limit) {
+                        break;
+                    }
+                    if (!skip.test(products[index].id())) {
+                        found.add(products[index]);
+                    }
+                }
+                if (found.size() == limit || best.length < TOP_SIZE) {
+                    return found;
+                }
+                // Too many of the precomputed products were changed since the build: scan the range
+            }
+
+            int from = lowerBound(key);
+            int to = lowerBound(key + Character.MAX_VALUE);
+            List<ProductSuggestion> found = new ArrayList<>(limit);
+            for (int index : scanTop(products, owners, from, to, limit, skip)) {
+                found.add(products[index]);
+            }
+            return found;
+        }
+
+        ProductSuggestion find(UUID productId) {
+            int low = 0;
+            int high = products.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int comparison = products[middle].id().compareTo(productId);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return products[middle];
+                }
+            }
+            return null;
+        }
+
+        // First position whose key is not less than the given one
+        private int lowerBound(String key) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys[middle].compareTo(key) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        // Most popular distinct products owning the keys in [from, to), best first
+        private static int[] scanTop(ProductSuggestion[] products, int[] owners, int from, int to, int limit,
+                                     Predicate<UUID> skip) {
+            PriorityQueue<Integer> worstFirst = new PriorityQueue<>(limit + 1,
+                    (a, b) -> BY_POPULARITY.compare(products[b], products[a]));
+            for (int i = from; i < to; i++) {
+                int owner = owners[i];
+                boolean full = worstFirst.size() == limit;
+                if (full && BY_POPULARITY.compare(products[owner], products[worstFirst.peek()]) >= 0) {
+                    continue;
+                }
+                // The heap is small: checking for the same product under another key is cheaper than a set
+                if (skip.test(products[owner].id()) || worstFirst.contains(owner)) {
+                    continue;
+                }
+                if (full) {
+                    worstFirst.poll();
+                }
+                worstFirst.add(owner);
+            }
+
+            int[] best = new int[worstFirst.size()];
+            for (int i = best.length - 1; i >= 0; i--) {
+                best[i] = worstFirst.poll();
+            }
+            return best;
+        }
+
+        // Assumes compressed oops and Latin-1 strings, as on a default 64-bit JVM with heaps under 32 GB
+        private long estimateBytes() {
+            long bytes = array(products.length, 4) + array(keys.length, 4) + array(owners.length, 4);
+            for (ProductSuggestion product : products) {
+                // record (header, 3 references, long) and its UUID
+                bytes += 32 + 32 + string(product.name()) + string(product.code());
+            }
+            for (String key : keys) {
+                bytes += string(key);
+            }
+            for (Map.Entry<String, int[]> entry : top.entrySet()) {
+                bytes += 32 + string(entry.getKey()) + array(entry.getValue().length, 4);
+            }
+            return bytes;
+        }
+
+        private static long array(int length, int elementBytes) {
+            return align(16 + (long) length * elementBytes);
+        }
+
+        private static long string(String value) {
+            return value == null ? 0 : 24 + array(value.length(), 1);
+        }
+
+        private static long align(long bytes) {
+            return (bytes + 7) & ~7L;
+        }
+    }
+
+    private record KeyEntry(String key, int owner) {
+    }
+}
@@ -0,0 +1,43 @@
+package br.com.labs.suggest;
+
+import br.com.labs.model.Product;
+import br.com.labs.model.ProductSuggestion;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Typeahead over product names and codes, answered from memory.
+ */
+public interface ProductSuggestions {
+
+    /**
+     * Products whose code, name or any later word of the name starts with the prefix
+     * (case and accents ignored), most popular first.
+     */
+    List<ProductSuggestion> suggest(String prefix, int limit);
+
+    /**
+     * Adds or replaces a product after it was created or updated, keeping its popularity.
+     */
+    void put(Product product);
+
+    void remove(UUID productId);
+
+    static ProductSuggestions disabled() {
+        return new ProductSuggestions() {
+            @Override
+            public List<ProductSuggestion> suggest(String prefix, int limit) {
+                return List.of();
+            }
+
+            @Override
+            public void put(Product product) {
+            }
+
+            @Override
+            public void remove(UUID productId) {
+            }
+        };
+    }
+}
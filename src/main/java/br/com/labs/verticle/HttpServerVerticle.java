@@ -1,23 +1,18 @@
 package br.com.labs.verticle;
 
 import br.com.labs.config.AppConfig;
+import br.com.labs.config.ApplicationContext;
 import br.com.labs.handler.*;
-import br.com.labs.repository.impl.*;
+import br.com.labs.metrics.EventLoopLagMonitor;
 import br.com.labs.router.*;
 import br.com.labs.security.JwtProvider;
-import br.com.labs.security.PasswordEncoder;
-import br.com.labs.service.impl.*;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Promise;
-import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.handler.BodyHandler;
 import io.vertx.ext.web.handler.CorsHandler;
 import io.vertx.ext.web.handler.StaticHandler;
-import io.vertx.pgclient.PgConnectOptions;
-import io.vertx.pgclient.PgPool;
-import io.vertx.sqlclient.PoolOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,45 +23,43 @@ public class HttpServerVerticle extends AbstractVerticle {
 
     private static final Logger logger = LoggerFactory.getLogger(HttpServerVerticle.class);
 
-    private PgPool pgPool;
+    private final ApplicationContext context;
+    private EventLoopLagMonitor lagMonitor;
+
+    public HttpServerVerticle(ApplicationContext context) {
+        this.context = context;
+    }
 
     @Override
     public void start(Promise<Void> startPromise) {
-        AppConfig appConfig = new AppConfig(config());
-
-        // Initialize PostgreSQL connection pool
-        pgPool = createPgPool(appConfig);
-
-        // Initialize components
-        PasswordEncoder passwordEncoder = new PasswordEncoder();
-        JwtProvider jwtProvider = new JwtProvider(vertx, appConfig);
-
-        // Initialize repositories
-        UserRepositoryPg userRepository = new UserRepositoryPg(pgPool);
-        CategoryRepositoryPg categoryRepository = new CategoryRepositoryPg(pgPool);
-        ProductRepositoryPg productRepository = new ProductRepositoryPg(pgPool);
-        OrderRepositoryPg orderRepository = new OrderRepositoryPg(pgPool);
-
-        // Initialize services
-        AuthServiceImpl authService = new AuthServiceImpl(userRepository, passwordEncoder, jwtProvider);
-        CategoryServiceImpl categoryService = new CategoryServiceImpl(categoryRepository);
-        ProductServiceImpl productService = new ProductServiceImpl(productRepository, categoryRepository);
-        OrderServiceImpl orderService = new OrderServiceImpl(orderRepository, productRepository);
+        AppConfig appConfig = context.getConfig();
+        JwtProvider jwtProvider = context.getJwtProvider();
 
         // Initialize handlers
-        AuthHandler authHandler = new AuthHandler(authService);
-        CategoryHandler categoryHandler = new CategoryHandler(categoryService);
-        ProductHandler productHandler = new ProductHandler(productService);
-        OrderHandler orderHandler = new OrderHandler(orderService);
+        AuthHandler authHandler = new AuthHandler(context.getAuthService());
+        CategoryHandler categoryHandler = new CategoryHandler(context.getCategoryService());
+        ProductHandler productHandler = new ProductHandler(context.getProductService());
+        OrderHandler orderHandler = new OrderHandler(context.getOrderService(),
+                appConfig.isOrderIntakeEnabled());
         ErrorHandler errorHandler = new ErrorHandler();
 
+        // One lag probe per HTTP verticle, running on the same event loop as its requests
+        lagMonitor = new EventLoopLagMonitor(vertx, context.getMeterRegistry());
+        lagMonitor.start();
+
         // Create main router
         Router router = Router.router(vertx);
 
         // Global handlers
-        router.route().handler(BodyHandler.create());
         router.route().handler(createCorsHandler());
 
+        // Streaming routes read the request body themselves, so they must come before BodyHandler
+        router.post("/api/v1/products/import")
+                .handler(jwtProvider.createAuthHandler())
+                .handler(productHandler::importProducts);
+
+        router.route().handler(BodyHandler.create());
+
         // Health check
         router.get("/health").handler(ctx ->
                 ctx.response()
@@ -146,38 +139,19 @@ public class HttpServerVerticle extends AbstractVerticle {
     }
 
     @Override
-    public void stop(Promise<Void> stopPromise) {
-        if (pgPool != null) {
-            pgPool.close()
-                    .onSuccess(v -> {
-                        logger.info("PostgreSQL connection pool closed");
-                        stopPromise.complete();
-                    })
-                    .onFailure(stopPromise::fail);
-        } else {
-            stopPromise.complete();
+    public void stop() {
+        if (lagMonitor != null) {
+            lagMonitor.stop();
         }
     }
 
-    private PgPool createPgPool(AppConfig config) {
-        PgConnectOptions connectOptions = new PgConnectOptions()
-                .setHost(config.getDbHost())
-                .setPort(config.getDbPort())
-                .setDatabase(config.getDbName())
-                .setUser(config.getDbUser())
-                .setPassword(config.getDbPassword());
-
-        PoolOptions poolOptions = new PoolOptions()
-                .setMaxSize(config.getDbMaxPoolSize());
-
-        return PgPool.pool(vertx, connectOptions, poolOptions);
-    }
-
     private CorsHandler createCorsHandler() {
         Set<String> allowedHeaders = new HashSet<>();
         allowedHeaders.add("Content-Type");
         allowedHeaders.add("Authorization");
         allowedHeaders.add("Accept");
+        allowedHeaders.add("If-None-Match");
+        allowedHeaders.add("If-Modified-Since");
 
         Set<io.vertx.core.http.HttpMethod> allowedMethods = new HashSet<>();
         allowedMethods.add(io.vertx.core.http.HttpMethod.GET);
@@ -189,7 +163,8 @@ public class HttpServerVerticle extends AbstractVerticle {
         return CorsHandler.create()
                 .addOrigin("*")
                 .allowedHeaders(allowedHeaders)
-                .allowedMethods(allowedMethods);
+                .allowedMethods(allowedMethods)
+                .exposedHeaders(Set.of("ETag", "Last-Modified"));
     }
 
     private String getSwaggerUIHtml() {
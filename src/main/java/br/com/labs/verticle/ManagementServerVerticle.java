@@ -0,0 +1,45 @@
+package br.com.labs.verticle;
+
+import br.com.labs.config.AppConfig;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.ext.web.Router;
+import io.vertx.micrometer.PrometheusScrapingHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves the Prometheus scrape endpoint on its own port, bound to localhost by default, so metrics
+ * (routes, pool state, error rates) are never reachable through the public API port.
+ */
+public class ManagementServerVerticle extends AbstractVerticle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ManagementServerVerticle.class);
+
+    private final AppConfig appConfig;
+
+    public ManagementServerVerticle(AppConfig appConfig) {
+        this.appConfig = appConfig;
+    }
+
+    @Override
+    public void start(Promise<Void> startPromise) {
+        Router router = Router.router(vertx);
+        router.get("/metrics").handler(PrometheusScrapingHandler.create());
+
+        int port = appConfig.getManagementPort();
+        String host = appConfig.getManagementHost();
+
+        vertx.createHttpServer()
+                .requestHandler(router)
+                .listen(port, host)
+                .onSuccess(server -> {
+                    logger.info("Management server started on {}:{}", host, server.actualPort());
+                    startPromise.complete();
+                })
+                .onFailure(err -> {
+                    logger.error("Failed to start management server", err);
+                    startPromise.fail(err);
+                });
+    }
+}
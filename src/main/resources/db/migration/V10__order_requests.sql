@@ -0,0 +1,20 @@
+-- Queue of orders accepted with 202 (Prefer: respond-async) and not created yet. The row id becomes the
+-- order id, and the row is deleted in the transaction that creates the order, so an order is created at
+-- most once however many times its request is delivered. Requests that cannot become an order stay as
+-- FAILED, with the reason, until they are purged.
+-- A worker claims a request by moving available_at past its lease; if it dies, the request is claimed
+-- again once the lease ends.
+
+CREATE TABLE order_requests (
+    id UUID PRIMARY KEY,
+    user_id UUID REFERENCES users(id) NOT NULL,
+    items JSONB NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'QUEUED',
+    error TEXT,
+    attempts INT NOT NULL DEFAULT 0,
+    available_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX idx_order_requests_queued ON order_requests(available_at) WHERE status = 'QUEUED';
+CREATE INDEX idx_order_requests_failed ON order_requests(created_at) WHERE status = 'FAILED';
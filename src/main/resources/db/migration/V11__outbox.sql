@@ -0,0 +1,16 @@
+-- Transactional outbox: events are inserted by the statement that makes the change, so an event
+-- is committed if and only if its change is. OutboxRelayVerticle publishes and deletes them.
+-- The id orders the events of each aggregate: writers hold the aggregate's row lock while inserting,
+-- so ids of one aggregate follow commit order.
+
+CREATE TABLE outbox (
+    id BIGSERIAL PRIMARY KEY,
+    aggregate_type VARCHAR(50) NOT NULL,
+    aggregate_id UUID NOT NULL,
+    event_type VARCHAR(100) NOT NULL,
+    payload JSONB NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- The relay only takes the oldest pending event of each aggregate as the head of a batch
+CREATE INDEX idx_outbox_aggregate ON outbox(aggregate_id, id);
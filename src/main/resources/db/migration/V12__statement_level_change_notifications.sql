@@ -0,0 +1,84 @@
+-- Replace the per-row notifications of V4 with one trigger per statement.
+-- NOTIFY takes a global lock at commit, so a statement now sends one notification per 100 changed rows
+-- instead of one per row: a bulk import or a multi-item stock decrement costs one or a few, not thousands.
+-- Stock and version changes are still notified, since cancellations, expiries and reservation flushes
+-- change them without going through any node's cache. Updates that change nothing are left out.
+-- Payload: {"entity": "<table>", "op": "INSERT|UPDATE|DELETE", "rows": [{"id": "<uuid>", "version": <int|null>}]}
+-- Chunks of 100 rows keep each payload well under the 8000-byte limit.
+
+CREATE OR REPLACE FUNCTION notify_entity_changes() RETURNS trigger AS $$
+DECLARE
+    changed JSONB;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        FOR changed IN
+            SELECT jsonb_agg(jsonb_build_object('id', c.id, 'version', NULL))
+            FROM (SELECT o.id, (row_number() OVER () - 1) / 100 AS chunk FROM old_rows o) c
+            GROUP BY c.chunk
+        LOOP
+            PERFORM pg_notify('entity_changes', jsonb_build_object(
+                'entity', TG_TABLE_NAME, 'op', TG_OP, 'rows', changed)::text);
+        END LOOP;
+    ELSIF TG_OP = 'INSERT' THEN
+        FOR changed IN
+            SELECT jsonb_agg(jsonb_build_object('id', c.id, 'version', c.version))
+            FROM (SELECT n.id, to_jsonb(n) -> 'version' AS version,
+                         (row_number() OVER () - 1) / 100 AS chunk
+                  FROM new_rows n) c
+            GROUP BY c.chunk
+        LOOP
+            PERFORM pg_notify('entity_changes', jsonb_build_object(
+                'entity', TG_TABLE_NAME, 'op', TG_OP, 'rows', changed)::text);
+        END LOOP;
+    ELSE
+        FOR changed IN
+            SELECT jsonb_agg(jsonb_build_object('id', c.id, 'version', c.version))
+            FROM (SELECT n.id, to_jsonb(n) -> 'version' AS version,
+                         (row_number() OVER () - 1) / 100 AS chunk
+                  FROM new_rows n
+                  JOIN old_rows o ON o.id = n.id
+                  WHERE to_jsonb(n) IS DISTINCT FROM to_jsonb(o)) c
+            GROUP BY c.chunk
+        LOOP
+            PERFORM pg_notify('entity_changes', jsonb_build_object(
+                'entity', TG_TABLE_NAME, 'op', TG_OP, 'rows', changed)::text);
+        END LOOP;
+    END IF;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER trg_products_notify_change ON products;
+DROP TRIGGER trg_categories_notify_change ON categories;
+DROP FUNCTION notify_entity_change();
+
+CREATE TRIGGER trg_products_notify_insert
+    AFTER INSERT ON products
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_entity_changes();
+
+CREATE TRIGGER trg_products_notify_update
+    AFTER UPDATE ON products
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_entity_changes();
+
+CREATE TRIGGER trg_products_notify_delete
+    AFTER DELETE ON products
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_entity_changes();
+
+CREATE TRIGGER trg_categories_notify_insert
+    AFTER INSERT ON categories
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_entity_changes();
+
+CREATE TRIGGER trg_categories_notify_update
+    AFTER UPDATE ON categories
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_entity_changes();
+
+CREATE TRIGGER trg_categories_notify_delete
+    AFTER DELETE ON categories
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_entity_changes();
@@ -0,0 +1,9 @@
+-- Composite indexes backing keyset (cursor) pagination ordered by (created_at DESC, id DESC)
+
+CREATE INDEX idx_products_created_id ON products(created_at DESC, id DESC);
+CREATE INDEX idx_products_category_created_id ON products(category_id, created_at DESC, id DESC);
+CREATE INDEX idx_orders_user_created_id ON orders(user_id, created_at DESC, id DESC);
+
+-- Superseded by the composite indexes above, which share the same leading column
+DROP INDEX idx_products_category;
+DROP INDEX idx_orders_user;
@@ -0,0 +1,32 @@
+-- Publish every committed change to products and categories on the entity_changes channel.
+-- Each API node listens on it to invalidate its in-process caches.
+-- Payload: {"entity": "<table>", "op": "INSERT|UPDATE|DELETE", "id": "<uuid>", "version": <int|null>}
+
+CREATE OR REPLACE FUNCTION notify_entity_change() RETURNS trigger AS $$
+DECLARE
+    changed RECORD;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        changed := OLD;
+    ELSE
+        changed := NEW;
+    END IF;
+
+    PERFORM pg_notify('entity_changes', json_build_object(
+        'entity', TG_TABLE_NAME,
+        'op', TG_OP,
+        'id', changed.id,
+        'version', to_jsonb(changed) -> 'version'
+    )::text);
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_products_notify_change
+    AFTER INSERT OR UPDATE OR DELETE ON products
+    FOR EACH ROW EXECUTE FUNCTION notify_entity_change();
+
+CREATE TRIGGER trg_categories_notify_change
+    AFTER INSERT OR UPDATE OR DELETE ON categories
+    FOR EACH ROW EXECUTE FUNCTION notify_entity_change();
@@ -0,0 +1,7 @@
+-- Items of products managed by the in-memory stock reservation engine are written with
+-- stock_applied = false; the engine's write-behind flush decrements products.stock and marks them.
+-- On restart the engine rebuilds available stock as stock minus the quantity not yet applied.
+
+ALTER TABLE order_items ADD COLUMN stock_applied BOOLEAN NOT NULL DEFAULT true;
+
+CREATE INDEX idx_order_items_pending_stock ON order_items(product_id) WHERE NOT stock_applied;
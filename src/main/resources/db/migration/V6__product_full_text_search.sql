@@ -0,0 +1,17 @@
+-- Full-text search over products for GET /products/search.
+-- search_vector is maintained by PostgreSQL on every insert/update: name and code weigh more than
+-- the description. Code uses the 'simple' configuration so SKUs are not stemmed.
+-- Adding a stored generated column rewrites the table; on a large catalog run this off-peak.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE products ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('portuguese', coalesce(name, '')), 'A') ||
+    setweight(to_tsvector('simple', coalesce(code, '')), 'A') ||
+    setweight(to_tsvector('portuguese', coalesce(description, '')), 'C')
+) STORED;
+
+CREATE INDEX idx_products_search ON products USING GIN (search_vector);
+
+-- Trigram index backing case-insensitive code prefix lookups (code ILIKE 'abc%')
+CREATE INDEX idx_products_code_trgm ON products USING GIN (code gin_trgm_ops);
@@ -0,0 +1,15 @@
+-- Idempotency-Key of POST /orders. The key is stored in the same transaction as the order it created,
+-- together with the response, so a retry with the same key returns that order instead of creating another.
+-- Keys are scoped to the user and purged after the retention period.
+
+CREATE TABLE idempotency_keys (
+    user_id UUID REFERENCES users(id) NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash VARCHAR(64) NOT NULL,
+    order_id UUID REFERENCES orders(id) ON DELETE CASCADE NOT NULL,
+    response JSONB NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (user_id, idempotency_key)
+);
+
+CREATE INDEX idx_idempotency_keys_created_at ON idempotency_keys(created_at);
@@ -0,0 +1,4 @@
+-- The expiry sweeper looks for the oldest PENDING orders; this partial index holds only those,
+-- so each batch reads the few expired rows instead of scanning every order of that status.
+
+CREATE INDEX idx_orders_pending_created ON orders(created_at) WHERE status = 'PENDING';
@@ -0,0 +1,4 @@
+-- Version column for optimistic locking of order status transitions, as products have since V2.
+-- Every status change increments it; a transition that names an older version is refused.
+
+ALTER TABLE orders ADD COLUMN version INT NOT NULL DEFAULT 1;
@@ -0,0 +1,219 @@
+package br.com.labs.cache;
+
+import br.com.labs.model.Product;
+import br.com.labs.model.ProductVersion;
+import br.com.labs.repository.ProductRepository;
+import br.com.labs.repository.StockDecrementResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the product cache decorator.
+ * The delegate is mocked, so every database round trip is visible through Mockito.
+ */
+@ExtendWith(MockitoExtension.class)
+public class CachingProductRepositoryTest {
+
+    @Mock
+    private ProductRepository delegate;
+
+    private CachingProductRepository repository;
+
+    private UUID productId;
+
+    @BeforeEach
+    void setUp() {
+        repository = new CachingProductRepository(delegate, 100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        productId = UUID.randomUUID();
+    }
+
+    @Test
+    @DisplayName("Should serve repeated lookups from the cache")
+    void shouldServeRepeatedLookupsFromCache() {
+        when(delegate.findById(productId))
+                .thenReturn(Future.succeededFuture(Optional.of(createProduct(10, 1))));
+
+        repository.findById(productId);
+        Optional<Product> second = repository.findById(productId).result();
+
+        assertThat(second).isPresent();
+        assertThat(second.get().getStock()).isEqualTo(10);
+        verify(delegate, times(1)).findById(productId);
+    }
+
+    @Test
+    @DisplayName("Should hand out copies so callers cannot change the cached product")
+    void shouldReturnCopies() {
+        when(delegate.findById(productId))
+                .thenReturn(Future.succeededFuture(Optional.of(createProduct(10, 1))));
+
+        repository.findById(productId).result().get().setStock(0);
+
+        assertThat(repository.findById(productId).result().get().getStock()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Should never replace an entry with an older version")
+    void shouldKeepNewerVersion() {
+        Product current = createProduct(10, 1);
+        when(delegate.update(any())).thenReturn(Future.succeededFuture(Optional.of(createProduct(8, 3))));
+        repository.update(current);
+
+        // A write that committed before the update reports back afterwards
+        when(delegate.decrementStock(productId, 1, 1))
+                .thenReturn(Future.succeededFuture(Optional.of(createProduct(9, 2))));
+        repository.decrementStock(productId, 1, 1);
+
+        assertThat(repository.findById(productId).result().get().getVersion()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should drop the entry when the product is deleted")
+    void shouldInvalidateOnDelete() {
+        when(delegate.findById(productId))
+                .thenReturn(Future.succeededFuture(Optional.of(createProduct(10, 1))));
+        when(delegate.delete(productId)).thenReturn(Future.succeededFuture(true));
+
+        repository.findById(productId);
+        repository.delete(productId);
+        repository.findById(productId);
+
+        verify(delegate, times(2)).findById(productId);
+    }
+
+    @Test
+    @DisplayName("Should not cache a lookup that completes after the product was deleted")
+    void shouldNotResurrectDeletedProduct() {
+        Promise<Optional<Product>> slowRead = Promise.promise();
+        when(delegate.findById(productId)).thenReturn(slowRead.future());
+        when(delegate.delete(productId)).thenReturn(Future.succeededFuture(true));
+
+        repository.findById(productId);
+        repository.delete(productId);
+        slowRead.complete(Optional.of(createProduct(10, 1)));
+
+        when(delegate.findById(productId)).thenReturn(Future.succeededFuture(Optional.empty()));
+        assertThat(repository.findById(productId).result()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should apply transactional stock decrements only after commit")
+    void shouldRefreshAfterCommit() {
+        when(delegate.findById(productId))
+                .thenReturn(Future.succeededFuture(Optional.of(createProduct(10, 1))));
+        repository.findById(productId);
+
+        SqlConnection connection = mock(SqlConnection.class);
+        Transaction transaction = mock(Transaction.class);
+        Promise<Void> completion = Promise.promise();
+        when(connection.transaction()).thenReturn(transaction);
+        when(transaction.completion()).thenReturn(completion.future());
+        when(delegate.decrementStock(connection, Map.of(productId, 3)))
+                .thenReturn(Future.succeededFuture(
+                        new StockDecrementResult(List.of(createProduct(7, 2)), List.of(), List.of())));
+
+        repository.decrementStock(connection, Map.of(productId, 3));
+        assertThat(repository.findById(productId).result().get().getStock()).isEqualTo(10);
+
+        completion.complete();
+        assertThat(repository.findById(productId).result().get().getStock()).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("Should drop the entry only when another node wrote a newer version")
+    void shouldInvalidateOnNewerRemoteChange() {
+        when(delegate.findById(productId))
+                .thenReturn(Future.succeededFuture(Optional.of(createProduct(10, 2))));
+        repository.findById(productId);
+
+        // Echo of a change this node already has
+        repository.onChange(new EntityChange("products", "UPDATE", productId, 2));
+        repository.findById(productId);
+        verify(delegate, times(1)).findById(productId);
+
+        repository.onChange(new EntityChange("products", "UPDATE", productId, 3));
+        repository.findById(productId);
+        verify(delegate, times(2)).findById(productId);
+    }
+
+    @Test
+    @DisplayName("Should reload products evicted after a write that bypassed the cache")
+    void shouldReloadEvictedProducts() {
+        when(delegate.findById(productId))
+                .thenReturn(Future.succeededFuture(Optional.of(createProduct(10, 1))));
+        repository.findById(productId);
+
+        repository.evict(List.of(productId));
+        repository.findById(productId);
+
+        verify(delegate, times(2)).findById(productId);
+    }
+
+    @Test
+    @DisplayName("Should check versions against the database and drop an entry that is behind")
+    void shouldRevalidateAgainstDatabase() {
+        when(delegate.findById(productId))
+                .thenReturn(Future.succeededFuture(Optional.of(createProduct(10, 1))));
+        repository.findById(productId);
+
+        // Another statement changed the row without going through this cache
+        when(delegate.findVersion(productId))
+                .thenReturn(Future.succeededFuture(Optional.of(new ProductVersion(productId, 2, null))));
+
+        assertThat(repository.findVersion(productId).result().get().version()).isEqualTo(2);
+        repository.findById(productId);
+        verify(delegate, times(2)).findById(productId);
+    }
+
+    @Test
+    @DisplayName("Should load only the uncached products of a batch lookup")
+    void shouldLoadOnlyUncachedProductsInBatch() {
+        when(delegate.findById(productId))
+                .thenReturn(Future.succeededFuture(Optional.of(createProduct(10, 1))));
+        repository.findById(productId);
+
+        UUID otherId = UUID.randomUUID();
+        Product other = createProduct(5, 1);
+        other.setId(otherId);
+        when(delegate.findByIds(List.of(otherId))).thenReturn(Future.succeededFuture(List.of(other)));
+
+        List<Product> found = repository.findByIds(List.of(productId, otherId)).result();
+
+        assertThat(found).extracting(Product::getId).containsExactlyInAnyOrder(productId, otherId);
+        verify(delegate).findByIds(List.of(otherId));
+
+        // The loaded product is now cached as well
+        repository.findById(otherId);
+        verify(delegate, never()).findById(otherId);
+    }
+
+    private Product createProduct(int stock, int version) {
+        return Product.builder()
+                .id(productId)
+                .name("Test Product")
+                .code("TEST-001")
+                .price(new BigDecimal("99.99"))
+                .stock(stock)
+                .version(version)
+                .build();
+    }
+}
@@ -0,0 +1,105 @@
+package br.com.labs.config;
+
+import br.com.labs.dto.request.FieldSet;
+import br.com.labs.dto.response.ApiResponse;
+import br.com.labs.exception.ValidationException;
+import br.com.labs.model.Order;
+import br.com.labs.model.OrderItem;
+import br.com.labs.model.Product;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for sparse fieldsets: column selection and the JSON property filter.
+ */
+public class JsonConfigTest {
+
+    @BeforeAll
+    static void configure() {
+        JsonConfig.configure();
+    }
+
+    @Test
+    @DisplayName("Should write only the requested product fields")
+    void shouldEncodeRequestedFieldsOnly() {
+        FieldSet fields = FieldSet.products("id, name,price");
+
+        JsonObject json = new JsonObject(JsonConfig.encode(ApiResponse.success(createProduct()), fields));
+
+        assertThat(json.getBoolean("success")).isTrue();
+        assertThat(json.getJsonObject("data").fieldNames()).containsExactlyInAnyOrder("id", "name", "price");
+    }
+
+    @Test
+    @DisplayName("Should write every field when no fields are requested")
+    void shouldEncodeEverythingByDefault() {
+        JsonObject json = new JsonObject(JsonConfig.encode(createProduct(), FieldSet.products(null)));
+
+        assertThat(json.fieldNames()).contains("description", "stock", "createdAt");
+    }
+
+    @Test
+    @DisplayName("Should write included order items beside the requested fields")
+    void shouldEncodeIncludedItems() {
+        Order order = Order.builder()
+                .id(UUID.randomUUID())
+                .status(Order.OrderStatus.PENDING)
+                .total(new BigDecimal("19.80"))
+                .items(List.of(OrderItem.builder()
+                        .productId(UUID.randomUUID())
+                        .quantity(2)
+                        .unitPrice(new BigDecimal("9.90"))
+                        .build()))
+                .build();
+        FieldSet fields = FieldSet.orders("id,total");
+
+        JsonObject json = new JsonObject(JsonConfig.encode(order, fields, "items"));
+
+        assertThat(json.fieldNames()).containsExactlyInAnyOrder("id", "total", "items");
+        assertThat(json.getJsonArray("items").getJsonObject(0).getInteger("quantity")).isEqualTo(2);
+        assertThat(new JsonObject(JsonConfig.encode(order, fields)).fieldNames()).containsExactlyInAnyOrder("id", "total");
+    }
+
+    @Test
+    @DisplayName("Should always load the cursor columns and keep the table order")
+    void shouldSelectCursorColumns() {
+        assertThat(FieldSet.products("price,name").columns()).isEqualTo("id, name, price, created_at");
+        assertThat(FieldSet.orders("status").columns()).isEqualTo("id, status, created_at");
+        assertThat(FieldSet.products("").columns()).isEqualTo(
+                "id, name, description, code, price, stock, version, category_id, created_at, updated_at");
+    }
+
+    @Test
+    @DisplayName("Should reject fields outside the whitelist")
+    void shouldRejectUnknownFields() {
+        assertThatThrownBy(() -> FieldSet.products("name,password"))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("password");
+        assertThatThrownBy(() -> FieldSet.products("name; DROP TABLE products"))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    private Product createProduct() {
+        return Product.builder()
+                .id(UUID.randomUUID())
+                .name("Test Product")
+                .description("A long description")
+                .code("TEST-001")
+                .price(new BigDecimal("99.99"))
+                .stock(10)
+                .version(1)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,72 @@
+package br.com.labs.handler;
+
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for ETag / Last-Modified revalidation.
+ */
+public class ConditionalRequestsTest {
+
+    private HttpServerRequest request;
+    private UUID productId;
+
+    @BeforeEach
+    void setUp() {
+        request = mock(HttpServerRequest.class);
+        productId = UUID.randomUUID();
+    }
+
+    @Test
+    @DisplayName("Should match the current ETag, weak or in a list")
+    void shouldMatchCurrentEtag() {
+        String etag = ConditionalRequests.etag(productId, 3);
+
+        when(request.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn("\"other\", W/" + etag);
+
+        assertThat(ConditionalRequests.isNotModified(request, etag, null)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should not match once the version changes")
+    void shouldNotMatchNewerVersion() {
+        when(request.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn(ConditionalRequests.etag(productId, 3));
+
+        assertThat(ConditionalRequests.isNotModified(request, ConditionalRequests.etag(productId, 4), null)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should compare If-Modified-Since with second precision")
+    void shouldCompareModificationDate() {
+        LocalDateTime updatedAt = LocalDateTime.of(2024, 1, 1, 10, 0, 0, 500_000_000);
+        String sent = DateTimeFormatter.RFC_1123_DATE_TIME
+                .format(updatedAt.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC));
+        when(request.getHeader(HttpHeaders.IF_MODIFIED_SINCE)).thenReturn(sent);
+
+        assertThat(ConditionalRequests.isNotModified(request, "\"any\"", updatedAt)).isTrue();
+        assertThat(ConditionalRequests.isNotModified(request, "\"any\"", updatedAt.plusSeconds(1))).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should let If-None-Match take precedence over If-Modified-Since")
+    void shouldPreferEtag() {
+        LocalDateTime updatedAt = LocalDateTime.now().minusDays(1);
+        when(request.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn("\"stale\"");
+        when(request.getHeader(HttpHeaders.IF_MODIFIED_SINCE)).thenReturn("Tue, 1 Jan 2999 00:00:00 GMT");
+
+        assertThat(ConditionalRequests.isNotModified(request, "\"current\"", updatedAt)).isFalse();
+    }
+}
@@ -0,0 +1,159 @@
+package br.com.labs.handler;
+
+import br.com.labs.dto.request.FeedFormat;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.web.RoutingContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the streaming export writer, with the response mocked.
+ */
+public class ExportResponseTest {
+
+    private RoutingContext ctx;
+    private HttpServerResponse response;
+    private final List<String> written = new ArrayList<>();
+    private boolean queueFull;
+
+    @BeforeEach
+    void setUp() {
+        ctx = mock(RoutingContext.class);
+        response = mock(HttpServerResponse.class, RETURNS_SELF);
+        when(ctx.response()).thenReturn(response);
+        when(response.write(anyString())).thenAnswer(inv -> {
+            written.add(inv.getArgument(0));
+            return Future.succeededFuture();
+        });
+        when(response.writeQueueFull()).thenAnswer(inv -> queueFull);
+    }
+
+    @Test
+    @DisplayName("Should pause the rows while the write queue is full and resume when it drains")
+    void shouldApplyBackpressure() {
+        ItemStream rows = new ItemStream("a", "b", "c", "d");
+
+        Future<Void> result = ExportResponse.writer(ctx, FeedFormat.NDJSON, "items", null,
+                (String row) -> row + "\n").apply(rows);
+        ArgumentCaptor<Handler<Void>> drain = ArgumentCaptor.forClass(Handler.class);
+        verify(response).drainHandler(drain.capture());
+
+        queueFull = true;
+        rows.pump();
+        assertThat(rows.paused).isTrue();
+        assertThat(written).containsExactly("a\n");
+
+        queueFull = false;
+        drain.getValue().handle(null);
+
+        assertThat(written).containsExactly("a\n", "b\n", "c\n", "d\n");
+        assertThat(result.succeeded()).isTrue();
+        verify(response).setChunked(true);
+        verify(response).putHeader("content-disposition", "attachment; filename=\"items.ndjson\"");
+        verify(response).end();
+    }
+
+    @Test
+    @DisplayName("Should reset the connection when the stream fails after the head was sent")
+    void shouldResetOnLateFailure() {
+        ItemStream rows = new ItemStream("1,Caneta");
+
+        Future<Void> result = ExportResponse.writer(ctx, FeedFormat.CSV, "items", "id,name",
+                (String row) -> row + "\n").apply(rows);
+        rows.exceptionHandler.handle(new RuntimeException("connection lost"));
+        when(response.headWritten()).thenReturn(true);
+        ExportResponse.fail(ctx, result.cause());
+
+        assertThat(written).containsExactly("id,name\n");
+        verify(response).reset();
+        verify(response, never()).end();
+        verify(ctx, never()).fail(any(Throwable.class));
+    }
+
+    @Test
+    @DisplayName("Should quote CSV values holding separators, quotes or line breaks")
+    void shouldEscapeCsvValues() {
+        String line = ExportResponse.csvLine(Arrays.asList("Caneta", "Azul, fina", "O \"melhor\"", "a\nb", null, 9));
+
+        assertThat(line).isEqualTo("Caneta,\"Azul, fina\",\"O \"\"melhor\"\"\",\"a\nb\",,9");
+    }
+
+    /**
+     * Elements delivered synchronously, honouring pause and resume like a database cursor would.
+     */
+    private static class ItemStream implements ReadStream<String> {
+
+        private final Deque<String> items;
+        private Handler<String> handler;
+        private Handler<Void> endHandler;
+        private Handler<Throwable> exceptionHandler;
+        private boolean paused;
+        private boolean ended;
+
+        ItemStream(String... items) {
+            this.items = new ArrayDeque<>(List.of(items));
+        }
+
+        void pump() {
+            while (!paused && !items.isEmpty()) {
+                handler.handle(items.poll());
+            }
+            if (!paused && items.isEmpty() && !ended) {
+                ended = true;
+                endHandler.handle(null);
+            }
+        }
+
+        @Override
+        public ReadStream<String> exceptionHandler(Handler<Throwable> handler) {
+            this.exceptionHandler = handler;
+            return this;
+        }
+
+        @Override
+        public ReadStream<String> handler(Handler<String> handler) {
+            this.handler = handler;
+            return this;
+        }
+
+        @Override
+        public ReadStream<String> pause() {
+            paused = true;
+            return this;
+        }
+
+        @Override
+        public ReadStream<String> resume() {
+            paused = false;
+            pump();
+            return this;
+        }
+
+        @Override
+        public ReadStream<String> fetch(long amount) {
+            return resume();
+        }
+
+        @Override
+        public ReadStream<String> endHandler(Handler<Void> endHandler) {
+            this.endHandler = endHandler;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package br.com.labs.intake;
+
+import br.com.labs.exception.InsufficientStockException;
+import br.com.labs.model.Order;
+import br.com.labs.model.OrderRequest;
+import br.com.labs.repository.OrderRequestRepository;
+import br.com.labs.service.OrderService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the intake workers, with the queue and the order service mocked.
+ */
+@ExtendWith(VertxExtension.class)
+public class OrderIntakeVerticleTest {
+
+    private static final int BATCH_SIZE = 10;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private OrderService orderService;
+    private OrderRequestRepository repository;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        orderService = mock(OrderService.class);
+        repository = mock(OrderRequestRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        when(repository.markFailed(any(), anyString())).thenReturn(Future.succeededFuture());
+    }
+
+    @Test
+    @DisplayName("Should create claimed orders, fail rejected requests and leave transient failures for retry")
+    void shouldProcessClaimedBatch(Vertx vertx, VertxTestContext ctx) {
+        OrderRequest created = request(1);
+        OrderRequest rejected = request(1);
+        OrderRequest retried = request(1);
+        OrderRequest exhausted = request(MAX_ATTEMPTS);
+        when(repository.claim(anyInt(), any()))
+                .thenReturn(Future.succeededFuture(List.of(created, rejected, retried, exhausted)))
+                .thenReturn(Future.succeededFuture(List.of()));
+        when(orderService.createQueued(created)).thenReturn(Future.succeededFuture(new Order()));
+        when(orderService.createQueued(rejected))
+                .thenReturn(Future.failedFuture(new InsufficientStockException(UUID.randomUUID(), 2, 1)));
+        when(orderService.createQueued(retried)).thenReturn(Future.failedFuture(new RuntimeException("timeout")));
+        when(orderService.createQueued(exhausted)).thenReturn(Future.failedFuture(new RuntimeException("timeout")));
+
+        deploy(vertx).onComplete(ctx.succeeding(id -> ctx.verify(() -> {
+            verify(orderService, times(4)).createQueued(any());
+            verify(repository).markFailed(eq(rejected.getId()), contains("Insufficient stock"));
+            verify(repository).markFailed(exhausted.getId(), "Order could not be processed");
+            verify(repository, never()).markFailed(eq(retried.getId()), anyString());
+            assertThat(meterRegistry.counter("orders.intake.processed", "result", "created").count()).isEqualTo(1);
+            assertThat(meterRegistry.counter("orders.intake.processed", "result", "failed").count()).isEqualTo(2);
+            assertThat(meterRegistry.counter("orders.intake.processed", "result", "retried").count()).isEqualTo(1);
+            ctx.completeNow();
+        })));
+    }
+
+    @Test
+    @DisplayName("Should claim again when woken up after a request is enqueued")
+    void shouldPollOnWakeup(Vertx vertx, VertxTestContext ctx) {
+        OrderRequest queued = request(1);
+        when(repository.claim(anyInt(), any()))
+                .thenReturn(Future.succeededFuture(List.of()))
+                .thenReturn(Future.succeededFuture(List.of(queued)))
+                .thenReturn(Future.succeededFuture(List.of()));
+        when(orderService.createQueued(queued)).thenAnswer(inv -> {
+            ctx.verify(() -> verify(repository, times(2)).claim(BATCH_SIZE, Duration.ofSeconds(30)));
+            ctx.completeNow();
+            return Future.succeededFuture(new Order());
+        });
+
+        deploy(vertx).onComplete(ctx.succeeding(id ->
+                vertx.eventBus().send(OrderIntakeVerticle.ADDRESS, null)));
+    }
+
+    private Future<String> deploy(Vertx vertx) {
+        // Polls only at startup and on wakeups during the test
+        return vertx.deployVerticle(new OrderIntakeVerticle(orderService, repository, BATCH_SIZE,
+                Duration.ofHours(1).toMillis(), Duration.ofSeconds(30), MAX_ATTEMPTS, meterRegistry));
+    }
+
+    private static OrderRequest request(int attempts) {
+        return OrderRequest.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .quantities(Map.of(UUID.randomUUID(), 1))
+                .attempts(attempts)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,151 @@
+package br.com.labs.integration;
+
+import br.com.labs.repository.OutboxEvent;
+import br.com.labs.repository.OutboxRepository;
+import br.com.labs.repository.impl.OutboxRepositoryPg;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.PoolOptions;
+import io.vertx.sqlclient.Tuple;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration test for how outbox relays claim events: oldest first, one relay per aggregate.
+ */
+@Testcontainers
+@ExtendWith(VertxExtension.class)
+public class OutboxClaimTest {
+
+    private static final int BATCH_SIZE = 10;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("ecommerce_test")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static PgPool pool;
+    private static OutboxRepository outboxRepository;
+
+    @BeforeAll
+    static void setupDatabase(Vertx vertx, VertxTestContext ctx) {
+        PgConnectOptions connectOptions = new PgConnectOptions()
+                .setPort(postgres.getFirstMappedPort())
+                .setHost(postgres.getHost())
+                .setDatabase(postgres.getDatabaseName())
+                .setUser(postgres.getUsername())
+                .setPassword(postgres.getPassword());
+
+        pool = PgPool.pool(vertx, connectOptions, new PoolOptions().setMaxSize(4));
+        outboxRepository = new OutboxRepositoryPg();
+
+        // Same table and index as V11__outbox.sql
+        String createTable = """
+            CREATE TABLE IF NOT EXISTS outbox (
+                id BIGSERIAL PRIMARY KEY,
+                aggregate_type VARCHAR(50) NOT NULL,
+                aggregate_id UUID NOT NULL,
+                event_type VARCHAR(100) NOT NULL,
+                payload JSONB NOT NULL,
+                created_at TIMESTAMP NOT NULL DEFAULT NOW()
+            );
+            CREATE INDEX IF NOT EXISTS idx_outbox_aggregate ON outbox(aggregate_id, id)
+            """;
+
+        pool.query(createTable)
+                .execute()
+                .onSuccess(r -> ctx.completeNow())
+                .onFailure(ctx::failNow);
+    }
+
+    @AfterAll
+    static void cleanup() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @BeforeEach
+    void clearTable(VertxTestContext ctx) {
+        pool.query("DELETE FROM outbox")
+                .execute()
+                .onSuccess(r -> ctx.completeNow())
+                .onFailure(ctx::failNow);
+    }
+
+    @Test
+    @DisplayName("Should claim the oldest events first when more aggregates are pending than a poll examines")
+    void shouldClaimOldestEventsFirst(VertxTestContext ctx) {
+        // The oldest events belong to the aggregates that sort last, behind far more aggregates than the cap
+        List<UUID> aggregates = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE * 20; i++) {
+            aggregates.add(new UUID(Long.MAX_VALUE - i, 0));
+        }
+
+        insert(aggregates)
+                .compose(v -> pool.withTransaction(conn -> outboxRepository.claim(conn, BATCH_SIZE)))
+                .onSuccess(events -> ctx.verify(() -> {
+                    assertThat(events).extracting(OutboxEvent::aggregateId)
+                            .containsExactlyElementsOf(aggregates.subList(0, BATCH_SIZE));
+                    ctx.completeNow();
+                }))
+                .onFailure(ctx::failNow);
+    }
+
+    @Test
+    @DisplayName("Should leave an aggregate to the relay holding its oldest event")
+    void shouldNotClaimAggregateHeldByAnotherRelay(VertxTestContext ctx) {
+        UUID held = UUID.randomUUID();
+        UUID free = UUID.randomUUID();
+        Promise<Void> release = Promise.promise();
+        List<OutboxEvent> first = new ArrayList<>();
+
+        insert(List.of(held, free, held))
+                .compose(v -> {
+                    // The first relay claims one event and keeps its transaction open
+                    Promise<Void> claimed = Promise.promise();
+                    pool.withTransaction(conn -> outboxRepository.claim(conn, 1)
+                            .compose(events -> {
+                                first.addAll(events);
+                                claimed.complete();
+                                return release.future();
+                            }));
+                    return claimed.future();
+                })
+                .compose(v -> pool.withTransaction(conn -> outboxRepository.claim(conn, BATCH_SIZE)))
+                .onComplete(ar -> release.complete())
+                .onSuccess(events -> ctx.verify(() -> {
+                    assertThat(first).extracting(OutboxEvent::aggregateId).containsExactly(held);
+                    assertThat(events).extracting(OutboxEvent::aggregateId).containsExactly(free);
+                    ctx.completeNow();
+                }))
+                .onFailure(ctx::failNow);
+    }
+
+    private Future<Void> insert(List<UUID> aggregates) {
+        List<Tuple> rows = aggregates.stream()
+                .map(id -> Tuple.of("product", id, "product.stock_changed"))
+                .toList();
+        return pool.preparedQuery("""
+                INSERT INTO outbox (aggregate_type, aggregate_id, event_type, payload)
+                VALUES ($1, $2, $3, '{}')
+                """)
+                .executeBatch(rows)
+                .mapEmpty();
+    }
+}
@@ -19,7 +19,10 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -392,4 +395,163 @@ public class StockConcurrencyTest {
                 })
                 .onFailure(ctx::failNow);
     }
+
+    @Test
+    @Order(6)
+    @DisplayName("Multi-item orders locking in opposite order should not deadlock")
+    void multiItemOrdersShouldNotDeadlock(Vertx vertx, VertxTestContext ctx) throws InterruptedException {
+        final int CONCURRENT_REQUESTS = 20;
+        final int INITIAL_STOCK = 10;
+
+        AtomicInteger appliedCount = new AtomicInteger(0);
+        AtomicInteger shortCount = new AtomicInteger(0);
+        AtomicInteger errorCount = new AtomicInteger(0);
+        CountDownLatch completionLatch = new CountDownLatch(CONCURRENT_REQUESTS);
+
+        Product first = Product.builder()
+                .name("Item A")
+                .code("MULTI-A")
+                .price(new BigDecimal("10.00"))
+                .stock(INITIAL_STOCK)
+                .build();
+        Product second = Product.builder()
+                .name("Item B")
+                .code("MULTI-B")
+                .price(new BigDecimal("20.00"))
+                .stock(INITIAL_STOCK)
+                .build();
+
+        Future.all(productRepository.save(first), productRepository.save(second))
+                .onSuccess(saved -> {
+                    UUID idA = saved.<Product>resultAt(0).getId();
+                    UUID idB = saved.<Product>resultAt(1).getId();
+
+                    for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                        // Half of the requests list the products in the opposite order
+                        Map<UUID, Integer> quantities = new LinkedHashMap<>();
+                        if (i % 2 == 0) {
+                            quantities.put(idA, 1);
+                            quantities.put(idB, 1);
+                        } else {
+                            quantities.put(idB, 1);
+                            quantities.put(idA, 1);
+                        }
+
+                        pool.withTransaction(conn -> productRepository.decrementStock(conn, quantities))
+                                .onSuccess(result -> {
+                                    if (result.isApplied()) {
+                                        appliedCount.incrementAndGet();
+                                    } else {
+                                        shortCount.incrementAndGet();
+                                    }
+                                    completionLatch.countDown();
+                                })
+                                .onFailure(err -> {
+                                    System.out.println("Request failed: " + err.getMessage());
+                                    errorCount.incrementAndGet();
+                                    completionLatch.countDown();
+                                });
+                    }
+                })
+                .onFailure(ctx::failNow);
+
+        boolean completed = completionLatch.await(30, TimeUnit.SECONDS);
+        assertThat(completed).isTrue();
+
+        Future.all(productRepository.findByCode("MULTI-A"), productRepository.findByCode("MULTI-B"))
+                .onSuccess(found -> ctx.verify(() -> {
+                    Product finalA = found.<Optional<Product>>resultAt(0).orElseThrow();
+                    Product finalB = found.<Optional<Product>>resultAt(1).orElseThrow();
+
+                    assertThat(errorCount.get()).as("No request should deadlock").isZero();
+                    assertThat(appliedCount.get()).isEqualTo(INITIAL_STOCK);
+                    assertThat(shortCount.get()).isEqualTo(CONCURRENT_REQUESTS - INITIAL_STOCK);
+                    assertThat(finalA.getStock()).isZero();
+                    assertThat(finalB.getStock()).isZero();
+                    ctx.completeNow();
+                }))
+                .onFailure(ctx::failNow);
+    }
+
+    @Test
+    @Order(7)
+    @DisplayName("Multi-item decrement should apply nothing and report every short product")
+    void multiItemDecrementShouldReportShortages(VertxTestContext ctx) {
+        Product plenty = Product.builder()
+                .name("Plenty")
+                .code("SHORT-A")
+                .price(new BigDecimal("10.00"))
+                .stock(10)
+                .build();
+        Product scarce = Product.builder()
+                .name("Scarce")
+                .code("SHORT-B")
+                .price(new BigDecimal("20.00"))
+                .stock(1)
+                .build();
+
+        Future.all(productRepository.save(plenty), productRepository.save(scarce))
+                .compose(saved -> {
+                    UUID idA = saved.<Product>resultAt(0).getId();
+                    UUID idB = saved.<Product>resultAt(1).getId();
+                    UUID unknown = UUID.randomUUID();
+
+                    Map<UUID, Integer> quantities = new LinkedHashMap<>();
+                    quantities.put(idA, 2);
+                    quantities.put(idB, 3);
+                    quantities.put(unknown, 1);
+
+                    return pool.withTransaction(conn -> productRepository.decrementStock(conn, quantities))
+                            .compose(result -> productRepository.findById(idA)
+                                    .map(stored -> {
+                                        ctx.verify(() -> {
+                                            assertThat(result.isApplied()).isFalse();
+                                            assertThat(result.updated()).isEmpty();
+                                            assertThat(result.missing()).containsExactly(unknown);
+                                            assertThat(result.shortages()).hasSize(1);
+                                            assertThat(result.shortages().get(0).productId()).isEqualTo(idB);
+                                            assertThat(result.shortages().get(0).available()).isEqualTo(1);
+                                            assertThat(stored.orElseThrow().getStock()).isEqualTo(10);
+                                        });
+                                        return stored;
+                                    }));
+                })
+                .onSuccess(v -> ctx.completeNow())
+                .onFailure(ctx::failNow);
+    }
+
+    @Test
+    @Order(8)
+    @DisplayName("Re-importing a product without stock should keep its stock")
+    void upsertWithoutStockShouldKeepStock(VertxTestContext ctx) {
+        Product product = Product.builder()
+                .name("Imported")
+                .code("IMPORT-001")
+                .price(new BigDecimal("10.00"))
+                .stock(10)
+                .build();
+        Product reimported = Product.builder()
+                .name("Imported, renamed")
+                .code("IMPORT-001")
+                .price(new BigDecimal("12.00"))
+                .build();
+        Product added = Product.builder()
+                .name("New")
+                .code("IMPORT-002")
+                .price(new BigDecimal("5.00"))
+                .build();
+
+        productRepository.save(product)
+                .compose(saved -> pool.withTransaction(conn ->
+                        productRepository.upsertByCode(conn, List.of(reimported, added))))
+                .onSuccess(result -> ctx.verify(() -> {
+                    assertThat(result.updated()).hasSize(1);
+                    assertThat(result.updated().get(0).getName()).isEqualTo("Imported, renamed");
+                    assertThat(result.updated().get(0).getStock()).isEqualTo(10);
+                    assertThat(result.inserted()).hasSize(1);
+                    assertThat(result.inserted().get(0).getStock()).isZero();
+                    ctx.completeNow();
+                }))
+                .onFailure(ctx::failNow);
+    }
 }
@@ -0,0 +1,86 @@
+package br.com.labs.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.PreparedQuery;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.Tuple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the connection accounting of the pool decorator.
+ * The wrapped pool is mocked, so each test decides when a connection is handed out.
+ */
+public class MeteredPoolTest {
+
+    private Pool delegate;
+    private SimpleMeterRegistry registry;
+    private MeteredPool pool;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(Pool.class);
+        when(delegate.size()).thenReturn(4);
+        registry = new SimpleMeterRegistry();
+        pool = new MeteredPool(delegate, "test-pool", registry);
+    }
+
+    @Test
+    @DisplayName("Should count a one-shot query as in use until its connection is released")
+    @SuppressWarnings("unchecked")
+    void shouldCountOneShotQueries() {
+        SqlConnection conn = mock(SqlConnection.class);
+        PreparedQuery<RowSet<Row>> query = mock(PreparedQuery.class);
+        Promise<RowSet<Row>> result = Promise.promise();
+        when(conn.preparedQuery("SELECT 1")).thenReturn(query);
+        when(query.execute(any(Tuple.class))).thenReturn(result.future());
+        when(delegate.withConnection(any())).thenAnswer(inv ->
+                ((Function<SqlConnection, Future<?>>) inv.getArgument(0)).apply(conn));
+
+        Future<RowSet<Row>> executed = pool.preparedQuery("SELECT 1").execute(Tuple.tuple());
+
+        assertThat(gauge("db.pool.in.use")).isEqualTo(1);
+        assertThat(gauge("db.pool.idle")).isEqualTo(3);
+
+        result.complete(null);
+
+        assertThat(executed.succeeded()).isTrue();
+        assertThat(gauge("db.pool.in.use")).isZero();
+        assertThat(gauge("db.pool.idle")).isEqualTo(4);
+        assertThat(registry.get("db.pool.acquire").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should count requests waiting for a connection and drop them when acquiring fails")
+    void shouldCountPendingRequests() {
+        Promise<Object> acquired = Promise.promise();
+        when(delegate.withTransaction(any())).thenReturn(acquired.future());
+
+        Future<Object> tx = pool.withTransaction(conn -> Future.succeededFuture());
+
+        assertThat(gauge("db.pool.pending")).isEqualTo(1);
+        assertThat(gauge("db.pool.in.use")).isZero();
+
+        acquired.fail("Connection pool reached max wait queue size");
+
+        assertThat(tx.failed()).isTrue();
+        assertThat(gauge("db.pool.pending")).isZero();
+        assertThat(gauge("db.pool.in.use")).isZero();
+    }
+
+    private double gauge(String name) {
+        return registry.get(name).gauge().value();
+    }
+}
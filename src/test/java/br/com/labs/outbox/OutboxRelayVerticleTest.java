@@ -0,0 +1,120 @@
+package br.com.labs.outbox;
+
+import br.com.labs.repository.OutboxEvent;
+import br.com.labs.repository.OutboxRepository;
+import br.com.labs.repository.TransactionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.sqlclient.SqlConnection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the outbox relay, with the database mocked.
+ */
+@ExtendWith(VertxExtension.class)
+public class OutboxRelayVerticleTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    private OutboxRepository repository;
+    private TransactionManager transactionManager;
+    private SqlConnection connection;
+    private SimpleMeterRegistry meterRegistry;
+    private final List<List<OutboxEvent>> batches = new ArrayList<>();
+    private boolean sinkFails;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(OutboxRepository.class);
+        transactionManager = mock(TransactionManager.class);
+        connection = mock(SqlConnection.class);
+        meterRegistry = new SimpleMeterRegistry();
+        when(transactionManager.inTransaction(any())).thenAnswer(inv -> {
+            Function<SqlConnection, Future<?>> work = inv.getArgument(0);
+            return work.apply(connection);
+        });
+        when(repository.delete(any(), any())).thenReturn(Future.succeededFuture());
+    }
+
+    @Test
+    @DisplayName("Should publish claimed events in order, delete them and claim again while batches are full")
+    void shouldRelayInOrder(Vertx vertx, VertxTestContext ctx) {
+        UUID order = UUID.randomUUID();
+        OutboxEvent created = event(1, order, "order.created");
+        OutboxEvent confirmed = event(2, order, "order.status_changed");
+        OutboxEvent stock = event(3, UUID.randomUUID(), "product.stock_changed");
+        when(repository.claim(connection, BATCH_SIZE))
+                .thenReturn(Future.succeededFuture(List.of(created, confirmed)))
+                .thenReturn(Future.succeededFuture(List.of(stock)))
+                .thenReturn(Future.succeededFuture(List.of()));
+
+        deploy(vertx).onComplete(ctx.succeeding(id -> ctx.verify(() -> {
+            assertThat(batches).containsExactly(List.of(created, confirmed), List.of(stock));
+            verify(repository).delete(connection, List.of(1L, 2L));
+            verify(repository).delete(connection, List.of(3L));
+            verify(repository, times(2)).claim(any(), anyInt());
+            assertThat(meterRegistry.counter("outbox.published", "sink", "test").count()).isEqualTo(3);
+            ctx.completeNow();
+        })));
+    }
+
+    @Test
+    @DisplayName("Should keep the batch in the outbox when the sink fails")
+    void shouldKeepEventsWhenSinkFails(Vertx vertx, VertxTestContext ctx) {
+        sinkFails = true;
+        when(repository.claim(connection, BATCH_SIZE))
+                .thenReturn(Future.succeededFuture(List.of(event(1, UUID.randomUUID(), "order.created"))));
+
+        deploy(vertx).onComplete(ctx.succeeding(id -> ctx.verify(() -> {
+            assertThat(batches).hasSize(1);
+            verify(repository, never()).delete(any(), any());
+            assertThat(meterRegistry.counter("outbox.publish.failures", "sink", "test").count()).isEqualTo(1);
+            assertThat(meterRegistry.counter("outbox.published", "sink", "test").count()).isZero();
+            ctx.completeNow();
+        })));
+    }
+
+    private Future<String> deploy(Vertx vertx) {
+        // Polls only at startup during the test
+        return vertx.deployVerticle(new OutboxRelayVerticle(repository, transactionManager, v -> new RecordingSink(),
+                BATCH_SIZE, Duration.ofHours(1).toMillis(), meterRegistry));
+    }
+
+    private static OutboxEvent event(long id, UUID aggregateId, String eventType) {
+        return new OutboxEvent(id, eventType.substring(0, eventType.indexOf('.')), aggregateId, eventType,
+                new JsonObject().put("id", aggregateId.toString()), LocalDateTime.now());
+    }
+
+    private class RecordingSink implements OutboxSink {
+
+        @Override
+        public Future<Void> publish(List<OutboxEvent> events) {
+            batches.add(events);
+            return sinkFails ? Future.failedFuture(new RuntimeException("unreachable")) : Future.succeededFuture();
+        }
+
+        @Override
+        public String name() {
+            return "test";
+        }
+    }
+}
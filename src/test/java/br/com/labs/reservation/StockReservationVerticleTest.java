@@ -0,0 +1,128 @@
+package br.com.labs.reservation;
+
+import br.com.labs.exception.InsufficientStockException;
+import br.com.labs.exception.NotFoundException;
+import br.com.labs.repository.AppliedStock;
+import br.com.labs.repository.StockReservationRepository;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the in-memory reservation shards, with the database mocked.
+ */
+@ExtendWith(VertxExtension.class)
+public class StockReservationVerticleTest {
+
+    private static final int SHARDS = 2;
+
+    private StockReservationRepository repository;
+    private StockReservations reservations;
+
+    private UUID productId;
+    private final AtomicInteger databaseStock = new AtomicInteger();
+
+    @BeforeEach
+    void setUp(Vertx vertx, VertxTestContext ctx) {
+        productId = UUID.randomUUID();
+        databaseStock.set(3);
+
+        repository = mock(StockReservationRepository.class);
+        when(repository.applyPending(anyList())).thenReturn(Future.succeededFuture(new AppliedStock(0, List.of())));
+        when(repository.loadAvailable(anyList())).thenAnswer(inv -> {
+            List<UUID> ids = inv.getArgument(0);
+            Map<UUID, Integer> available = new HashMap<>();
+            if (ids.contains(productId)) {
+                available.put(productId, databaseStock.get());
+            }
+            return Future.succeededFuture(available);
+        });
+
+        reservations = new EventBusStockReservations(vertx.eventBus(), SHARDS, Set.of(productId));
+
+        int owner = EventBusStockReservations.shardOf(productId, SHARDS);
+        Future<String> first = vertx.deployVerticle(new StockReservationVerticle(0,
+                owner == 0 ? List.of(productId) : List.of(), repository, 10, ids -> { }));
+        Future<String> second = vertx.deployVerticle(new StockReservationVerticle(1,
+                owner == 1 ? List.of(productId) : List.of(), repository, 10, ids -> { }));
+        Future.all(first, second).onComplete(ctx.succeedingThenComplete());
+    }
+
+    @Test
+    @DisplayName("Should reserve until the stock recovered from the database runs out")
+    void shouldRejectWhenStockRunsOut(VertxTestContext ctx) {
+        reservations.reserve(Map.of(productId, 2))
+                .compose(v -> reservations.reserve(Map.of(productId, 2)))
+                .onComplete(ctx.failing(err -> ctx.verify(() -> {
+                    assertThat(err).isInstanceOf(InsufficientStockException.class);
+                    assertThat(((InsufficientStockException) err).getAvailable()).isEqualTo(1);
+                    ctx.completeNow();
+                })));
+    }
+
+    @Test
+    @DisplayName("Should return released stock to the pool")
+    void shouldReuseReleasedStock(VertxTestContext ctx) {
+        reservations.reserve(Map.of(productId, 3))
+                .compose(v -> {
+                    reservations.release(Map.of(productId, 3));
+                    return reservations.reserve(Map.of(productId, 3));
+                })
+                .onComplete(ctx.succeedingThenComplete());
+    }
+
+    @Test
+    @DisplayName("Should not double count confirmed orders after the write-behind flush")
+    void shouldKeepStockConsistentAcrossFlush(Vertx vertx, VertxTestContext ctx) {
+        reservations.reserve(Map.of(productId, 2))
+                .onSuccess(v -> {
+                    // The order is committed with a pending item: the database now reports 3 - 2
+                    databaseStock.set(1);
+                    reservations.confirm(Map.of(productId, 2));
+                })
+                .compose(v -> {
+                    // Give the periodic flush time to run and reload
+                    return vertx.timer(100);
+                })
+                .compose(v -> reservations.reserve(Map.of(productId, 1)))
+                .compose(v -> reservations.reserve(Map.of(productId, 1)))
+                .onComplete(ctx.failing(err -> ctx.verify(() -> {
+                    assertThat(err).isInstanceOf(InsufficientStockException.class);
+                    verify(repository, atLeast(2)).applyPending(anyList());
+                    ctx.completeNow();
+                })));
+    }
+
+    @Test
+    @DisplayName("Should report products the shard does not know")
+    void shouldRejectUnknownProducts(Vertx vertx, VertxTestContext ctx) {
+        UUID unknown = UUID.randomUUID();
+        StockReservations withUnknown = new EventBusStockReservations(vertx.eventBus(), SHARDS,
+                Set.of(productId, unknown));
+
+        withUnknown.reserve(Map.of(productId, 1, unknown, 1))
+                .<Void>compose(v -> Future.failedFuture(new AssertionError("Reservation should fail")))
+                .recover(err -> {
+                    ctx.verify(() -> assertThat(err).isInstanceOf(NotFoundException.class));
+                    // The part reserved on the other shard must have been released
+                    return withUnknown.reserve(Map.of(productId, 3));
+                })
+                .onComplete(ctx.succeedingThenComplete());
+    }
+}
@@ -0,0 +1,88 @@
+package br.com.labs.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.User;
+import io.vertx.ext.auth.authentication.Credentials;
+import io.vertx.ext.auth.authentication.TokenCredentials;
+import io.vertx.ext.auth.jwt.JWTAuth;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the verified-token cache, with the signature check mocked.
+ */
+@ExtendWith(MockitoExtension.class)
+public class CachingJWTAuthTest {
+
+    private static final String TOKEN = "header.payload.signature";
+
+    @Mock
+    private JWTAuth delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CachingJWTAuth jwtAuth;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jwtAuth = new CachingJWTAuth(delegate, 100, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should verify a token once and serve later requests from the cache")
+    void shouldVerifyOnce() {
+        User user = userExpiringAt(Instant.now().plusSeconds(60));
+        when(delegate.authenticate(any(Credentials.class))).thenReturn(Future.succeededFuture(user));
+
+        jwtAuth.authenticate(new TokenCredentials(TOKEN));
+        User second = jwtAuth.authenticate(new TokenCredentials(TOKEN)).result();
+
+        assertThat(second).isSameAs(user);
+        verify(delegate, times(1)).authenticate(any(Credentials.class));
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "jwt").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should never cache a rejected token")
+    void shouldNotCacheRejectedTokens() {
+        when(delegate.authenticate(any(Credentials.class)))
+                .thenReturn(Future.failedFuture("Invalid JWT token"));
+
+        jwtAuth.authenticate(new TokenCredentials(TOKEN));
+        Future<User> second = jwtAuth.authenticate(new TokenCredentials(TOKEN));
+
+        assertThat(second.failed()).isTrue();
+        verify(delegate, times(2)).authenticate(any(Credentials.class));
+    }
+
+    @Test
+    @DisplayName("Should verify the token again once its exp claim has passed")
+    void shouldExpireAtClaim() {
+        when(delegate.authenticate(any(Credentials.class)))
+                .thenReturn(Future.succeededFuture(userExpiringAt(Instant.now().minusSeconds(1))));
+
+        jwtAuth.authenticate(new TokenCredentials(TOKEN));
+        jwtAuth.authenticate(new TokenCredentials(TOKEN));
+
+        verify(delegate, times(2)).authenticate(any(Credentials.class));
+    }
+
+    private User userExpiringAt(Instant exp) {
+        return User.create(
+                new JsonObject().put("sub", "c0ffee00-0000-0000-0000-000000000001"),
+                new JsonObject().put("exp", exp.getEpochSecond()));
+    }
+}
@@ -1,14 +1,28 @@
 package br.com.labs.service;
 
+import br.com.labs.cache.CountCache;
+import br.com.labs.config.CountStrategy;
 import br.com.labs.dto.request.CreateOrderRequest;
+import br.com.labs.exception.ConflictException;
 import br.com.labs.exception.InsufficientStockException;
+import br.com.labs.exception.NotFoundException;
 import br.com.labs.model.Order;
-import br.com.labs.model.OrderItem;
 import br.com.labs.model.Product;
+import br.com.labs.model.StockShortage;
+import br.com.labs.repository.IdempotencyKeyRepository;
 import br.com.labs.repository.OrderRepository;
+import br.com.labs.repository.OrderRequestRepository;
 import br.com.labs.repository.ProductRepository;
+import br.com.labs.repository.StockDecrementResult;
+import br.com.labs.repository.StoredIdempotencyKey;
+import br.com.labs.repository.TransactionManager;
+import br.com.labs.reservation.StockReservations;
 import br.com.labs.service.impl.OrderServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.pgclient.PgException;
+import io.vertx.sqlclient.SqlConnection;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -18,7 +32,9 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.stubbing.Answer;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
@@ -26,13 +42,14 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 /**
- * Unit tests demonstrating optimistic locking behavior in OrderService.
+ * Unit tests for the transactional order creation in OrderService.
  * Uses mocks to simulate concurrent access scenarios without a database.
  */
 @ExtendWith(MockitoExtension.class)
@@ -44,53 +61,61 @@ public class OrderServiceConcurrencyTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private TransactionManager transactionManager;
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Mock
+    private SqlConnection connection;
+
     private OrderService orderService;
+    private SimpleMeterRegistry meterRegistry;
 
     private UUID productId;
     private UUID userId;
 
     @BeforeEach
     void setUp() {
-        orderService = new OrderServiceImpl(orderRepository, productRepository);
+        meterRegistry = new SimpleMeterRegistry();
+        orderService = new OrderServiceImpl(orderRepository, productRepository, transactionManager,
+                CountStrategy.EXACT, new CountCache<>(100, Duration.ofMinutes(1)), StockReservations.disabled(),
+                idempotencyKeyRepository, mock(OrderRequestRepository.class), meterRegistry);
         productId = UUID.randomUUID();
         userId = UUID.randomUUID();
+
+        // Run the transactional work directly against a mocked connection
+        lenient().when(transactionManager.inTransaction(any()))
+                .thenAnswer(inv -> {
+                    Function<SqlConnection, Future<?>> work = inv.getArgument(0);
+                    return work.apply(connection);
+                });
     }
 
     @Test
-    @DisplayName("Should succeed when stock is available and version matches")
+    @DisplayName("Should create the order in a single transaction when stock is available")
     void shouldSucceedWhenStockAvailable() throws Exception {
         // Arrange
-        Product product = createProduct(5, 1);
+        when(productRepository.decrementStock(eq(connection), eq(Map.of(productId, 1))))
+                .thenReturn(Future.succeededFuture(applied(createProduct(4, 2))));
 
-        when(productRepository.findById(productId))
-                .thenReturn(Future.succeededFuture(Optional.of(product)));
-
-        when(productRepository.decrementStock(eq(productId), eq(1), eq(1)))
-                .thenReturn(Future.succeededFuture(Optional.of(createProduct(4, 2))));
-
-        when(orderRepository.save(any(Order.class)))
+        when(orderRepository.saveWithItems(eq(connection), any(Order.class), anySet()))
                 .thenAnswer(inv -> {
-                    Order order = inv.getArgument(0);
+                    Order order = inv.getArgument(1);
                     order.setId(UUID.randomUUID());
                     return Future.succeededFuture(order);
                 });
 
-        when(orderRepository.saveItem(any(OrderItem.class)))
-                .thenAnswer(inv -> {
-                    OrderItem item = inv.getArgument(0);
-                    item.setId(UUID.randomUUID());
-                    return Future.succeededFuture(item);
-                });
-
         CreateOrderRequest request = createOrderRequest(1);
 
         // Act
         CountDownLatch latch = new CountDownLatch(1);
-        AtomicInteger success = new AtomicInteger(0);
+        Order[] created = new Order[1];
 
         orderService.create(userId, request)
                 .onSuccess(order -> {
-                    success.incrementAndGet();
+                    created[0] = order;
                     latch.countDown();
                 })
                 .onFailure(err -> latch.countDown());
@@ -98,18 +123,21 @@ public class OrderServiceConcurrencyTest {
         latch.await(5, TimeUnit.SECONDS);
 
         // Assert
-        assertThat(success.get()).isEqualTo(1);
-        verify(productRepository).decrementStock(productId, 1, 1);
+        assertThat(created[0]).isNotNull();
+        assertThat(created[0].getTotal()).isEqualByComparingTo("99.99");
+        assertThat(created[0].getItems()).hasSize(1);
+        verify(transactionManager, times(1)).inTransaction(any());
+        verify(productRepository, never()).findByIds(any(), anyList());
+        verify(orderRepository, never()).save(any());
+        verify(orderRepository, never()).saveItem(any());
     }
 
     @Test
     @DisplayName("Should fail when stock is insufficient")
     void shouldFailWhenStockInsufficient() throws Exception {
         // Arrange
-        Product product = createProduct(1, 1); // Only 1 in stock
-
-        when(productRepository.findById(productId))
-                .thenReturn(Future.succeededFuture(Optional.of(product)));
+        when(productRepository.decrementStock(eq(connection), anyMap()))
+                .thenReturn(Future.succeededFuture(shortage(new StockShortage(productId, 5, 1)))); // Only 1 in stock
 
         CreateOrderRequest request = createOrderRequest(5); // Trying to buy 5
 
@@ -131,101 +159,160 @@ public class OrderServiceConcurrencyTest {
         // Assert
         assertThat(failures.get()).isEqualTo(1);
         assertThat(errorMessage[0]).contains("Insufficient stock");
+        verify(orderRepository, never()).saveWithItems(any(), any(), anySet());
     }
 
     @Test
-    @DisplayName("Should retry on optimistic lock conflict and eventually succeed")
-    void shouldRetryOnOptimisticLockConflict() throws Exception {
+    @DisplayName("Should fail when a product does not exist")
+    void shouldFailWhenProductNotFound() throws Exception {
         // Arrange
-        Product productV1 = createProduct(5, 1);
-        Product productV2 = createProduct(4, 2); // Someone else already bought one
-        Product productV3 = createProduct(3, 3); // After our successful purchase
+        when(productRepository.decrementStock(eq(connection), anyMap()))
+                .thenReturn(Future.succeededFuture(
+                        new StockDecrementResult(List.of(), List.of(productId), List.of())));
 
-        // First call returns product with version 1
-        when(productRepository.findById(productId))
-                .thenReturn(Future.succeededFuture(Optional.of(productV1)))
-                .thenReturn(Future.succeededFuture(Optional.of(productV2)));
+        // Act
+        CountDownLatch latch = new CountDownLatch(1);
+        Throwable[] failure = new Throwable[1];
 
-        // First decrement fails (version mismatch), second succeeds
-        when(productRepository.decrementStock(eq(productId), eq(1), eq(1)))
-                .thenReturn(Future.succeededFuture(Optional.empty())); // Conflict!
+        orderService.create(userId, createOrderRequest(1))
+                .onSuccess(order -> latch.countDown())
+                .onFailure(err -> {
+                    failure[0] = err;
+                    latch.countDown();
+                });
 
-        when(productRepository.decrementStock(eq(productId), eq(1), eq(2)))
-                .thenReturn(Future.succeededFuture(Optional.of(productV3))); // Success!
+        latch.await(5, TimeUnit.SECONDS);
 
-        when(orderRepository.save(any(Order.class)))
-                .thenAnswer(inv -> {
-                    Order order = inv.getArgument(0);
-                    order.setId(UUID.randomUUID());
-                    return Future.succeededFuture(order);
-                });
+        // Assert
+        assertThat(failure[0]).isInstanceOf(NotFoundException.class);
+        verify(orderRepository, never()).saveWithItems(any(), any(), anySet());
+    }
 
-        when(orderRepository.saveItem(any(OrderItem.class)))
-                .thenAnswer(inv -> {
-                    OrderItem item = inv.getArgument(0);
-                    item.setId(UUID.randomUUID());
-                    return Future.succeededFuture(item);
-                });
+    @Test
+    @DisplayName("Should report every short product of a multi-item order")
+    void shouldReportEveryShortProduct() throws Exception {
+        // Arrange
+        UUID otherProductId = UUID.randomUUID();
+        List<StockShortage> shortages = List.of(
+                new StockShortage(productId, 3, 1),
+                new StockShortage(otherProductId, 2, 0));
 
-        CreateOrderRequest request = createOrderRequest(1);
+        when(productRepository.decrementStock(eq(connection), anyMap()))
+                .thenReturn(Future.succeededFuture(shortage(shortages.toArray(new StockShortage[0]))));
+
+        CreateOrderRequest request = createOrderRequest(3);
+        CreateOrderRequest.OrderItemRequest otherItem = new CreateOrderRequest.OrderItemRequest();
+        otherItem.setProductId(otherProductId);
+        otherItem.setQuantity(2);
+        request.setItems(List.of(request.getItems().get(0), otherItem));
 
         // Act
         CountDownLatch latch = new CountDownLatch(1);
-        AtomicInteger success = new AtomicInteger(0);
+        Throwable[] failure = new Throwable[1];
 
         orderService.create(userId, request)
-                .onSuccess(order -> {
-                    success.incrementAndGet();
-                    latch.countDown();
-                })
+                .onSuccess(order -> latch.countDown())
                 .onFailure(err -> {
-                    System.out.println("Failed: " + err.getMessage());
+                    failure[0] = err;
                     latch.countDown();
                 });
 
         latch.await(5, TimeUnit.SECONDS);
 
         // Assert
-        assertThat(success.get()).isEqualTo(1);
-
-        // Verify retry happened
-        verify(productRepository).decrementStock(productId, 1, 1); // First attempt
-        verify(productRepository).decrementStock(productId, 1, 2); // Retry with new version
+        assertThat(failure[0]).isInstanceOf(InsufficientStockException.class);
+        assertThat(((InsufficientStockException) failure[0]).getShortages()).isEqualTo(shortages);
+        verify(orderRepository, never()).saveWithItems(any(), any(), anySet());
     }
 
     @Test
-    @DisplayName("Should fail after max retries when stock depleted during retries")
-    void shouldFailAfterMaxRetries() throws Exception {
+    @DisplayName("Should retry the transaction on deadlock and eventually succeed")
+    void shouldRetryOnDeadlock() throws Exception {
         // Arrange
-        Product productV1 = createProduct(1, 1);
-        Product productV2 = createProduct(0, 2); // Stock depleted!
-
-        when(productRepository.findById(productId))
-                .thenReturn(Future.succeededFuture(Optional.of(productV1)))
-                .thenReturn(Future.succeededFuture(Optional.of(productV2)));
-
-        // First decrement fails due to conflict
-        when(productRepository.decrementStock(eq(productId), eq(1), eq(1)))
-                .thenReturn(Future.succeededFuture(Optional.empty()));
+        when(productRepository.decrementStock(eq(connection), anyMap()))
+                .thenReturn(Future.failedFuture(new PgException("deadlock detected", "ERROR", "40P01", null)))
+                .thenReturn(Future.succeededFuture(applied(createProduct(4, 2))));
 
-        CreateOrderRequest request = createOrderRequest(1);
+        when(orderRepository.saveWithItems(eq(connection), any(Order.class), anySet()))
+                .thenAnswer(inv -> Future.succeededFuture(inv.getArgument(1)));
 
         // Act
         CountDownLatch latch = new CountDownLatch(1);
-        AtomicInteger failures = new AtomicInteger(0);
+        AtomicInteger success = new AtomicInteger(0);
 
-        orderService.create(userId, request)
-                .onSuccess(order -> latch.countDown())
-                .onFailure(err -> {
-                    failures.incrementAndGet();
-                    assertThat(err).isInstanceOf(InsufficientStockException.class);
+        orderService.create(userId, createOrderRequest(1))
+                .onSuccess(order -> {
+                    success.incrementAndGet();
                     latch.countDown();
-                });
+                })
+                .onFailure(err -> latch.countDown());
 
         latch.await(5, TimeUnit.SECONDS);
 
         // Assert
-        assertThat(failures.get()).isEqualTo(1);
+        assertThat(success.get()).isEqualTo(1);
+        verify(transactionManager, times(2)).inTransaction(any());
+        assertThat(meterRegistry.get("orders.create.retries").tag("reason", "deadlock").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should return the stored order for a retried idempotency key without touching stock")
+    void shouldReplayRetriedIdempotencyKey() {
+        // Arrange
+        when(productRepository.decrementStock(eq(connection), anyMap()))
+                .thenReturn(Future.succeededFuture(applied(createProduct(4, 2))));
+        when(orderRepository.saveWithItems(eq(connection), any(Order.class), anySet()))
+                .thenAnswer(inv -> {
+                    Order order = inv.getArgument(1);
+                    order.setId(UUID.randomUUID());
+                    return Future.succeededFuture(order);
+                });
+
+        StoredIdempotencyKey[] stored = new StoredIdempotencyKey[1];
+        when(idempotencyKeyRepository.find(userId, "retry-1"))
+                .thenAnswer(inv -> Future.succeededFuture(Optional.ofNullable(stored[0])));
+        when(idempotencyKeyRepository.save(eq(connection), eq(userId), eq("retry-1"), any()))
+                .thenAnswer(inv -> {
+                    stored[0] = inv.getArgument(3);
+                    return Future.succeededFuture(true);
+                });
+
+        // Act
+        Order first = orderService.create(userId, createOrderRequest(1), "retry-1").result();
+        Order retried = orderService.create(userId, createOrderRequest(1), "retry-1").result();
+        Future<Order> otherItems = orderService.create(userId, createOrderRequest(2), "retry-1");
+
+        // Assert
+        assertThat(retried.getId()).isEqualTo(first.getId());
+        assertThat(retried.getTotal()).isEqualByComparingTo(first.getTotal());
+        assertThat(otherItems.cause()).isInstanceOf(ConflictException.class);
+        verify(productRepository, times(1)).decrementStock(eq(connection), anyMap());
+        assertThat(meterRegistry.get("orders.create.idempotent.replays").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should answer a duplicate arriving while the first request runs with the same order")
+    void shouldShareInFlightIdempotentRequest() {
+        // Arrange
+        Promise<Optional<StoredIdempotencyKey>> lookup = Promise.promise();
+        when(idempotencyKeyRepository.find(userId, "double-tap")).thenReturn(lookup.future());
+        when(idempotencyKeyRepository.save(eq(connection), eq(userId), eq("double-tap"), any()))
+                .thenReturn(Future.succeededFuture(true));
+        when(productRepository.decrementStock(eq(connection), anyMap()))
+                .thenReturn(Future.succeededFuture(applied(createProduct(4, 2))));
+        when(orderRepository.saveWithItems(eq(connection), any(Order.class), anySet()))
+                .thenAnswer(inv -> Future.succeededFuture(inv.getArgument(1)));
+
+        // Act
+        Future<Order> first = orderService.create(userId, createOrderRequest(1), "double-tap");
+        Future<Order> duplicate = orderService.create(userId, createOrderRequest(1), "double-tap");
+        lookup.complete(Optional.empty());
+
+        // Assert
+        assertThat(duplicate.result()).isSameAs(first.result());
+        verify(idempotencyKeyRepository, times(1)).find(userId, "double-tap");
+        verify(transactionManager, times(1)).inTransaction(any());
     }
 
     @Test
@@ -244,49 +331,33 @@ public class OrderServiceConcurrencyTest {
         AtomicInteger successCount = new AtomicInteger(0);
         AtomicInteger failureCount = new AtomicInteger(0);
 
-        // Mock findById to return current stock state
-        when(productRepository.findById(productId))
-                .thenAnswer(inv -> Future.succeededFuture(
-                        Optional.of(createProduct(currentStock.get(), currentVersion.get()))));
-
-        // Mock decrementStock to simulate optimistic locking
-        when(productRepository.decrementStock(eq(productId), eq(1), anyInt()))
-                .thenAnswer((Answer<Future<Optional<Product>>>) inv -> {
-                    int expectedVersion = inv.getArgument(2);
+        // Mock decrementStock to simulate the locked, all-or-nothing UPDATE
+        when(productRepository.decrementStock(eq(connection), anyMap()))
+                .thenAnswer((Answer<Future<StockDecrementResult>>) inv -> {
+                    Map<UUID, Integer> quantities = inv.getArgument(1);
+                    int quantity = quantities.get(productId);
 
                     synchronized (currentVersion) {
-                        if (currentVersion.get() != expectedVersion) {
-                            // Version mismatch - conflict!
-                            return Future.succeededFuture(Optional.empty());
-                        }
-
-                        if (currentStock.get() < 1) {
-                            // Insufficient stock
-                            return Future.succeededFuture(Optional.empty());
+                        if (currentStock.get() < quantity) {
+                            // Insufficient stock - row not updated
+                            return Future.succeededFuture(
+                                    shortage(new StockShortage(productId, quantity, currentStock.get())));
                         }
 
-                        // Success! Decrement stock and increment version
-                        int newStock = currentStock.decrementAndGet();
+                        int newStock = currentStock.addAndGet(-quantity);
                         int newVersion = currentVersion.incrementAndGet();
 
-                        return Future.succeededFuture(Optional.of(createProduct(newStock, newVersion)));
+                        return Future.succeededFuture(applied(createProduct(newStock, newVersion)));
                     }
                 });
 
-        when(orderRepository.save(any(Order.class)))
+        lenient().when(orderRepository.saveWithItems(eq(connection), any(Order.class), anySet()))
                 .thenAnswer(inv -> {
-                    Order order = inv.getArgument(0);
+                    Order order = inv.getArgument(1);
                     order.setId(UUID.randomUUID());
                     return Future.succeededFuture(order);
                 });
 
-        when(orderRepository.saveItem(any(OrderItem.class)))
-                .thenAnswer(inv -> {
-                    OrderItem item = inv.getArgument(0);
-                    item.setId(UUID.randomUUID());
-                    return Future.succeededFuture(item);
-                });
-
         // Execute concurrent requests
         ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
         CountDownLatch startLatch = new CountDownLatch(1);
@@ -349,6 +420,14 @@ public class OrderServiceConcurrencyTest {
     }
 
     // Helper methods
+    private StockDecrementResult applied(Product... updated) {
+        return new StockDecrementResult(List.of(updated), List.of(), List.of());
+    }
+
+    private StockDecrementResult shortage(StockShortage... shortages) {
+        return new StockDecrementResult(List.of(), List.of(), List.of(shortages));
+    }
+
     private Product createProduct(int stock, int version) {
         return Product.builder()
                 .id(productId)
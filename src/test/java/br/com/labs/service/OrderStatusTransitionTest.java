@@ -0,0 +1,171 @@
+package br.com.labs.service;
+
+import br.com.labs.cache.CountCache;
+import br.com.labs.config.CountStrategy;
+import br.com.labs.dto.response.StatusUpdateResponse;
+import br.com.labs.exception.ConflictException;
+import br.com.labs.exception.ForbiddenException;
+import br.com.labs.exception.NotFoundException;
+import br.com.labs.exception.ValidationException;
+import br.com.labs.model.Order;
+import br.com.labs.model.Order.OrderStatus;
+import br.com.labs.repository.IdempotencyKeyRepository;
+import br.com.labs.repository.OrderRepository;
+import br.com.labs.repository.OrderRequestRepository;
+import br.com.labs.repository.ProductRepository;
+import br.com.labs.repository.StatusTransitionResult;
+import br.com.labs.repository.TransactionManager;
+import br.com.labs.reservation.StockReservations;
+import br.com.labs.service.impl.OrderServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for order status transitions in OrderService, with the repository mocked.
+ */
+@ExtendWith(MockitoExtension.class)
+public class OrderStatusTransitionTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private StockReservations stockReservations;
+
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        orderService = new OrderServiceImpl(orderRepository, productRepository,
+                mock(TransactionManager.class), CountStrategy.EXACT, new CountCache<>(100, Duration.ofMinutes(1)),
+                stockReservations, mock(IdempotencyKeyRepository.class), mock(OrderRequestRepository.class),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("Should only allow forward steps and cancellation before shipping")
+    void shouldDefineTransitions() {
+        assertThat(OrderStatus.PENDING.canTransitionTo(OrderStatus.CONFIRMED)).isTrue();
+        assertThat(OrderStatus.PENDING.canTransitionTo(OrderStatus.SHIPPED)).isFalse();
+        assertThat(OrderStatus.SHIPPED.canTransitionTo(OrderStatus.CANCELLED)).isFalse();
+        assertThat(OrderStatus.CANCELLED.canTransitionTo(OrderStatus.PENDING)).isFalse();
+        assertThat(OrderStatus.CANCELLED.sources())
+                .containsExactly(OrderStatus.PENDING, OrderStatus.CONFIRMED, OrderStatus.PROCESSING);
+        assertThat(OrderStatus.PENDING.sources()).isEmpty();
+
+        Future<Order> result = orderService.updateStatus(UUID.randomUUID(), null, OrderStatus.PENDING, null);
+
+        assertThat(result.cause()).isInstanceOf(ValidationException.class);
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    @DisplayName("Should tell a stale version apart from a transition the order cannot make")
+    void shouldReportWhySingleTransitionFailed() {
+        UUID stale = UUID.randomUUID();
+        UUID shipped = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+        when(orderRepository.transitionStatus(eq(Map.of(stale, 2)), any(), any(), any()))
+                .thenReturn(Future.succeededFuture(rejected(current(stale, OrderStatus.CONFIRMED, 3))));
+        when(orderRepository.transitionStatus(eq(Map.of(shipped, 5)), any(), any(), any()))
+                .thenReturn(Future.succeededFuture(rejected(current(shipped, OrderStatus.SHIPPED, 5))));
+        when(orderRepository.transitionStatus(eq(Map.of(missing, 1)), any(), any(), any()))
+                .thenReturn(Future.succeededFuture(
+                        new StatusTransitionResult(List.of(), List.of(), List.of(missing), Map.of(), List.of())));
+
+        assertThat(orderService.updateStatus(stale, null, OrderStatus.CANCELLED, 2).cause())
+                .isInstanceOf(ConflictException.class)
+                .hasMessageContaining("modified concurrently");
+        assertThat(orderService.updateStatus(shipped, null, OrderStatus.CANCELLED, 5).cause())
+                .isInstanceOf(ConflictException.class)
+                .hasMessage("Order cannot move from SHIPPED to CANCELLED");
+        assertThat(orderService.updateStatus(missing, null, OrderStatus.CANCELLED, 1).cause())
+                .isInstanceOf(NotFoundException.class);
+        verify(orderRepository, times(3)).transitionStatus(anyMap(), eq(OrderStatus.CANCELLED),
+                eq(List.of(OrderStatus.PENDING, OrderStatus.CONFIRMED, OrderStatus.PROCESSING)), isNull());
+    }
+
+    @Test
+    @DisplayName("Should let a customer only cancel, and only their own orders")
+    void shouldRestrictCustomersToCancellingTheirOrders() {
+        UUID customer = UUID.randomUUID();
+        UUID own = UUID.randomUUID();
+        UUID foreign = UUID.randomUUID();
+        Order cancelled = Order.builder().id(own).userId(customer).status(OrderStatus.CANCELLED).version(2).build();
+        when(orderRepository.transitionStatus(eq(Map.of(own, 1)), eq(OrderStatus.CANCELLED), any(), eq(customer)))
+                .thenReturn(Future.succeededFuture(
+                        new StatusTransitionResult(List.of(cancelled), List.of(), List.of(), Map.of(), List.of())));
+        when(orderRepository.transitionStatus(eq(Map.of(foreign, 1)), eq(OrderStatus.CANCELLED), any(), eq(customer)))
+                .thenReturn(Future.succeededFuture(
+                        new StatusTransitionResult(List.of(), List.of(), List.of(foreign), Map.of(), List.of())));
+
+        assertThat(orderService.updateStatus(own, customer, OrderStatus.SHIPPED, null).cause())
+                .isInstanceOf(ForbiddenException.class);
+        assertThat(orderService.updateStatus(own, customer, OrderStatus.CANCELLED, 1).result()).isEqualTo(cancelled);
+        assertThat(orderService.updateStatus(foreign, customer, OrderStatus.CANCELLED, 1).cause())
+                .isInstanceOf(NotFoundException.class);
+        verify(orderRepository, never()).transitionStatus(anyMap(), eq(OrderStatus.SHIPPED), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should apply a bulk transition in one call, report the rest and refresh released products")
+    void shouldTransitionInBulk() {
+        UUID moved = UUID.randomUUID();
+        UUID delivered = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+        UUID hotProduct = UUID.randomUUID();
+        UUID product = UUID.randomUUID();
+        Map<UUID, Integer> requested = new LinkedHashMap<>();
+        requested.put(moved, null);
+        requested.put(delivered, 4);
+        requested.put(missing, null);
+
+        Order cancelled = Order.builder().id(moved).status(OrderStatus.CANCELLED).version(2).build();
+        when(stockReservations.manages(any())).thenAnswer(inv -> hotProduct.equals(inv.getArgument(0)));
+        when(orderRepository.transitionStatus(requested, OrderStatus.CANCELLED, OrderStatus.CANCELLED.sources(), null))
+                .thenReturn(Future.succeededFuture(new StatusTransitionResult(List.of(cancelled),
+                        List.of(current(delivered, OrderStatus.DELIVERED, 4)), List.of(missing),
+                        Map.of(hotProduct, 2, product, 1), List.of(hotProduct, product))));
+
+        StatusUpdateResponse response = orderService.updateStatuses(OrderStatus.CANCELLED, requested).result();
+
+        assertThat(response.getUpdated()).containsExactly(cancelled);
+        assertThat(response.getRejected()).extracting(StatusUpdateResponse.Rejection::id)
+                .containsExactly(missing, delivered);
+        assertThat(response.getRejected().get(1).currentStatus()).isEqualTo(OrderStatus.DELIVERED);
+        verify(orderRepository, times(1)).transitionStatus(anyMap(), any(), any(), any());
+        verify(stockReservations).resync(hotProduct);
+        verify(stockReservations, never()).resync(product);
+        verify(productRepository).evict(List.of(hotProduct, product));
+    }
+
+    private static Order current(UUID id, OrderStatus status, int version) {
+        return Order.builder().id(id).status(status).version(version).build();
+    }
+
+    private static StatusTransitionResult rejected(Order current) {
+        return new StatusTransitionResult(List.of(), List.of(current), List.of(), Map.of(), List.of());
+    }
+}
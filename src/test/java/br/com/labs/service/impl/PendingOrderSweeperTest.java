@@ -0,0 +1,106 @@
+package br.com.labs.service.impl;
+
+import br.com.labs.repository.ExpiredOrders;
+import br.com.labs.repository.OrderRepository;
+import br.com.labs.repository.ProductRepository;
+import br.com.labs.repository.TransactionManager;
+import br.com.labs.reservation.StockReservations;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.sqlclient.SqlConnection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the pending order sweeper, with the repository and transactions mocked.
+ */
+public class PendingOrderSweeperTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    private OrderRepository orderRepository;
+    private ProductRepository productRepository;
+    private StockReservations stockReservations;
+    private SimpleMeterRegistry meterRegistry;
+    private PendingOrderSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        productRepository = mock(ProductRepository.class);
+        stockReservations = mock(StockReservations.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        // Run each batch directly against a mocked connection
+        TransactionManager transactionManager = mock(TransactionManager.class);
+        SqlConnection connection = mock(SqlConnection.class);
+        when(transactionManager.inTransaction(any())).thenAnswer(inv -> {
+            Function<SqlConnection, Future<?>> work = inv.getArgument(0);
+            return work.apply(connection);
+        });
+
+        sweeper = new PendingOrderSweeper(mock(Vertx.class), orderRepository, productRepository,
+                transactionManager, stockReservations, Duration.ofMinutes(30), 60_000, BATCH_SIZE, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should cancel batches until one comes back short and record the released units")
+    void shouldSweepUntilShortBatch() {
+        UUID hotProduct = UUID.randomUUID();
+        UUID product = UUID.randomUUID();
+        when(stockReservations.manages(hotProduct)).thenReturn(true);
+        when(orderRepository.cancelExpired(any(), any(), eq(BATCH_SIZE))).thenReturn(
+                Future.succeededFuture(new ExpiredOrders(2, Map.of(product, 3, hotProduct, 1),
+                        List.of(product))),
+                Future.succeededFuture(new ExpiredOrders(1, Map.of(product, 2), List.of(product))));
+
+        LocalDateTime before = LocalDateTime.now().minusMinutes(30);
+        Future<Integer> result = sweeper.sweep();
+
+        assertThat(result.result()).isEqualTo(3);
+        verify(orderRepository, times(2)).cancelExpired(any(),
+                argThat(cutoff -> !cutoff.isBefore(before) && cutoff.isBefore(LocalDateTime.now().minusMinutes(29))),
+                eq(BATCH_SIZE));
+        verify(stockReservations).resync(hotProduct);
+        verify(stockReservations, never()).resync(product);
+        verify(productRepository, times(2)).evict(List.of(product));
+        assertThat(meterRegistry.get("orders.expired").counter().count()).isEqualTo(3.0);
+        assertThat(meterRegistry.get("orders.expiry.released.units").summary().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("orders.expiry.released.units").summary().totalAmount()).isEqualTo(6.0);
+    }
+
+    @Test
+    @DisplayName("Should not start a run while the previous one is still running")
+    void shouldSkipOverlappingRuns() {
+        Promise<ExpiredOrders> batch = Promise.promise();
+        when(orderRepository.cancelExpired(any(), any(), anyInt()))
+                .thenReturn(batch.future(), Future.succeededFuture(new ExpiredOrders(0, Map.of(), List.of())));
+
+        Future<Integer> first = sweeper.sweep();
+        Future<Integer> overlapping = sweeper.sweep();
+
+        assertThat(overlapping.result()).isZero();
+        verify(orderRepository, times(1)).cancelExpired(any(), any(), anyInt());
+
+        batch.complete(new ExpiredOrders(1, Map.of(UUID.randomUUID(), 4), List.of()));
+        assertThat(first.result()).isEqualTo(1);
+        assertThat(sweeper.sweep().result()).isZero();
+        verify(orderRepository, times(2)).cancelExpired(any(), any(), anyInt());
+        assertThat(meterRegistry.get("orders.expiry.released.units").summary().count()).isEqualTo(2);
+    }
+}
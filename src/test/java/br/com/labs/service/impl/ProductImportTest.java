@@ -0,0 +1,237 @@
+package br.com.labs.service.impl;
+
+import br.com.labs.dto.request.FeedFormat;
+import br.com.labs.dto.response.ImportSummary;
+import br.com.labs.model.Product;
+import br.com.labs.repository.CategoryRepository;
+import br.com.labs.repository.ProductRepository;
+import br.com.labs.repository.ProductUpsertResult;
+import br.com.labs.repository.TransactionManager;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.pgclient.PgException;
+import io.vertx.sqlclient.SqlConnection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the streaming product import, with the repositories mocked.
+ */
+public class ProductImportTest {
+
+    private ProductRepository productRepository;
+    private CategoryRepository categoryRepository;
+    private TransactionManager transactionManager;
+    private final List<List<Product>> batches = new ArrayList<>();
+    private final List<Promise<ProductUpsertResult>> pendingWrites = new ArrayList<>();
+    private boolean completeWrites;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        categoryRepository = mock(CategoryRepository.class);
+        completeWrites = true;
+
+        // Run each batch directly against a mocked connection
+        transactionManager = mock(TransactionManager.class);
+        SqlConnection connection = mock(SqlConnection.class);
+        when(transactionManager.inTransaction(any())).thenAnswer(inv -> {
+            Function<SqlConnection, Future<?>> work = inv.getArgument(0);
+            return work.apply(connection);
+        });
+        when(productRepository.upsertByCode(any(), anyList())).thenAnswer(inv -> {
+            List<Product> products = inv.getArgument(1);
+            batches.add(List.copyOf(products));
+            Promise<ProductUpsertResult> promise = Promise.promise();
+            pendingWrites.add(promise);
+            if (completeWrites) {
+                promise.complete(new ProductUpsertResult(products, List.of()));
+            }
+            return promise.future();
+        });
+    }
+
+    @Test
+    @DisplayName("Should write valid NDJSON rows and report the rejected ones by line")
+    void shouldRejectInvalidRows() {
+        UUID category = UUID.randomUUID();
+        UUID missingCategory = UUID.randomUUID();
+        when(categoryRepository.existsById(category)).thenReturn(Future.succeededFuture(true));
+        when(categoryRepository.existsById(missingCategory)).thenReturn(Future.succeededFuture(false));
+
+        LineStream lines = new LineStream(
+                "{\"code\":\"A-1\",\"name\":\"Caneta\",\"price\":2.5,\"categoryId\":\"" + category + "\"}",
+                "not json",
+                "{\"code\":\"A-2\",\"name\":\"Lápis\"}",
+                "",
+                "{\"code\":\"A-3\",\"name\":\"Borracha\",\"price\":\"1.00\",\"categoryId\":\"" + missingCategory + "\"}",
+                "{\"code\":\"A-1\",\"name\":\"Caneta Azul\",\"price\":3,\"stock\":7}\r");
+
+        Future<ImportSummary> result = new ProductImport(lines, FeedFormat.NDJSON,
+                productRepository, categoryRepository, transactionManager, upserted -> {}).run();
+        lines.pump();
+
+        ImportSummary summary = result.result();
+        assertThat(summary.getInserted()).isEqualTo(2);
+        assertThat(summary.getRejected()).isEqualTo(3);
+        assertThat(summary.getErrors()).extracting(ImportSummary.RowError::line).containsExactly(2L, 3L, 5L);
+        assertThat(summary.getErrors().get(1).code()).isEqualTo("A-2");
+
+        // The repeated code starts a new batch, so the later row is written last
+        assertThat(batches).hasSize(2);
+        assertThat(batches.get(1).get(0).getName()).isEqualTo("Caneta Azul");
+        assertThat(batches.get(1).get(0).getStock()).isEqualTo(7);
+        verify(categoryRepository, times(1)).existsById(category);
+    }
+
+    @Test
+    @DisplayName("Should leave stock unset when the feed does not carry it")
+    void shouldKeepStockWhenAbsent() {
+        LineStream lines = new LineStream("code,name,price", "P-1,Caneta,1.00", "P-2,Lápis,0.50");
+
+        Future<ImportSummary> result = new ProductImport(lines, FeedFormat.CSV,
+                productRepository, categoryRepository, transactionManager, upserted -> {}).run();
+        lines.pump();
+
+        assertThat(result.succeeded()).isTrue();
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).extracting(Product::getStock).containsExactly(null, null);
+    }
+
+    @Test
+    @DisplayName("Should pause reading while a batch is written")
+    void shouldApplyBackpressure() {
+        List<String> rows = new ArrayList<>();
+        rows.add("code,name,price,description");
+        for (int i = 0; i < ProductImport.BATCH_SIZE * 2 + 500; i++) {
+            rows.add("P-" + i + ",\"Produto, \"\"" + i + "\"\"\",9.90,");
+        }
+        LineStream lines = new LineStream(rows.toArray(new String[0]));
+        completeWrites = false;
+
+        Future<ImportSummary> result = new ProductImport(lines, FeedFormat.CSV,
+                productRepository, categoryRepository, transactionManager, upserted -> {}).run();
+        lines.pump();
+
+        assertThat(lines.paused).isTrue();
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).hasSize(ProductImport.BATCH_SIZE);
+        assertThat(batches.get(0).get(0).getName()).isEqualTo("Produto, \"0\"");
+        assertThat(batches.get(0).get(0).getDescription()).isNull();
+
+        completeWrites = true;
+        pendingWrites.get(0).complete(new ProductUpsertResult(batches.get(0), List.of()));
+
+        assertThat(batches).extracting(List::size)
+                .containsExactly(ProductImport.BATCH_SIZE, ProductImport.BATCH_SIZE, 500);
+        assertThat(result.result().getInserted()).isEqualTo(ProductImport.BATCH_SIZE * 2L + 500);
+        verify(productRepository, times(3)).upsertByCode(any(), anyList());
+    }
+
+    @Test
+    @DisplayName("Should write a batch again when PostgreSQL aborts it with a deadlock")
+    void shouldRetryDeadlockedBatch() {
+        when(productRepository.upsertByCode(any(), anyList()))
+                .thenReturn(Future.failedFuture(new PgException("deadlock detected", "ERROR", "40P01", null)))
+                .thenAnswer(inv -> Future.succeededFuture(new ProductUpsertResult(inv.getArgument(1), List.of())));
+        LineStream lines = new LineStream("code,name,price", "P-1,Caneta,1.00");
+
+        Future<ImportSummary> result = new ProductImport(lines, FeedFormat.CSV,
+                productRepository, categoryRepository, transactionManager, upserted -> {}).run();
+        lines.pump();
+
+        assertThat(result.result().getInserted()).isEqualTo(1);
+        verify(transactionManager, times(2)).inTransaction(any());
+    }
+
+    @Test
+    @DisplayName("Should fail the import on an unknown CSV column")
+    void shouldRejectUnknownColumns() {
+        LineStream lines = new LineStream("code,name,price,color", "P-1,Caneta,1.00,azul");
+
+        Future<ImportSummary> result = new ProductImport(lines, FeedFormat.CSV,
+                productRepository, categoryRepository, transactionManager, upserted -> {}).run();
+        lines.pump();
+
+        assertThat(result.failed()).isTrue();
+        assertThat(result.cause()).hasMessageContaining("color");
+        verify(productRepository, never()).upsertByCode(any(), anyList());
+    }
+
+    /**
+     * Lines delivered synchronously, honouring pause and resume like the request body would.
+     */
+    private static class LineStream implements ReadStream<Buffer> {
+
+        private final Deque<String> lines;
+        private Handler<Buffer> handler;
+        private Handler<Void> endHandler;
+        private boolean paused;
+        private boolean ended;
+
+        LineStream(String... lines) {
+            this.lines = new ArrayDeque<>(List.of(lines));
+        }
+
+        void pump() {
+            while (!paused && !lines.isEmpty()) {
+                handler.handle(Buffer.buffer(lines.poll()));
+            }
+            if (!paused && lines.isEmpty() && !ended) {
+                ended = true;
+                endHandler.handle(null);
+            }
+        }
+
+        @Override
+        public ReadStream<Buffer> exceptionHandler(Handler<Throwable> handler) {
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> handler(Handler<Buffer> handler) {
+            this.handler = handler;
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> pause() {
+            paused = true;
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> resume() {
+            paused = false;
+            pump();
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> fetch(long amount) {
+            return resume();
+        }
+
+        @Override
+        public ReadStream<Buffer> endHandler(Handler<Void> endHandler) {
+            this.endHandler = endHandler;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package br.com.labs.suggest;
+
+import br.com.labs.model.Product;
+import br.com.labs.model.ProductSuggestion;
+import br.com.labs.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the typeahead index, with the database stream mocked.
+ */
+@ExtendWith(VertxExtension.class)
+public class ProductSuggestIndexTest {
+
+    private final List<ProductSuggestion> database = new ArrayList<>();
+    private ProductSuggestIndex index;
+
+    @BeforeEach
+    void setUp(Vertx vertx) {
+        database.clear();
+        ProductRepository repository = mock(ProductRepository.class);
+        when(repository.streamSuggestions(any())).thenAnswer(inv -> {
+            Consumer<ProductSuggestion> consumer = inv.getArgument(0);
+            List.copyOf(database).forEach(consumer);
+            return Future.succeededFuture();
+        });
+        index = new ProductSuggestIndex(vertx, repository, 0, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("Should match word starts and codes, most popular first, ignoring case and accents")
+    void shouldRankMatchesByPopularity(VertxTestContext ctx) {
+        database.add(suggestion("Smartphone Preto", "CEL-001", 10));
+        database.add(suggestion("Caneta Preta", "PAP-002", 50));
+        database.add(suggestion("Pão de Queijo", "ALI-003", 5));
+        database.add(suggestion("Impressora", "INF-004", 100));
+
+        index.reload().onComplete(ctx.succeeding(v -> ctx.verify(() -> {
+            assertThat(index.suggest("pre", 10)).extracting(ProductSuggestion::name)
+                    .containsExactly("Caneta Preta", "Smartphone Preto");
+            assertThat(index.suggest("P", 10)).extracting(ProductSuggestion::name)
+                    .containsExactly("Caneta Preta", "Smartphone Preto", "Pão de Queijo");
+            assertThat(index.suggest("PAO DE", 10)).extracting(ProductSuggestion::code)
+                    .containsExactly("ALI-003");
+            assertThat(index.suggest("cel-0", 10)).extracting(ProductSuggestion::code)
+                    .containsExactly("CEL-001");
+            assertThat(index.suggest("p", 1)).extracting(ProductSuggestion::name)
+                    .containsExactly("Caneta Preta");
+            ctx.completeNow();
+        })));
+    }
+
+    @Test
+    @DisplayName("Should reflect local writes until the next reload reads them from the database")
+    void shouldApplyLocalWrites(VertxTestContext ctx) {
+        ProductSuggestion pen = suggestion("Caneta Azul", "PAP-001", 20);
+        database.add(pen);
+
+        index.reload().compose(v -> {
+            UUID pencilId = UUID.randomUUID();
+            index.put(product(pen.id(), "Lapiseira", "PAP-001"));
+            index.put(product(pencilId, "Lápis", "PAP-002"));
+
+            ctx.verify(() -> {
+                assertThat(index.suggest("can", 10)).isEmpty();
+                // The rename keeps the popularity loaded from the database
+                assertThat(index.suggest("lap", 10)).extracting(ProductSuggestion::popularity)
+                        .containsExactly(20L, 0L);
+            });
+
+            index.remove(pen.id());
+            ctx.verify(() -> assertThat(index.suggest("lap", 10)).extracting(ProductSuggestion::name)
+                    .containsExactly("Lápis"));
+
+            // The reload reads the committed writes, now with fresh popularity
+            database.clear();
+            database.add(new ProductSuggestion(pencilId, "Lápis", "PAP-002", 3));
+            return index.reload();
+        }).onComplete(ctx.succeeding(v -> ctx.verify(() -> {
+            assertThat(index.suggest("lap", 10)).extracting(ProductSuggestion::popularity)
+                    .containsExactly(3L);
+            assertThat(index.suggest("can", 10)).isEmpty();
+            ctx.completeNow();
+        })));
+    }
+
+    private static ProductSuggestion suggestion(String name, String code, long popularity) {
+        return new ProductSuggestion(UUID.randomUUID(), name, code, popularity);
+    }
+
+    private static Product product(UUID id, String name, String code) {
+        return Product.builder()
+                .id(id)
+                .name(name)
+                .code(code)
+                .price(new BigDecimal("9.90"))
+                .stock(1)
+                .build();
+    }
+}